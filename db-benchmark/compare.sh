@@ -0,0 +1,91 @@
+#!/bin/bash
+#
+# Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#         http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Run the benchmarks and compare the scores with the committed baseline.
+#
+# usage: compare.sh [--update] [--threshold <percent>] [jmh options]
+#
+#   --update     write the results as new baseline.csv
+#   --threshold  allowed regression in percent, default 10
+#
+# Build the jar before with 'mvn package -pl db-benchmark -am'.
+
+cd "$(dirname "$0")"
+
+BASELINE=baseline.csv
+RESULT=target/result.csv
+JAR=target/benchmarks.jar
+THRESHOLD=10
+UPDATE=false
+
+while [ $# -gt 0 ]; do
+    case "$1" in
+        --update) UPDATE=true; shift ;;
+        --threshold) THRESHOLD="$2"; shift 2 ;;
+        *) break ;;
+    esac
+done
+
+if [ ! -f $JAR ]; then
+    echo "$JAR not found, run 'mvn package' first" >&2
+    exit 1
+fi
+
+# check the baseline before the long benchmark run
+if [ "$UPDATE" != "true" ]; then
+    if [ ! -f $BASELINE ]; then
+        echo "$BASELINE not found, create it with --update" >&2
+        exit 1
+    fi
+
+    if [ "$(tail -n +2 $BASELINE | grep -c .)" -eq 0 ]; then
+        echo "$BASELINE contains no results, create it with --update" >&2
+        exit 1
+    fi
+fi
+
+java -Duser.language=en -Duser.country=US -jar $JAR -rf csv -rff $RESULT "$@" || exit 1
+
+if [ "$UPDATE" = "true" ]; then
+    cp $RESULT $BASELINE
+    echo "Baseline updated: $BASELINE"
+    exit 0
+fi
+
+# all benchmarks report average time, a higher score is a regression
+awk -F, -v threshold=$THRESHOLD '
+function key() {
+    k = $1 "|" $3
+    for (i = 8; i <= NF; i++) k = k "|" $i
+    return k
+}
+FNR == 1 { next }
+{ gsub(/"/, "") }
+FNR == NR { base[key()] = $5; next }
+{
+    k = key()
+    if (!(k in base)) {
+        printf "%-70s %12s %12.3f %-6s new\n", $1 " (" $3 ")", "-", $5, $7
+        next
+    }
+    diff = base[k] == 0 ? 0 : ($5 - base[k]) * 100 / base[k]
+    state = "ok"
+    if (diff > threshold) { state = "REGRESSION"; failed++ }
+    printf "%-70s %12.3f %12.3f %-6s %+7.1f%% %s\n", $1 " (" $3 ")", base[k], $5, $7, diff, state
+}
+END { exit failed > 0 ? 2 : 0 }
+' $BASELINE $RESULT
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.UUID;
+
+import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.DbManagerJdbc;
+import de.mhus.lib.core.node.INode;
+import de.mhus.lib.core.node.MNode;
+import de.mhus.lib.sql.DbPool;
+import de.mhus.lib.sql.DbPoolBundle;
+
+/** Create in memory HSQLDB pools and managers for the benchmarks. */
+public class BenchmarkSupport {
+
+    private static int poolCnt = 0;
+
+    public static synchronized DbPool createPool(String name) throws Exception {
+        INode cconfig = new MNode();
+        INode cdb = cconfig.createObject("bench");
+        cdb.setProperty("driver", "org.hsqldb.jdbcDriver");
+        cdb.setProperty("url", "jdbc:hsqldb:mem:" + name.toLowerCase() + (poolCnt++));
+        cdb.setProperty("user", "sa");
+        cdb.setProperty("password", "");
+        return new DbPoolBundle(cconfig, null).getPool("bench");
+    }
+
+    public static DbManager createManager(String name) throws Exception {
+        return new DbManagerJdbc("", createPool(name), null, new BenchSchema());
+    }
+
+    public static BenchEntity createEntity(int nr) {
+        BenchEntity entity = new BenchEntity();
+        entity.setName("name" + nr);
+        entity.setValue(nr);
+        entity.setCreated(System.currentTimeMillis());
+        entity.setDescription("description of " + nr + " " + UUID.randomUUID());
+        return entity;
+    }
+
+    public static void fill(DbManager manager, int rows) throws Exception {
+        for (int i = 0; i < rows; i++) manager.createObject(createEntity(i));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.mhus.lib.adb.DbCollection;
+import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.query.Db;
+
+/** Iterate DbCollectionImpl results of a full table scan. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectionBenchmark {
+
+    @Param({"1000"})
+    private int rows;
+
+    private DbManager manager;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        manager = BenchmarkSupport.createManager("collection");
+        BenchmarkSupport.fill(manager, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.getPool().close();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) throws Exception {
+        DbCollection<BenchEntity> res = manager.getAll(BenchEntity.class);
+        try {
+            for (BenchEntity entity : res) bh.consume(entity.getValue());
+        } finally {
+            res.close();
+        }
+    }
+
+    @Benchmark
+    public void iterateRecycled(Blackhole bh) throws Exception {
+        DbCollection<BenchEntity> res = manager.getAll(BenchEntity.class).setRecycle(true);
+        try {
+            for (BenchEntity entity : res) bh.consume(entity.getValue());
+        } finally {
+            res.close();
+        }
+    }
+
+    @Benchmark
+    public void iterateStream(Blackhole bh) throws Exception {
+        DbCollection<BenchEntity> res =
+                manager.getByQualification(Db.query(BenchEntity.class).stream(100));
+        try {
+            for (BenchEntity entity : res) bh.consume(entity.getValue());
+        } finally {
+            res.close();
+        }
+    }
+}
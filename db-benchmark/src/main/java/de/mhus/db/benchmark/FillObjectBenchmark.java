@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.model.Table;
+import de.mhus.lib.sql.DbConnection;
+import de.mhus.lib.sql.DbResult;
+import de.mhus.lib.sql.DbStatement;
+
+/** Map all rows of a result into a recycled object with Table.fillObject. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FillObjectBenchmark {
+
+    @Param({"100"})
+    private int rows;
+
+    private DbManager manager;
+    private DbConnection con;
+    private DbStatement sth;
+    private Table table;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        manager = BenchmarkSupport.createManager("fill");
+        BenchmarkSupport.fill(manager, rows);
+        table = manager.getTable(BenchEntity.class.getCanonicalName());
+        con = manager.getPool().getConnection();
+        sth = con.createStatement(manager.createSqlSelect(BenchEntity.class, "*", ""));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sth.close();
+        con.close();
+        manager.getPool().close();
+    }
+
+    @Benchmark
+    public void fillObject(Blackhole bh) throws Throwable {
+        BenchEntity entity = new BenchEntity();
+        DbResult res = sth.executeQuery(null);
+        try {
+            while (res.next()) {
+                table.fillObject(entity, con, res);
+                bh.consume(entity.getValue());
+            }
+        } finally {
+            res.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.transaction.LockBase;
+import de.mhus.lib.adb.transaction.LockStrategy;
+import de.mhus.lib.adb.transaction.TransactionLock;
+
+/** Lock and release objects with the MemoryLockStrategy of the schema. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockBenchmark {
+
+    private static final long TIMEOUT = 10000;
+
+    private DbManager manager;
+    private LockStrategy strategy;
+    private BenchEntity shared;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private BenchEntity own;
+        private String key;
+        private LockBase owner;
+
+        @Setup(Level.Trial)
+        public void setup(LockBenchmark bench) throws Exception {
+            own = BenchmarkSupport.createEntity(0);
+            bench.manager.createObject(own);
+            key = "own_" + own.getId();
+            owner = new TransactionLock(bench.manager, false, own);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        manager = BenchmarkSupport.createManager("lock");
+        strategy = manager.getSchema().getLockStrategy();
+        shared = BenchmarkSupport.createEntity(0);
+        manager.createObject(shared);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.getPool().close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void lockReleaseSingle(ThreadState state) {
+        strategy.lock(state.own, state.key, state.owner, TIMEOUT);
+        strategy.releaseLock(state.own, state.key, state.owner);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void lockReleaseDistinct(ThreadState state) {
+        strategy.lock(state.own, state.key, state.owner, TIMEOUT);
+        strategy.releaseLock(state.own, state.key, state.owner);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void lockReleaseContended(ThreadState state) {
+        strategy.lock(shared, "shared", state.owner, TIMEOUT);
+        strategy.releaseLock(shared, "shared", state.owner);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transactionLock(ThreadState state) {
+        TransactionLock lock = new TransactionLock(manager, false, state.own);
+        lock.lock(TIMEOUT);
+        lock.release();
+    }
+}
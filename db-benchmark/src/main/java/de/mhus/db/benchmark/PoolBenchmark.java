@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mhus.lib.sql.DbConnection;
+import de.mhus.lib.sql.DbPool;
+
+/** Get and release connections of DefaultDbPool with concurrent threads. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolBenchmark {
+
+    private DbPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        pool = BenchmarkSupport.createPool("pool");
+        // warm up the pool with a connection per thread
+        DbConnection[] cons = new DbConnection[8];
+        for (int i = 0; i < cons.length; i++) cons[i] = pool.getConnection();
+        for (DbConnection con : cons) con.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DbConnection getConnectionSingle() throws Exception {
+        DbConnection con = pool.getConnection();
+        con.close();
+        return con;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public DbConnection getConnectionContended() throws Exception {
+        DbConnection con = pool.getConnection();
+        con.close();
+        return con;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.query.AQuery;
+import de.mhus.lib.adb.query.Db;
+
+/** Render AQuery objects to the sql qualification of the dialect. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryRenderBenchmark {
+
+    private DbManager manager;
+    private AQuery<BenchEntity> prepared;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        manager = BenchmarkSupport.createManager("render");
+        prepared = createQuery();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.getPool().close();
+    }
+
+    private AQuery<BenchEntity> createQuery() {
+        return Db.query(BenchEntity.class)
+                .like("name", "name1%")
+                .or(Db.gt("value", 10), Db.eq("description", "x"))
+                .asc("name")
+                .limit(100);
+    }
+
+    @Benchmark
+    public String renderPrepared() {
+        return manager.toQualification(prepared);
+    }
+
+    @Benchmark
+    public String buildAndRender() {
+        return manager.toQualification(createQuery());
+    }
+
+    @Benchmark
+    public String renderSelect() {
+        return manager.createSqlSelect(
+                BenchEntity.class, "*", manager.toQualification(prepared));
+    }
+}
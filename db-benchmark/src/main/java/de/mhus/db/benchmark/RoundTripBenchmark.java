@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mhus.lib.adb.DbManager;
+
+/** Create, save and load objects against the in memory database. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private DbManager manager;
+    private BenchEntity existing;
+    private int cnt;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        manager = BenchmarkSupport.createManager("roundtrip");
+        existing = BenchmarkSupport.createEntity(0);
+        manager.createObject(existing);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.getPool().close();
+    }
+
+    @Benchmark
+    public BenchEntity createObject() throws Exception {
+        BenchEntity entity = BenchmarkSupport.createEntity(++cnt);
+        manager.createObject(entity);
+        return entity;
+    }
+
+    @Benchmark
+    public BenchEntity saveObject() throws Exception {
+        existing.setValue(++cnt);
+        manager.saveObject(existing);
+        return existing;
+    }
+
+    @Benchmark
+    public BenchEntity getObject() throws Exception {
+        return manager.getObject(BenchEntity.class, existing.getId());
+    }
+}
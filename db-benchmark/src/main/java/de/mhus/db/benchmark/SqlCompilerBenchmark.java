@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.benchmark;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mhus.lib.core.parser.CompiledString;
+import de.mhus.lib.sql.parser.SqlCompiler;
+
+/** Compile sql templates and execute the compiled result. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlCompilerBenchmark {
+
+    private static final String SIMPLE = "SELECT * FROM book_ WHERE id_=$id$";
+    private static final String COMPLEX =
+            "SELECT a.id_,a.name_,b.title_ FROM person_ a LEFT JOIN book_ b ON a.id_=b.owner_"
+                    + " WHERE (a.name_ LIKE $name$ OR a.age_ > $age,int$) AND b.id_ IN ($ids$)"
+                    + " AND b.created_ < $created,date$ ORDER BY a.name_ ASC";
+
+    private SqlCompiler compiler;
+    private CompiledString compiled;
+    private Map<String, Object> attributes;
+
+    @Setup
+    public void setup() throws Exception {
+        compiler = new SqlCompiler();
+        compiled = compiler.compileString(COMPLEX);
+        attributes = new HashMap<>();
+        attributes.put("name", "Max%");
+        attributes.put("age", 42);
+        attributes.put("ids", Arrays.asList("a", "b", "c"));
+        attributes.put("created", new Date());
+    }
+
+    @Benchmark
+    public CompiledString compileSimple() throws Exception {
+        return compiler.compileString(SIMPLE);
+    }
+
+    @Benchmark
+    public CompiledString compileComplex() throws Exception {
+        return compiler.compileString(COMPLEX);
+    }
+
+    @Benchmark
+    public String executeComplex() throws Exception {
+        return compiled.execute(attributes);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.mhus.lib.adb.query.AQuery;
+import de.mhus.lib.adb.transaction.TransactionPool;
+import de.mhus.lib.core.MLog;
+import de.mhus.lib.core.MSystem;
+
+/**
+ * Asynchronous facade of a DbManager. Every call is executed by the executor and returns a
+ * CompletableFuture, so independent lookups can run in parallel. The default executor uses a
+ * virtual thread per task if the runtime supports it, otherwise a cached pool of daemon threads.
+ *
+ * <p>Transactions are bound to the calling thread. If the caller is inside a transaction or holds
+ * a transaction lock the work is executed directly in the calling thread to use the bound
+ * connection, the returned future is already completed.
+ */
+public class AsyncDbManager extends MLog {
+
+    private static Executor defaultExecutor;
+
+    private final DbManager manager;
+    private final Executor executor;
+
+    public AsyncDbManager(DbManager manager) {
+        this(manager, getDefaultExecutor());
+    }
+
+    public AsyncDbManager(DbManager manager, Executor executor) {
+        this.manager = manager;
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> getObject(Class<T> clazz, Object... keys) {
+        return submit(m -> m.getObject(clazz, keys));
+    }
+
+    public CompletableFuture<Object> getObject(String registryName, Object... keys) {
+        return submit(m -> m.getObject(registryName, keys));
+    }
+
+    public <T> CompletableFuture<T> getObjectByQualification(AQuery<T> qualification) {
+        return submit(m -> m.getObjectByQualification(qualification));
+    }
+
+    /**
+     * Load the result of the query. The collection is fully read and closed by the executing thread
+     * so the connection is not shared between threads.
+     *
+     * @param qualification
+     * @return The result list
+     */
+    public <T> CompletableFuture<List<T>> getByQualification(AQuery<T> qualification) {
+        return submit(m -> m.getByQualification(qualification).toCacheAndClose());
+    }
+
+    public <T> CompletableFuture<Long> getCountByQualification(AQuery<T> qualification) {
+        return submit(m -> m.getCountByQualification(qualification));
+    }
+
+    public CompletableFuture<Void> createObject(Object object) {
+        return submit(
+                m -> {
+                    m.createObject(object);
+                    return null;
+                });
+    }
+
+    public CompletableFuture<Void> saveObject(Object object) {
+        return submit(
+                m -> {
+                    m.saveObject(object);
+                    return null;
+                });
+    }
+
+    public CompletableFuture<Void> deleteObject(Object object) {
+        return submit(
+                m -> {
+                    m.deleteObject(object);
+                    return null;
+                });
+    }
+
+    /**
+     * Execute the task with the manager.
+     *
+     * @param task
+     * @return The future result of the task
+     */
+    public <R> CompletableFuture<R> submit(Task<R> task) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        if (isBoundToThread()) {
+            run(task, future);
+            return future;
+        }
+        try {
+            executor.execute(() -> run(task, future));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
+    private <R> void run(Task<R> task, CompletableFuture<R> future) {
+        try {
+            future.complete(task.call(manager));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Return true if the current thread is in a transaction of the manager or holds a transaction
+     * lock.
+     *
+     * @return true if the work must not leave the thread
+     */
+    protected boolean isBoundToThread() {
+        if (TransactionPool.instance().getLockBase() != null) return true;
+        if (DbTransaction.isInTransaction(manager.getPool())) return true;
+        return manager.getPoolRo() != manager.getPool()
+                && DbTransaction.isInTransaction(manager.getPoolRo());
+    }
+
+    public DbManager getManager() {
+        return manager;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Return the shared default executor, virtual threads per task if available.
+     *
+     * @return The executor
+     */
+    public static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            try {
+                defaultExecutor =
+                        (ExecutorService)
+                                Executors.class
+                                        .getMethod("newVirtualThreadPerTaskExecutor")
+                                        .invoke(null);
+            } catch (Throwable t) {
+                defaultExecutor =
+                        Executors.newCachedThreadPool(
+                                r -> {
+                                    Thread thread = new Thread(r, "AsyncDbManager");
+                                    thread.setDaemon(true);
+                                    return thread;
+                                });
+            }
+        }
+        return defaultExecutor;
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(this, manager, executor);
+    }
+
+    public interface Task<R> {
+        R call(DbManager manager) throws Exception;
+    }
+}
@@ -16,6 +16,7 @@
 package de.mhus.lib.adb;
 
 import de.mhus.lib.adb.model.Table;
+import de.mhus.lib.adb.query.AQuery;
 import de.mhus.lib.errors.AccessDeniedException;
 import de.mhus.lib.sql.DbConnection;
 
@@ -48,4 +49,22 @@ public abstract class DbAccessManager {
     public abstract void hasAccess(
             DbManager manager, Table c, DbConnection con, Object object, ACCESS right)
             throws AccessDeniedException;
+
+    /**
+     * Throws an Exception if the access to all objects selected by the query is not allowed. Used
+     * by set based updates and deletes where the objects are not loaded. The default
+     * implementation denies the access.
+     *
+     * @param manager
+     * @param c
+     * @param con
+     * @param query
+     * @param right
+     * @throws AccessDeniedException
+     */
+    public void hasAccess(
+            DbManager manager, Table c, DbConnection con, AQuery<?> query, ACCESS right)
+            throws AccessDeniedException {
+        throw new AccessDeniedException(c.getName(), right);
+    }
 }
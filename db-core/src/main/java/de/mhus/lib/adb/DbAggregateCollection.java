@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb;
+
+import java.util.Iterator;
+
+import de.mhus.lib.adb.query.AAggregate;
+import de.mhus.lib.core.util.MObject;
+import de.mhus.lib.core.util.Table;
+import de.mhus.lib.errors.MException;
+import de.mhus.lib.sql.DbConnection;
+import de.mhus.lib.sql.DbPool;
+import de.mhus.lib.sql.DbResult;
+
+/**
+ * Collection of aggregate query results. Every row is returned as array with the group by values
+ * followed by the aggregates in the order of the query. Counts are returned as Long, averages as
+ * Double, all other values as returned by the database. The rows are streamed from the open
+ * result set, close the collection if it is not read to the end.
+ *
+ * @author mikehummel
+ */
+public class DbAggregateCollection extends MObject implements DbCollection<Object[]> {
+
+    private DbManager manager;
+    private DbPool pool;
+    private DbConnection con;
+    private boolean ownConnection;
+    private DbResult res;
+    private String[] names;
+    private AAggregate.FUNCTION[] functions;
+    private int fetchSize;
+    private Object[] next;
+    private Object[] current;
+    private boolean hasNext = true;
+
+    /**
+     * Create the collection and read ahead the first row.
+     *
+     * @param manager The manager
+     * @param con The connection of the result
+     * @param ownConnection Close the connection with the collection
+     * @param res The result, the columns are labeled c0, c1, ...
+     * @param names The names of the columns
+     * @param functions The aggregate function of each column or null for group by values
+     * @param fetchSize The fetch size of the result
+     */
+    public DbAggregateCollection(
+            DbManager manager,
+            DbConnection con,
+            boolean ownConnection,
+            DbResult res,
+            String[] names,
+            AAggregate.FUNCTION[] functions,
+            int fetchSize) {
+        this.manager = manager;
+        this.pool = manager.getPool();
+        this.con = con;
+        this.ownConnection = ownConnection;
+        this.res = res;
+        this.names = names;
+        this.functions = functions;
+        this.fetchSize = fetchSize;
+        readRow();
+    }
+
+    private void readRow() {
+        next = null;
+        if (!hasNext) return;
+        try {
+            hasNext = res.next();
+            if (hasNext) {
+                Object[] row = new Object[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    String label = "c" + i;
+                    AAggregate.FUNCTION function = functions[i];
+                    if (function == AAggregate.FUNCTION.COUNT
+                            || function == AAggregate.FUNCTION.COUNT_DISTINCT)
+                        row[i] = res.getLong(label);
+                    else if (function == AAggregate.FUNCTION.AVG) {
+                        Object value = res.getObject(label);
+                        row[i] = value instanceof Number ? ((Number) value).doubleValue() : value;
+                    } else row[i] = res.getObject(label);
+                }
+                next = row;
+            }
+        } catch (Exception e) {
+            log().w(e);
+            hasNext = false;
+        }
+        if (!hasNext) close();
+    }
+
+    @Override
+    public Iterator<Object[]> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public Object[] next() {
+        current = next;
+        readRow();
+        return current;
+    }
+
+    @Override
+    public Object[] current() throws MException {
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (res != null) {
+            try {
+                res.close();
+            } catch (Exception e) {
+                log().w(e);
+            }
+            res = null;
+            next = null;
+            hasNext = false;
+        }
+        if (con != null) {
+            if (ownConnection) manager.getSchema().closeConnection(pool, con);
+            con = null;
+        }
+    }
+
+    @Override
+    public DbCollection<Object[]> setRecycle(boolean on) {
+        return this;
+    }
+
+    @Override
+    public boolean isRecycle() {
+        return false;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Return the names of the values in the order of the rows. The names are the group by
+     * attributes and the aliases of the aggregates, e.g. count or sum_price.
+     *
+     * @return The column names
+     */
+    public String[] getColumnNames() {
+        return names;
+    }
+
+    /**
+     * Return the index of the value in the rows.
+     *
+     * @param name The attribute or alias
+     * @return The index or -1
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < names.length; i++) if (names[i].equalsIgnoreCase(name)) return i;
+        return -1;
+    }
+
+    @Override
+    public Table toTableAndClose(int maxSize) {
+        Table out = new Table();
+        for (int i = 0; i < names.length; i++)
+            out.addHeader(
+                    names[i],
+                    functions[i] == AAggregate.FUNCTION.COUNT
+                                    || functions[i] == AAggregate.FUNCTION.COUNT_DISTINCT
+                            ? Long.class.getCanonicalName()
+                            : Object.class.getCanonicalName());
+        try {
+            while (hasNext()) {
+                out.addRow(next());
+                if (maxSize > 0 && out.getRowSize() >= maxSize) break;
+            }
+        } finally {
+            close();
+        }
+        return out;
+    }
+}
@@ -44,6 +44,32 @@ public interface DbCollection<O> extends Iterable<O>, Iterator<O>, MCloseable {
 
     boolean isRecycle();
 
+    /**
+     * Return the fetch size if the result is streamed from the database. A streaming collection
+     * holds an open cursor and should be closed as soon as possible.
+     *
+     * @return The fetch size or 0 if the result is not streamed
+     */
+    default int getFetchSize() {
+        return 0;
+    }
+
+    default boolean isStreaming() {
+        return getFetchSize() > 0;
+    }
+
+    /**
+     * Load the given relations of the objects in pages with one query per relation and page
+     * instead of one query per object and relation. Collections not supporting it will load the
+     * relations lazy.
+     *
+     * @param relations Names of the relation attributes
+     * @return The collection itself
+     */
+    default DbCollection<O> prefetch(String... relations) {
+        return this;
+    }
+
     O current() throws MException;
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -97,7 +123,13 @@ public interface DbCollection<O> extends Iterable<O>, Iterator<O>, MCloseable {
         }
     }
 
-    default boolean skip(int cnt) { // TODO optimize, do not fully load objects
+    /**
+     * Skip the next objects of the collection.
+     *
+     * @param cnt Count of objects to skip
+     * @return true if there are more objects
+     */
+    default boolean skip(int cnt) {
         for (int i = 0; i < cnt && hasNext(); i++) next();
         return hasNext();
     }
@@ -15,11 +15,15 @@
  */
 package de.mhus.lib.adb;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 import de.mhus.lib.adb.model.Field;
+import de.mhus.lib.adb.model.FieldRelation;
 import de.mhus.lib.basics.RC;
+import de.mhus.lib.core.cfg.CfgLong;
 import de.mhus.lib.core.util.MObject;
 import de.mhus.lib.core.util.Table;
 import de.mhus.lib.errors.AccessDeniedException;
@@ -36,6 +40,9 @@ import de.mhus.lib.sql.DbResult;
  */
 public class DbCollectionImpl<O> extends MObject implements DbCollection<O> {
 
+    private static final CfgLong CFG_PREFETCH_PAGE_SIZE =
+            new CfgLong(DbCollection.class, "prefetchPageSize", 100);
+
     private DbManager manager;
     private DbResult res;
     private DbConnection con;
@@ -47,6 +54,9 @@ public class DbCollectionImpl<O> extends MObject implements DbCollection<O> {
     private boolean ownConnection;
     private O current;
     private DbPool pool;
+    private int fetchSize;
+    private FieldRelation[] prefetch;
+    private LinkedList<O> page;
 
     public DbCollectionImpl(
             DbManager manager,
@@ -79,8 +89,37 @@ public class DbCollectionImpl<O> extends MObject implements DbCollection<O> {
         nextObject();
     }
 
-    @SuppressWarnings("unchecked")
     private void nextObject() {
+        if (page == null) {
+            readObject();
+            return;
+        }
+        if (page.isEmpty()) fillPage();
+        next = page.poll();
+        hasNext = next != null;
+    }
+
+    private void fillPage() {
+        int size = (int) Math.max(1, CFG_PREFETCH_PAGE_SIZE.value());
+        while (page.size() < size && res != null) {
+            readObject();
+            if (next == null) break;
+            page.add(next);
+        }
+        if (page.isEmpty()) return;
+        ArrayList<O> list = new ArrayList<>(page);
+        for (FieldRelation relation : prefetch) {
+            try {
+                relation.prefetch(list);
+            } catch (Throwable t) {
+                // the relations will be loaded lazy
+                log().w("prefetch failed", registryName, relation.getName(), t);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject() {
         next = null;
         if (!hasNext) return;
         try {
@@ -166,6 +205,39 @@ public class DbCollectionImpl<O> extends MObject implements DbCollection<O> {
         return recycle;
     }
 
+    @Override
+    public DbCollectionImpl<O> prefetch(String... relations) {
+        if (recycle || relations == null || relations.length == 0) return this;
+        de.mhus.lib.adb.model.Table table = manager.getTable(registryName);
+        LinkedList<FieldRelation> list = new LinkedList<>();
+        for (String name : relations) {
+            FieldRelation relation = table.getFieldRelation(name);
+            if (relation == null) relation = table.getFieldRelation(name.toLowerCase());
+            if (relation == null) log().w("relation not found", registryName, name);
+            else list.add(relation);
+        }
+        if (list.isEmpty()) return this;
+        prefetch = list.toArray(new FieldRelation[list.size()]);
+        // the first object is already loaded, start the page with it
+        page = new LinkedList<>();
+        if (next == null) return this;
+        page.add(next);
+        fillPage();
+        next = page.poll();
+        hasNext = next != null;
+        return this;
+    }
+
+    DbCollectionImpl<O> setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
     @Override
     public boolean hasNext() {
         return hasNext;
@@ -194,6 +266,36 @@ public class DbCollectionImpl<O> extends MObject implements DbCollection<O> {
         return current;
     }
 
+    /**
+     * Skip the rows by moving the cursor of the result. The skipped rows are not mapped to
+     * objects, rows denied by the access manager are counted as well.
+     */
+    @Override
+    public boolean skip(int cnt) {
+        if (cnt <= 0 || !hasNext) return hasNext;
+        cnt--; // the next object is already loaded
+        if (page != null) {
+            while (cnt > 0 && !page.isEmpty()) {
+                page.poll();
+                cnt--;
+            }
+        }
+        try {
+            while (cnt > 0 && res != null && res.next()) cnt--;
+        } catch (Exception e) {
+            log().w(e);
+            cnt = 1;
+        }
+        if (cnt > 0) {
+            next = null;
+            hasNext = false;
+            close();
+            return false;
+        }
+        nextObject();
+        return hasNext;
+    }
+
     /**
      * Transfer Objects to a table view.
      *
@@ -27,12 +27,13 @@ import de.mhus.lib.sql.DbConnection;
  * @author mikehummel
  * @version $Id: $Id
  */
-public class DbComfortableObject extends MObject implements DbObject {
+public class DbComfortableObject extends MObject implements DbObject, DbTrackedObject {
 
     private DbObjectHandler manager;
     private boolean persistent = false;
     private String registryName;
     private DbConnection con;
+    private transient Object adbSnapshot;
 
     /**
      * isAdbManaged.
@@ -203,6 +204,18 @@ public class DbComfortableObject extends MObject implements DbObject {
         return manager;
     }
 
+    @Override
+    @GenerateHidden
+    public Object getAdbSnapshot() {
+        return adbSnapshot;
+    }
+
+    @Override
+    @GenerateHidden
+    public void setAdbSnapshot(Object snapshot) {
+        this.adbSnapshot = snapshot;
+    }
+
     /**
      * isAdbChanged.
      *
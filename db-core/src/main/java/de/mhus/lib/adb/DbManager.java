@@ -16,6 +16,8 @@
 package de.mhus.lib.adb;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +63,29 @@ public abstract class DbManager extends MJmx implements DbObjectHandler, XdbServ
     public abstract <T> DbCollection<T> getByQualification(AQuery<T> qualification)
             throws MException;
 
+    /**
+     * Return only the attributes selected by AQuery.select() as tuples. The values are in the
+     * order of the selection.
+     *
+     * @param qualification The query with a selection
+     * @return A collection of the selected values for each row
+     * @throws MException
+     */
+    public abstract <T> DbTupleCollection getTuplesByQualification(AQuery<T> qualification)
+            throws MException;
+
+    /**
+     * Execute the aggregates of the query, e.g. AQuery.count() or AQuery.sum(), grouped by the
+     * AQuery.groupBy() attributes and restricted by AQuery.having(). The rows contain the group by
+     * values followed by the aggregate values.
+     *
+     * @param qualification The query with aggregates
+     * @return A collection of the aggregate values for each group
+     * @throws MException
+     */
+    public abstract <T> DbAggregateCollection getAggregatesByQualification(
+            AQuery<T> qualification) throws MException;
+
     /**
      * Get an collection of objects by it's qualification. The qualification is the WHERE part of a
      * query. e.g. "$db.table.name$ like 'Joe %'"
@@ -179,6 +204,30 @@ public abstract class DbManager extends MJmx implements DbObjectHandler, XdbServ
             Map<String, Object> attributes)
             throws MException;
 
+    /**
+     * Returns an collection. If fetchSize is greater then zero the result is streamed from the
+     * database in chunks of this size instead of loading it at once. A streaming collection keeps
+     * the connection busy until it is closed.
+     *
+     * @param <T>
+     * @param con DbConnection or null
+     * @param clazz Empty Object class
+     * @param registryName registry name or null
+     * @param query The query, remember to return all attributes
+     * @param attributes attributes for the query or null
+     * @param fetchSize The count of rows per round trip or 0 to load the full result
+     * @return a collection with the results
+     * @throws MException
+     */
+    public abstract <T> DbCollection<T> executeQuery(
+            DbConnection con,
+            T clazz,
+            String registryName,
+            String query,
+            Map<String, Object> attributes,
+            int fetchSize)
+            throws MException;
+
     /**
      * Returns a long value out of a query.
      *
@@ -222,6 +271,24 @@ public abstract class DbManager extends MJmx implements DbObjectHandler, XdbServ
     public abstract Object getObject(DbConnection con, String registryName, Object... keys)
             throws MException;
 
+    /**
+     * Return the objects defined by a list of primary keys. The objects are loaded with chunked IN
+     * queries instead of one query per object.
+     *
+     * @param clazz The type of the objects
+     * @param keys The primary key values of each object
+     * @return The objects in the order of the keys, null for objects not found
+     * @throws MException
+     */
+    public abstract <T> List<T> getObjects(Class<T> clazz, Collection<Object[]> keys)
+            throws MException;
+
+    public abstract <T> List<T> getObjects(
+            DbConnection con, Class<T> clazz, Collection<Object[]> keys) throws MException;
+
+    public abstract List<Object> getObjects(
+            DbConnection con, String registryName, Collection<Object[]> keys) throws MException;
+
     //
 
     public abstract boolean existsObject(String registryName, Object... keys) throws MException;
@@ -387,6 +454,72 @@ public abstract class DbManager extends MJmx implements DbObjectHandler, XdbServ
     public abstract void deleteObject(DbConnection con, String registryName, Object object)
             throws MException;
 
+    /**
+     * Update the attributes of all objects selected by the query with one UPDATE statement. The
+     * objects are not loaded, object features are not called and cached objects of the table are
+     * invalidated. The query must not contain order, limit or keyset operations.
+     *
+     * @param qualification The query selecting the objects
+     * @param values The new values by attribute name
+     * @return The count of updated rows
+     * @throws MException
+     */
+    public abstract <T> int updateByQualification(
+            AQuery<T> qualification, Map<String, Object> values) throws MException;
+
+    public abstract <T> int updateByQualification(
+            DbConnection con, AQuery<T> qualification, Map<String, Object> values)
+            throws MException;
+
+    /**
+     * Delete all objects selected by the query with one DELETE statement. The objects are not
+     * loaded and cached objects of the table are invalidated. The query must not contain order,
+     * limit or keyset operations.
+     *
+     * @param qualification The query selecting the objects
+     * @return The count of deleted rows
+     * @throws MException
+     */
+    public abstract <T> int deleteByQualification(AQuery<T> qualification) throws MException;
+
+    public abstract <T> int deleteByQualification(DbConnection con, AQuery<T> qualification)
+            throws MException;
+
+    /**
+     * Create the objects in the database using jdbc batches. The objects are grouped by table and
+     * committed once.
+     *
+     * @param objects The objects to create
+     * @throws MException
+     */
+    public abstract void createObjects(Collection<?> objects) throws MException;
+
+    public abstract void createObjects(DbConnection con, Collection<?> objects)
+            throws MException;
+
+    /**
+     * Update the objects in the database using jdbc batches. The objects are grouped by table and
+     * committed once.
+     *
+     * @param objects The objects to save
+     * @throws MException
+     */
+    public abstract void saveObjects(Collection<?> objects) throws MException;
+
+    public abstract void saveObjects(DbConnection con, Collection<?> objects) throws MException;
+
+    /**
+     * Delete the objects in the database using jdbc batches. The objects are grouped by table and
+     * committed once.
+     *
+     * @param objects The objects to delete
+     * @throws MException
+     */
+    public abstract void deleteObjects(Collection<?> objects) throws MException;
+
+    public abstract void deleteObjects(DbConnection con, Collection<?> objects)
+            throws MException;
+
     @Override
     public abstract boolean isConnected();
 
@@ -658,6 +791,14 @@ public abstract class DbManager extends MJmx implements DbObjectHandler, XdbServ
             return (T) service.getObject(table.getClazz(), (Object[]) keys);
         }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<T> getObjects(String... ids) throws MException {
+            ArrayList<Object[]> keys = new ArrayList<>(ids.length);
+            for (String id : ids) keys.add(new Object[] {id});
+            return (List<T>) service.getObjects(table.getClazz(), keys);
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public DbCollection<T> getAll() throws MException {
@@ -15,14 +15,28 @@
  */
 package de.mhus.lib.adb;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import de.mhus.lib.adb.model.Feature;
 import de.mhus.lib.adb.model.Field;
 import de.mhus.lib.adb.model.Table;
+import de.mhus.lib.adb.model.TableCache;
+import de.mhus.lib.adb.query.AAfter;
+import de.mhus.lib.adb.query.AAggregate;
+import de.mhus.lib.adb.query.ADbAttribute;
+import de.mhus.lib.adb.query.AGroupBy;
+import de.mhus.lib.adb.query.AHaving;
+import de.mhus.lib.adb.query.ALimit;
+import de.mhus.lib.adb.query.AOperation;
+import de.mhus.lib.adb.query.AOrder;
 import de.mhus.lib.adb.query.AQuery;
 import de.mhus.lib.adb.util.DbProperties;
 import de.mhus.lib.adb.util.ParserJdbcDebug;
@@ -34,6 +48,7 @@ import de.mhus.lib.core.MCast;
 import de.mhus.lib.core.MDate;
 import de.mhus.lib.core.MString;
 import de.mhus.lib.core.cfg.CfgBoolean;
+import de.mhus.lib.core.cfg.CfgLong;
 import de.mhus.lib.core.concurrent.Lock;
 import de.mhus.lib.core.concurrent.ThreadLock;
 import de.mhus.lib.core.logging.ITracer;
@@ -44,6 +59,7 @@ import de.mhus.lib.sql.DbConnection;
 import de.mhus.lib.sql.DbPool;
 import de.mhus.lib.sql.DbResult;
 import de.mhus.lib.sql.DbStatement;
+import de.mhus.lib.sql.Dialect;
 import de.mhus.lib.sql.MetadataBundle;
 import de.mhus.lib.sql.SqlDialectCreateContext;
 import io.opentracing.Scope;
@@ -57,6 +73,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
 
     private static CfgBoolean CFG_DEBUG_PARSER =
             new CfgBoolean(DbManagerJdbc.class, "debugParser", false);
+    private static CfgLong CFG_BATCH_SIZE = new CfgLong(DbManagerJdbc.class, "batchSize", 500);
     public static final String DATABASE_VERSION = "db.version";
     public static final String DATABASE_CREATED = "db.created";
     public static final String DATABASE_MANAGER_VERSION = "db.manager.version";
@@ -139,14 +156,175 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
     @Override
     @SuppressWarnings("unchecked")
     public <T> DbCollection<T> getByQualification(AQuery<T> qualification) throws MException {
+        checkNotGrouped(qualification);
         qualification.doFinal();
-        return (DbCollection<T>)
-                getByQualification(
-                        null,
+        DbCollection<T> res = null;
+        if (qualification.getSelect() != null) {
+            if (!DbTrackedObject.class.isAssignableFrom(qualification.getType()))
+                throw new MException(
+                        RC.NOT_SUPPORTED,
+                        "projection needs a DbTrackedObject",
+                        qualification.getType());
+            Table c = getQualifiedTable(qualification.getType());
+            res =
+                    (DbCollection<T>)
+                            executeProjection(
+                                    c,
+                                    qualification.getType(),
+                                    getProjection(c, qualification.getSelect(), true),
+                                    qualification);
+        } else if (qualification.getFetchSize() > 0) {
+            reloadLock.waitWithException(MAX_LOCK);
+            String s =
+                    createSqlSelect(
+                            qualification.getType(), "*", toQualification(qualification));
+            log().t("getByQualification", qualification.getType(), s);
+            res =
+                    (DbCollection<T>)
+                            executeQuery(
+                                    null,
+                                    qualification.getType(),
+                                    null,
+                                    s,
+                                    qualification.getAttributes(),
+                                    qualification.getFetchSize());
+        } else {
+            res =
+                    (DbCollection<T>)
+                            getByQualification(
+                                    null,
+                                    qualification.getType(),
+                                    null,
+                                    toQualification(qualification),
+                                    qualification.getAttributes());
+        }
+        if (qualification.getFetch() != null) res.prefetch(qualification.getFetch());
+        return res;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> DbTupleCollection getTuplesByQualification(AQuery<T> qualification)
+            throws MException {
+        if (qualification.getSelect() == null)
+            throw new MException(RC.ERROR, "no attributes selected", qualification.getType());
+        checkNotGrouped(qualification);
+        qualification.doFinal();
+        Table c = getQualifiedTable(qualification.getType());
+        Field[] fields = getProjection(c, qualification.getSelect(), false);
+        DbCollection<Object> rows =
+                (DbCollection<Object>)
+                        executeProjection(c, qualification.getType(), fields, qualification);
+        return new DbTupleCollection(rows, fields);
+    }
+
+    @Override
+    public <T> DbAggregateCollection getAggregatesByQualification(AQuery<T> qualification)
+            throws MException {
+        if (qualification.getAggregates().isEmpty())
+            throw new MException(RC.ERROR, "no aggregates selected", qualification.getType());
+        reloadLock.waitWithException(MAX_LOCK);
+        qualification.doFinal();
+
+        // render the columns, group by attributes first, labeled by index
+        StringBuilder columns = new StringBuilder();
+        LinkedList<String> names = new LinkedList<>();
+        LinkedList<AAggregate.FUNCTION> functions = new LinkedList<>();
+        qualification.setContext(new SqlDialectCreateContext(this, columns));
+        Dialect dialect = getPool().getDialect();
+        for (AOperation operation : qualification.getOperations()) {
+            if (operation instanceof AGroupBy) {
+                AGroupBy groupBy = (AGroupBy) operation;
+                for (String attribute : groupBy.getAttributes()) {
+                    if (columns.length() > 0) columns.append(',');
+                    dialect.createQuery(
+                            new ADbAttribute(groupBy.getClazz(), attribute), qualification);
+                    columns.append(" AS c").append(names.size());
+                    names.add(attribute);
+                    functions.add(null);
+                }
+            }
+        }
+        for (AAggregate aggregate : qualification.getAggregates()) {
+            if (columns.length() > 0) columns.append(',');
+            dialect.createQuery(aggregate, qualification);
+            columns.append(" AS c").append(names.size());
+            names.add(aggregate.getAlias());
+            functions.add(aggregate.getFunction());
+        }
+
+        String query =
+                createSqlSelect(
                         qualification.getType(),
-                        null,
-                        toQualification(qualification),
-                        qualification.getAttributes());
+                        columns.toString(),
+                        toQualification(qualification));
+        Map<String, Object> attributes = qualification.getAttributes();
+        int fetchSize = qualification.getFetchSize();
+        log().t("aggregate", qualification.getType(), query, attributes);
+
+        DbConnection con = null;
+        try {
+            con = schema.getConnection(poolRo);
+        } catch (Throwable t) {
+            throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
+        }
+        Map<String, Object> map =
+                attributes == null
+                        ? nameMappingRO
+                        : new FallbackMap<String, Object>(attributes, nameMappingRO, true);
+        try {
+            DbStatement sth = con.createStatement(query);
+            sth.setFetchSize(fetchSize);
+            DbResult res = sth.executeQuery(map);
+            return new DbAggregateCollection(
+                    this,
+                    con,
+                    true,
+                    res,
+                    names.toArray(new String[names.size()]),
+                    functions.toArray(new AAggregate.FUNCTION[functions.size()]),
+                    fetchSize);
+        } catch (Throwable t) {
+            schema.closeConnection(pool, con);
+            throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
+        }
+    }
+
+    /** Resolve the selected attributes to persistent fields, optional with the primary keys. */
+    private Field[] getProjection(Table c, String[] select, boolean withPrimaryKeys)
+            throws MException {
+        LinkedHashSet<Field> out = new LinkedHashSet<>();
+        for (String name : select) {
+            Field f = c.getField(name);
+            if (f == null) f = c.getField(name.toLowerCase());
+            if (f == null || !f.isPersistent())
+                throw new MException(
+                        RC.ERROR, "attribute {1} not found in {2}", name, c.getRegistryName());
+            out.add(f);
+        }
+        if (withPrimaryKeys) out.addAll(c.getPrimaryKeys());
+        return out.toArray(new Field[out.size()]);
+    }
+
+    private DbCollection<?> executeProjection(
+            Table c, Class<?> type, Field[] fields, AQuery<?> qualification) throws MException {
+        StringBuilder columns = new StringBuilder();
+        for (Field f : fields) {
+            if (columns.length() > 0) columns.append(',');
+            columns.append(f.getMappedName());
+        }
+        String s =
+                createSqlSelect(
+                        qualification.getType(), columns.toString(), toQualification(qualification));
+        log().t("projection", qualification.getType(), s);
+        return executeQuery(
+                null,
+                type,
+                c.getRegistryName(),
+                s,
+                qualification.getAttributes(),
+                qualification.getFetchSize(),
+                new Projection(c, fields));
     }
 
     @Override
@@ -196,12 +374,11 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                 .append(getMappingName(clazz))
                 .append("$ ");
         if (MString.isSet(qualification)) {
-            String low =
-                    qualification
-                            .trim()
-                            .substring(0, Math.min(qualification.length(), 6))
-                            .toLowerCase();
-            if (low.startsWith("order ") || low.startsWith("limit ")) sql.append(qualification);
+            String low = qualification.trim().toLowerCase();
+            if (low.startsWith("order ")
+                    || low.startsWith("limit ")
+                    || low.startsWith("group ")
+                    || low.startsWith("having ")) sql.append(qualification);
             else sql.append("WHERE ").append(qualification);
         }
         String s = sql.toString();
@@ -228,6 +405,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
 
     @Override
     public <T> long getCountByQualification(AQuery<T> qualification) throws MException {
+        checkNotGrouped(qualification);
         qualification.doFinal();
         return getCountByQualification(
                 null,
@@ -292,6 +470,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
 
     @Override
     public <T> long getMaxByQualification(String field, AQuery<T> qualification) throws MException {
+        checkNotGrouped(qualification);
         qualification.doFinal();
         return getMaxByQualification(
                 null,
@@ -344,6 +523,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
     @Override
     public <T, R> List<R> getAttributeByQualification(
             String attribute, AQuery<? extends T> qualification) throws MException {
+        checkNotGrouped(qualification);
         qualification.doFinal();
         return getAttributeByQualification(
                 null,
@@ -413,6 +593,40 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             String query,
             Map<String, Object> attributes)
             throws MException {
+        return executeQuery(con, clazz, registryName, query, attributes, 0);
+    }
+
+    @Override
+    public <T> DbCollection<T> executeQuery(
+            DbConnection con,
+            T clazz,
+            String registryName,
+            String query,
+            Map<String, Object> attributes,
+            int fetchSize)
+            throws MException {
+        return executeQuery(con, clazz, registryName, query, attributes, fetchSize, null);
+    }
+
+    private static class Projection {
+        private Table table;
+        private Field[] fields;
+
+        private Projection(Table table, Field[] fields) {
+            this.table = table;
+            this.fields = fields;
+        }
+    }
+
+    private <T> DbCollection<T> executeQuery(
+            DbConnection con,
+            T clazz,
+            String registryName,
+            String query,
+            Map<String, Object> attributes,
+            int fetchSize,
+            Projection projection)
+            throws MException {
         reloadLock.waitWithException(MAX_LOCK);
 
         try (Scope scope =
@@ -426,7 +640,9 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                                 "query",
                                 query,
                                 "attributes",
-                                attributes)) {
+                                attributes,
+                                "fetchSize",
+                                fetchSize)) {
             log().t("query", clazz, registryName, query, attributes);
             Map<String, Object> map = null;
 
@@ -443,8 +659,11 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             else map = new FallbackMap<String, Object>(attributes, nameMappingRO, true);
             try {
                 DbStatement sth = con.createStatement(query);
+                sth.setFetchSize(fetchSize);
                 DbResult res = sth.executeQuery(map);
-                return new DbCollectionImpl<T>(this, con, myCon != null, registryName, clazz, res);
+                if (projection != null) projection.table.setProjection(res, projection.fields);
+                return new DbCollectionImpl<T>(this, con, myCon != null, registryName, clazz, res)
+                        .setFetchSize(fetchSize);
             } catch (Throwable t) {
                 throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
             }
@@ -568,6 +787,32 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         }
     }
 
+    @JmxManaged(descrition = "Statistics of the compiled query cache")
+    public String getQueryCacheInfo() {
+        return pool.getDialect().getQueryCacheInfo();
+    }
+
+    @JmxManaged(descrition = "Clear the compiled query cache")
+    public void clearQueryCache() {
+        pool.getDialect().clearQueryCache();
+    }
+
+    @JmxManaged(descrition = "Statistics of the object caches by table")
+    public String getObjectCacheInfo() {
+        StringBuilder out = new StringBuilder();
+        for (Table table : cIndex.values()) {
+            TableCache cache = table.getCache();
+            if (cache == null) continue;
+            out.append(table.getRegistryName()).append(": ").append(cache).append('\n');
+        }
+        return out.toString();
+    }
+
+    @JmxManaged(descrition = "Clear the object caches")
+    public void clearObjectCache() {
+        for (Table table : cIndex.values()) table.invalidateCache(null);
+    }
+
     /**
      * Returns the persistent schema properties if supported.
      *
@@ -654,6 +899,62 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         }
     }
 
+    @Override
+    public <T> List<T> getObjects(Class<T> clazz, Collection<Object[]> keys) throws MException {
+        return getObjects(null, clazz, keys);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getObjects(DbConnection con, Class<T> clazz, Collection<Object[]> keys)
+            throws MException {
+        return (List<T>) getObjects(con, getRegistryName(clazz), keys);
+    }
+
+    @Override
+    public List<Object> getObjects(
+            DbConnection con, String registryName, Collection<Object[]> keys) throws MException {
+        reloadLock.waitWithException(MAX_LOCK);
+        if (keys == null || keys.isEmpty()) return new ArrayList<>();
+
+        DbConnection myCon = null;
+        if (con == null) {
+            try {
+                myCon = schema.getConnection(poolRo);
+                con = myCon;
+            } catch (Throwable t) {
+                throw new MException(RC.STATUS.ERROR, t);
+            }
+        }
+
+        log().t("getObjects", registryName, keys.size());
+        Table c = cIndex.get(registryName);
+        if (c == null)
+            throw new MException(RC.ERROR, "class definition not found in schema", registryName);
+
+        try {
+            List<Object> out = c.getObjects(con, new ArrayList<>(keys), getBatchSize());
+            for (Object obj : out) if (obj != null) schema.doPostLoad(c, obj, con, this);
+            return out;
+        } catch (Throwable t) {
+            throw new MException(RC.STATUS.ERROR, registryName, t);
+        } finally {
+
+            try {
+                if (myCon != null) {
+                    try {
+                        schema.commitConnection(pool, myCon);
+                    } catch (Throwable t) {
+                        throw new MException(RC.STATUS.ERROR, t);
+                    }
+                    schema.closeConnection(pool, myCon);
+                }
+            } catch (Throwable t) {
+                log().w(t);
+            }
+        }
+    }
+
     //
 
     @Override
@@ -851,8 +1152,9 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
     }
 
     /**
-     * Check the object date against the data in the database. If the data differs it will return
-     * true.
+     * Check the object data against the data in the database. If the data differs it will return
+     * true. Tracked objects (DbTrackedObject) are compared with the snapshot taken while loading
+     * or saving the object, the database is not accessed.
      *
      * @param con
      * @param registryName
@@ -865,16 +1167,6 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             throws MException {
         reloadLock.waitWithException(MAX_LOCK);
 
-        DbConnection myCon = null;
-        if (con == null) {
-            try {
-                myCon = schema.getConnection(poolRo);
-                con = myCon;
-            } catch (Throwable t) {
-                throw new MException(RC.STATUS.ERROR, t);
-            }
-        }
-
         if (registryName == null) {
             Class<?> clazz = schema.findClassForObject(object, this);
             if (clazz == null)
@@ -891,6 +1183,25 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         if (c == null)
             throw new MException(RC.ERROR, "class definition not found in schema", registryName);
 
+        // tracked objects are checked without database access
+        if (c.isTracked(object)) {
+            try {
+                return c.objectChanged(con, object, null);
+            } catch (Throwable t) {
+                throw new MException(RC.STATUS.ERROR, registryName, t);
+            }
+        }
+
+        DbConnection myCon = null;
+        if (con == null) {
+            try {
+                myCon = schema.getConnection(poolRo);
+                con = myCon;
+            } catch (Throwable t) {
+                throw new MException(RC.STATUS.ERROR, t);
+            }
+        }
+
         boolean ret = false;
         LinkedList<Object> keys = new LinkedList<Object>();
         try {
@@ -1374,6 +1685,288 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         }
     }
 
+    @Override
+    public <T> int updateByQualification(AQuery<T> qualification, Map<String, Object> values)
+            throws MException {
+        return updateByQualification(null, qualification, values);
+    }
+
+    @Override
+    public <T> int updateByQualification(
+            DbConnection con, AQuery<T> qualification, Map<String, Object> values)
+            throws MException {
+        if (values == null || values.isEmpty())
+            throw new MException(RC.ERROR, "no values to update");
+        Table c = getQualifiedTable(qualification);
+
+        HashMap<String, Object> attributes = new HashMap<>();
+        StringBuilder sql = new StringBuilder("UPDATE $db.");
+        sql.append(getMappingName(qualification.getType())).append("$ SET ");
+        int nr = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Field f = c.getField(entry.getKey());
+            if (f == null) f = c.getField(entry.getKey().toLowerCase());
+            if (f == null
+                    || !f.isPersistent()
+                    || f.isReadOnly()
+                    || c.getPrimaryKeys().contains(f))
+                throw new MException(
+                        RC.ERROR, "attribute {1} can't be updated", entry.getKey(), c.getName());
+            try {
+                attributes.put("_set" + nr, f.toTarget(entry.getValue()));
+            } catch (Exception e) {
+                throw new MException(RC.STATUS.ERROR, entry.getKey(), e);
+            }
+            sql.append(nr > 0 ? "," : "").append(f.getMappedName()).append("=$_set" + nr + "$");
+            nr++;
+        }
+
+        return executeByQualification(
+                con,
+                c,
+                qualification,
+                sql,
+                attributes,
+                "update",
+                (myCon, f) -> f.preUpdateByQualification(myCon, qualification, values));
+    }
+
+    @Override
+    public <T> int deleteByQualification(AQuery<T> qualification) throws MException {
+        return deleteByQualification(null, qualification);
+    }
+
+    @Override
+    public <T> int deleteByQualification(DbConnection con, AQuery<T> qualification)
+            throws MException {
+        Table c = getQualifiedTable(qualification);
+        StringBuilder sql = new StringBuilder("DELETE FROM $db.");
+        sql.append(getMappingName(qualification.getType())).append("$");
+        return executeByQualification(
+                con,
+                c,
+                qualification,
+                sql,
+                new HashMap<>(),
+                "delete",
+                (myCon, f) -> f.preDeleteByQualification(myCon, qualification));
+    }
+
+    /** Group by and having are only valid for getAggregatesByQualification(). */
+    private void checkNotGrouped(AQuery<?> qualification) throws MException {
+        for (AOperation operation : qualification.getOperations())
+            if (operation instanceof AGroupBy || operation instanceof AHaving)
+                throw new MException(
+                        RC.NOT_SUPPORTED,
+                        "group by and having are only supported for aggregates",
+                        qualification.getType());
+    }
+
+    private Table getQualifiedTable(AQuery<?> qualification) throws MException {
+        reloadLock.waitWithException(MAX_LOCK);
+        checkNotGrouped(qualification);
+        for (AOperation operation : qualification.getOperations())
+            if (operation instanceof AOrder
+                    || operation instanceof ALimit
+                    || operation instanceof AAfter)
+                throw new MException(
+                        RC.NOT_SUPPORTED,
+                        "order and limit are not supported for set based changes",
+                        qualification.getType());
+        return getQualifiedTable(qualification.getType());
+    }
+
+    private Table getQualifiedTable(Class<?> type) throws MException {
+        reloadLock.waitWithException(MAX_LOCK);
+        String registryName = getRegistryName(type);
+        Table c = cIndex.get(registryName);
+        if (c == null)
+            throw new MException(RC.ERROR, "class definition not found in schema", registryName);
+        return c;
+    }
+
+    private interface QualifiedFeatureCheck {
+        void check(DbConnection con, Feature feature) throws Exception;
+    }
+
+    /** Append the WHERE part of the query to the statement and execute it. */
+    private int executeByQualification(
+            DbConnection con,
+            Table c,
+            AQuery<?> qualification,
+            StringBuilder sql,
+            HashMap<String, Object> attributes,
+            String action,
+            QualifiedFeatureCheck check)
+            throws MException {
+        qualification.doFinal();
+        String where = toQualification(qualification);
+        if (MString.isSet(where)) sql.append(" WHERE ").append(where);
+        attributes.putAll(qualification.getAttributes());
+        log().t(action, "byQualification", c.getRegistryName(), sql);
+
+        DbConnection myCon = null;
+        if (con == null) {
+            try {
+                myCon = schema.getConnection(pool);
+                con = myCon;
+            } catch (Throwable t) {
+                throw new MException(RC.STATUS.ERROR, t);
+            }
+        }
+
+        DbStatement sth = null;
+        try {
+            for (Feature f : c.getFeatures()) check.check(con, f);
+            sth = con.createStatement(sql.toString());
+            int cnt =
+                    sth.executeUpdate(
+                            new FallbackMap<String, Object>(attributes, nameMappingRO, true));
+            c.invalidateCache(con, null);
+            return cnt;
+        } catch (Throwable t) {
+            throw new MException(RC.STATUS.ERROR, action, c.getRegistryName(), t);
+        } finally {
+            if (sth != null) sth.close();
+            try {
+                if (myCon != null) {
+                    try {
+                        schema.commitConnection(pool, myCon);
+                    } catch (Throwable t) {
+                        throw new MException(RC.STATUS.ERROR, t);
+                    }
+                    schema.closeConnection(pool, myCon);
+                }
+            } catch (Throwable t) {
+                log().w(t);
+            }
+        }
+    }
+
+    @Override
+    public void createObjects(Collection<?> objects) throws MException {
+        createObjects(null, objects);
+    }
+
+    @Override
+    public void createObjects(DbConnection con, Collection<?> objects) throws MException {
+        doBatch(
+                con,
+                objects,
+                "create",
+                (myCon, c, list) -> {
+                    for (Object object : list) {
+                        c.prepareCreate(object);
+                        schema.doPreCreate(c, object, myCon, this);
+                    }
+                    c.createObjects(myCon, list, getBatchSize());
+                    for (Object object : list) schema.doPostCreate(c, object, myCon, this);
+                });
+    }
+
+    @Override
+    public void saveObjects(Collection<?> objects) throws MException {
+        saveObjects(null, objects);
+    }
+
+    @Override
+    public void saveObjects(DbConnection con, Collection<?> objects) throws MException {
+        doBatch(
+                con,
+                objects,
+                "save",
+                (myCon, c, list) -> {
+                    for (Object object : list) schema.doPreSave(c, object, myCon, this);
+                    c.saveObjects(myCon, list, getBatchSize());
+                });
+    }
+
+    @Override
+    public void deleteObjects(Collection<?> objects) throws MException {
+        deleteObjects(null, objects);
+    }
+
+    @Override
+    public void deleteObjects(DbConnection con, Collection<?> objects) throws MException {
+        doBatch(
+                con,
+                objects,
+                "delete",
+                (myCon, c, list) -> {
+                    for (Object object : list) schema.doPreDelete(c, object, myCon, this);
+                    c.deleteObjects(myCon, list, getBatchSize());
+                    for (Object object : list) schema.doPostDelete(c, object, myCon, this);
+                });
+    }
+
+    protected int getBatchSize() {
+        return (int) Math.max(1, CFG_BATCH_SIZE.value());
+    }
+
+    private interface BatchOperation {
+        void execute(DbConnection con, Table table, List<Object> objects) throws Exception;
+    }
+
+    /**
+     * Group the objects by table and execute the operation for each group using one connection and
+     * one commit.
+     */
+    private void doBatch(
+            DbConnection con, Collection<?> objects, String action, BatchOperation operation)
+            throws MException {
+        if (objects == null || objects.isEmpty()) return;
+        reloadLock.waitWithException(MAX_LOCK);
+
+        // group by table, keep the order of the objects
+        LinkedHashMap<Table, List<Object>> groups = new LinkedHashMap<>();
+        for (Object object : objects) {
+            Class<?> clazz = schema.findClassForObject(object, this);
+            if (clazz == null)
+                throw new MException(
+                        RC.ERROR,
+                        "class definition not found for object",
+                        object.getClass().getCanonicalName());
+            String registryName = getRegistryName(clazz);
+            Table c = cIndex.get(registryName);
+            if (c == null)
+                throw new MException(
+                        RC.ERROR, "class definition not found in schema", registryName);
+            groups.computeIfAbsent(c, k -> new ArrayList<>()).add(object);
+        }
+
+        DbConnection myCon = null;
+        if (con == null) {
+            try {
+                myCon = schema.getConnection(pool);
+                con = myCon;
+            } catch (Throwable t) {
+                throw new MException(RC.STATUS.ERROR, t);
+            }
+        }
+
+        String registryName = null;
+        try {
+            for (Map.Entry<Table, List<Object>> entry : groups.entrySet()) {
+                registryName = entry.getKey().getRegistryName();
+                log().t(action, "batch", registryName, entry.getValue().size());
+                operation.execute(con, entry.getKey(), entry.getValue());
+            }
+            // commit only if all chunks are written
+            if (myCon != null) schema.commitConnection(pool, myCon);
+        } catch (Throwable t) {
+            if (myCon != null) {
+                try {
+                    myCon.rollback();
+                } catch (Throwable t2) {
+                    log().w(t2);
+                }
+            }
+            throw new MException(RC.STATUS.ERROR, registryName, t);
+        } finally {
+            if (myCon != null) schema.closeConnection(pool, myCon);
+        }
+    }
+
     @Override
     public boolean isConnected() {
         return nameMapping != null;
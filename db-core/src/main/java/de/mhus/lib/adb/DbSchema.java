@@ -30,6 +30,7 @@ import de.mhus.lib.adb.model.FieldPersistent;
 import de.mhus.lib.adb.model.FieldVirtual;
 import de.mhus.lib.adb.model.Table;
 import de.mhus.lib.adb.model.TableAnnotations;
+import de.mhus.lib.adb.model.TableCache;
 import de.mhus.lib.adb.model.TableDynamic;
 import de.mhus.lib.adb.transaction.LockStrategy;
 import de.mhus.lib.adb.util.AdbUtil;
@@ -352,6 +353,24 @@ public abstract class DbSchema extends MObject implements PojoModelFactory {
         return table;
     }
 
+    /**
+     * Create the object cache for the table or return null if the table should not be cached. By
+     * default the cache is configured by the table attributes 'cacheSize', 'cacheTtl' (ms, default
+     * one minute) and 'cacheMemory' (bytes, 0 for no limit), e.g. in the DbTable annotation.
+     * Overwrite it to cache reference data tables.
+     *
+     * @param table The initialized table
+     * @return The cache or null
+     */
+    public TableCache createTableCache(Table table) {
+        INode attr = table.getAttributes();
+        if (attr == null) return null;
+        int size = attr.getInt("cacheSize", 0);
+        if (size <= 0) return null;
+        return new TableCache(
+                size, attr.getLong("cacheTtl", 60000), attr.getLong("cacheMemory", 0));
+    }
+
     public Feature createFeature(DbManager manager, Table table, String name) {
 
         try {
@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb;
+
+/**
+ * Objects implementing this interface hold a snapshot of the persistent values of the last load
+ * or save. The table uses it to find the changed attributes without a database round trip and to
+ * update only the changed columns. The snapshot is managed by the table and should not be touched
+ * by the object.
+ *
+ * @author mikehummel
+ */
+public interface DbTrackedObject {
+
+    Object getAdbSnapshot();
+
+    void setAdbSnapshot(Object snapshot);
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb;
+
+import java.util.Iterator;
+
+import de.mhus.lib.adb.model.Field;
+import de.mhus.lib.core.util.Table;
+import de.mhus.lib.errors.MException;
+
+/**
+ * Collection of projection results. Every row is returned as array of the selected attribute
+ * values in the order of the selection. The rows are read with the read plan of the table
+ * restricted to the selected fields.
+ *
+ * @author mikehummel
+ */
+public class DbTupleCollection implements DbCollection<Object[]> {
+
+    private DbCollection<Object> rows;
+    private Field[] fields;
+    private Object[] current;
+
+    public DbTupleCollection(DbCollection<Object> rows, Field[] fields) {
+        this.rows = rows;
+        this.fields = fields;
+    }
+
+    @Override
+    public Iterator<Object[]> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    @Override
+    public Object[] next() {
+        Object row = rows.next();
+        Object[] out = new Object[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++) out[i] = fields[i].getRaw(row);
+        } catch (Exception e) {
+            close();
+            throw new RuntimeException(e);
+        }
+        current = out;
+        return out;
+    }
+
+    @Override
+    public boolean skip(int cnt) {
+        return rows.skip(cnt);
+    }
+
+    @Override
+    public void close() {
+        rows.close();
+    }
+
+    @Override
+    public DbCollection<Object[]> setRecycle(boolean on) {
+        return this;
+    }
+
+    @Override
+    public boolean isRecycle() {
+        return false;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return rows.getFetchSize();
+    }
+
+    @Override
+    public Object[] current() throws MException {
+        return current;
+    }
+
+    /**
+     * Return the names of the attributes in the order of the tuple values.
+     *
+     * @return The attribute names
+     */
+    public String[] getAttributeNames() {
+        String[] out = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) out[i] = fields[i].getName();
+        return out;
+    }
+
+    @Override
+    public Table toTableAndClose(int maxSize) {
+        Table out = new Table();
+        for (Field f : fields) out.addHeader(f.getName(), f.getType().getCanonicalName());
+        try {
+            while (hasNext()) {
+                out.addRow(next());
+                if (maxSize > 0 && out.getRowSize() >= maxSize) break;
+            }
+        } finally {
+            close();
+        }
+        return out;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.io.InputStream;
+
+import de.mhus.lib.core.MActivator;
+
+/**
+ * Encoding of BLOB field values. The codec can be selected per field with the attribute 'codec',
+ * e.g. <code>@DbPersistent(type = DbType.TYPE.BLOB, more = "codec=deflate")</code>. Built in
+ * codecs are 'serialize' (default, java serialization), 'raw' (byte[] and ByteBuffer pass
+ * through), 'deflate' and 'raw-deflate' (compressed variants). Other values are loaded as class
+ * names.
+ */
+public interface BlobCodec {
+
+    String SERIALIZE = "serialize";
+    String RAW = "raw";
+    String DEFLATE = "deflate";
+    String RAW_DEFLATE = "raw-deflate";
+
+    /**
+     * Return a stream with the encoded value. The stream is passed to the statement and should not
+     * copy the data again.
+     *
+     * @param value The value, not null
+     * @return The encoded stream
+     * @throws Exception
+     */
+    InputStream encode(Object value) throws Exception;
+
+    /**
+     * Decode the value from the stream.
+     *
+     * @param is The stream from the database, not null
+     * @param type The type of the field
+     * @param activator Activator to load classes
+     * @return The value
+     * @throws Exception
+     */
+    Object decode(InputStream is, Class<?> type, MActivator activator) throws Exception;
+
+    /**
+     * Return the codec for the name.
+     *
+     * @param name The name of a built in codec or a class name
+     * @param activator Activator to create custom codecs
+     * @return The codec
+     * @throws Exception
+     */
+    static BlobCodec find(String name, MActivator activator) throws Exception {
+        if (name == null || SERIALIZE.equals(name)) return SerializedBlobCodec.INSTANCE;
+        if (RAW.equals(name)) return RawBlobCodec.INSTANCE;
+        if (DEFLATE.equals(name)) return new DeflateBlobCodec(SerializedBlobCodec.INSTANCE);
+        if (RAW_DEFLATE.equals(name)) return new DeflateBlobCodec(RawBlobCodec.INSTANCE);
+        return (BlobCodec) activator.createObject(name);
+    }
+}
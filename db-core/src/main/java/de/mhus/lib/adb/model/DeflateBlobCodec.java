@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.InflaterInputStream;
+
+import de.mhus.lib.core.MActivator;
+
+/**
+ * Compress the output of another codec with deflate. Values written with java serialization
+ * before the codec was switched are detected by the stream magic and decoded uncompressed.
+ */
+public class DeflateBlobCodec implements BlobCodec {
+
+    private BlobCodec codec;
+
+    public DeflateBlobCodec(BlobCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public InputStream encode(Object value) throws Exception {
+        return new DeflaterInputStream(codec.encode(value));
+    }
+
+    @Override
+    public Object decode(InputStream is, Class<?> type, MActivator activator) throws Exception {
+        BufferedInputStream bis = new BufferedInputStream(is);
+        bis.mark(2);
+        int b1 = bis.read();
+        int b2 = bis.read();
+        bis.reset();
+        // not compressed java serialization
+        if (b1 == 0xAC && b2 == 0xED)
+            return SerializedBlobCodec.INSTANCE.decode(bis, type, activator);
+        return codec.decode(new InflaterInputStream(bis), type, activator);
+    }
+}
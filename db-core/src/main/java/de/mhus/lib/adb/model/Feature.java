@@ -15,7 +15,10 @@
  */
 package de.mhus.lib.adb.model;
 
+import java.util.Map;
+
 import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.query.AQuery;
 import de.mhus.lib.core.util.MObject;
 import de.mhus.lib.errors.MException;
 import de.mhus.lib.sql.DbConnection;
@@ -38,6 +41,13 @@ public abstract class Feature extends MObject {
 
     public void preSaveObject(DbConnection con, Object object) throws Exception {}
 
+    /**
+     * Called before an object is created for a row.
+     *
+     * @param con The connection
+     * @param ret The result or null if the object is served by the object cache
+     * @throws Exception
+     */
     public void preGetObject(DbConnection con, DbResult ret) throws Exception {}
 
     public void postGetObject(DbConnection con, Object obj) throws Exception {}
@@ -46,6 +56,11 @@ public abstract class Feature extends MObject {
 
     public void deleteObject(DbConnection con, Object object) throws Exception {}
 
+    public void preUpdateByQualification(
+            DbConnection con, AQuery<?> query, Map<String, Object> values) throws Exception {}
+
+    public void preDeleteByQualification(DbConnection con, AQuery<?> query) throws Exception {}
+
     public Object getValue(Object obj, Field field, Object val) throws Exception {
         return val;
     }
@@ -15,7 +15,10 @@
  */
 package de.mhus.lib.adb.model;
 
+import java.util.Map;
+
 import de.mhus.lib.adb.DbAccessManager;
+import de.mhus.lib.adb.query.AQuery;
 import de.mhus.lib.sql.DbConnection;
 
 /**
@@ -62,6 +65,21 @@ public class FeatureAccessManager extends Feature {
             accessManager.hasAccess(manager, table, con, object, DbAccessManager.ACCESS.DELETE);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void preUpdateByQualification(
+            DbConnection con, AQuery<?> query, Map<String, Object> values) throws Exception {
+        if (accessManager != null)
+            accessManager.hasAccess(manager, table, con, query, DbAccessManager.ACCESS.UPDATE);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void preDeleteByQualification(DbConnection con, AQuery<?> query) throws Exception {
+        if (accessManager != null)
+            accessManager.hasAccess(manager, table, con, query, DbAccessManager.ACCESS.DELETE);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void postGetObject(DbConnection con, Object obj) throws Exception {
@@ -50,6 +50,9 @@ public abstract class Field extends MObject {
     protected PojoAttribute<Object> attribute;
     private LinkedList<AttributeFeature> features = new LinkedList<>();
     protected boolean readOnly = false;
+    private Object[] enumConstants;
+    private FieldAccessor accessor;
+    private boolean hasFeatures = true;
 
     public abstract void prepareCreate(Object obj) throws Exception;
 
@@ -57,13 +60,78 @@ public abstract class Field extends MObject {
 
     public abstract Object getFromTarget(Object obj) throws Exception;
 
+    /**
+     * Convert an attribute value into the representation stored in the database.
+     *
+     * @param value The attribute value
+     * @return The database value
+     * @throws Exception
+     */
+    public Object toTarget(Object value) throws Exception {
+        return value;
+    }
+
+    /**
+     * Return a copy of the attribute value which is independent of the object, e.g. the encoded
+     * data of a BLOB. Used to cache and compare the state of objects.
+     *
+     * @param value The value returned by getRaw()
+     * @return The state of the value
+     * @throws Exception
+     */
+    public Object toState(Object value) throws Exception {
+        return value;
+    }
+
+    /**
+     * Create a new attribute value from a state returned by toState().
+     *
+     * @param state The state
+     * @return The value to set with setRaw()
+     * @throws Exception
+     */
+    public Object fromState(Object state) throws Exception {
+        return state;
+    }
+
     public abstract void setToTarget(DbResult res, Object obj) throws Exception;
 
+    /**
+     * Set the value of the column to the object. The column index is resolved by the read plan of
+     * the table. It's -1 if the value must be read by name.
+     *
+     * @param res The result
+     * @param column The column index or -1
+     * @param obj The target object
+     * @throws Exception
+     */
+    public void setToTarget(DbResult res, int column, Object obj) throws Exception {
+        setToTarget(res, obj);
+    }
+
+    /**
+     * Set the value of the column to the object like setToTarget() and return the state of the
+     * loaded value, see toState(). The state is used as snapshot of tracked objects, so mutable
+     * values don't need to be encoded again after loading.
+     *
+     * @param res The result
+     * @param column The column index or -1
+     * @param obj The target object
+     * @return The state or null if the state must be created from the value
+     * @throws Exception
+     */
+    public Object loadToTarget(DbResult res, int column, Object obj) throws Exception {
+        setToTarget(res, column, obj);
+        return null;
+    }
+
     public abstract boolean changed(DbResult res, Object obj) throws Exception;
 
     public abstract void fillNameMapping(HashMap<String, Object> nameMapping);
 
     protected void init(String[] features) throws MException {
+        if (attribute != null && attribute.getType() != null && attribute.getType().isEnum())
+            enumConstants = attribute.getType().getEnumConstants();
         if (features != null) {
             for (String featureName : features) {
                 AttributeFeature f =
@@ -73,14 +141,24 @@ public abstract class Field extends MObject {
         }
     }
 
+    /**
+     * Prepare the direct access to the attribute. Called by the table after all fields and
+     * features are initialized.
+     */
+    protected void prepareAccess() {
+        hasFeatures = !features.isEmpty() || !table.getFeatures().isEmpty();
+        if (dynamicField == null) accessor = FieldAccessor.create(table.clazz, attribute);
+        log().t("access", name, accessor != null, hasFeatures);
+    }
+
     public void set(Object obj, Object value) throws Exception {
 
-        if (attribute.getType().isEnum()) {
+        if (enumConstants != null) {
             int index = -1;
             if (value == null) index = MCast.toint(defValue, -1);
             else if (value instanceof Number) index = ((Number) value).intValue();
 
-            Object[] values = attribute.getType().getEnumConstants();
+            Object[] values = enumConstants;
             if (value instanceof String) {
                 for (int i = 0; i < values.length; i++)
                     if (values[i].toString().equals(value)) index = i;
@@ -94,23 +172,75 @@ public abstract class Field extends MObject {
             value = values[index];
         }
 
-        for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
+        if (hasFeatures) {
+            for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
+
+            for (AttributeFeature f : features) value = f.set(obj, value);
+        }
+
+        if (dynamicField != null && obj instanceof DbDynamic)
+            ((DbDynamic) obj).setValue(dynamicField, value);
+        else if (accessor == null || !setDirect(obj, value)) attribute.set(obj, value, false);
+    }
+
+    private boolean setDirect(Object obj, Object value) throws Exception {
+        try {
+            return accessor.set(obj, value);
+        } catch (Exception e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new MException(RC.ERROR, "can't set {1}", name, t);
+        }
+    }
+
+    private Object getDirect(Object obj) throws Exception {
+        try {
+            return accessor.get(obj);
+        } catch (ClassCastException e) {
+            // not an instance of the table class
+            return attribute.get(obj);
+        } catch (Exception e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new MException(RC.ERROR, "can't get {1}", name, t);
+        }
+    }
 
-        for (AttributeFeature f : features) value = f.set(obj, value);
+    /**
+     * Return the value of the attribute without features, used to copy the object state.
+     *
+     * @param obj The object
+     * @return The stored value
+     * @throws Exception
+     */
+    public Object getRaw(Object obj) throws Exception {
+        if (dynamicField != null && obj instanceof DbDynamic)
+            return ((DbDynamic) obj).getValue(dynamicField);
+        if (accessor != null) return getDirect(obj);
+        return attribute.get(obj);
+    }
 
+    /**
+     * Set a value returned by getRaw() without features.
+     *
+     * @param obj The object
+     * @param value The value
+     * @throws Exception
+     */
+    public void setRaw(Object obj, Object value) throws Exception {
         if (dynamicField != null && obj instanceof DbDynamic)
             ((DbDynamic) obj).setValue(dynamicField, value);
-        else attribute.set(obj, value, false);
+        else if (accessor == null || !setDirect(obj, value)) attribute.set(obj, value, false);
     }
 
     public boolean different(Object obj, Object value) throws Exception {
 
-        if (attribute.getType().isEnum()) {
+        if (enumConstants != null) {
             int index = -1;
             if (value == null) index = MCast.toint(defValue, -1);
             else if (value instanceof Number) index = ((Number) value).intValue();
 
-            Object[] values = attribute.getType().getEnumConstants();
+            Object[] values = enumConstants;
             if (index < 0 || index >= values.length)
                 throw new MException(
                         RC.ERROR, "index {1} not found in enum", attribute.getType().getName());
@@ -126,9 +256,11 @@ public abstract class Field extends MObject {
             return !MSystem.equals(String.valueOf(value), String.valueOf(objValue));
         }
 
-        for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
+        if (hasFeatures) {
+            for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
 
-        for (AttributeFeature f : features) value = f.set(obj, value);
+            for (AttributeFeature f : features) value = f.set(obj, value);
+        }
 
         Object objValue = null;
 
@@ -149,8 +281,11 @@ public abstract class Field extends MObject {
         Object val = null;
         if (dynamicField != null && obj instanceof DbDynamic)
             val = ((DbDynamic) obj).getValue(dynamicField);
+        else if (accessor != null) val = getDirect(obj);
         else val = attribute.get(obj);
 
+        if (!hasFeatures) return val;
+
         for (AttributeFeature f : features) val = f.get(obj, val);
 
         for (Feature f : table.getFeatures()) val = f.getValue(obj, this, val);
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import de.mhus.lib.core.logging.MLogUtil;
+import de.mhus.lib.core.pojo.PojoAttribute;
+
+/**
+ * Direct access to the attribute of a pojo using method handles. The handles are resolved once
+ * from the getter/setter methods or the java field of the attribute. Values not matching the
+ * declared type are rejected and must be set using the PojoAttribute.
+ */
+public class FieldAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final Class<?> type;
+
+    private FieldAccessor(MethodHandle getter, MethodHandle setter, Class<?> type) {
+        this.getter = getter;
+        this.setter = setter;
+        this.type = type;
+    }
+
+    /**
+     * Resolve the accessor for the attribute of the class.
+     *
+     * @param clazz The pojo class
+     * @param attribute The attribute
+     * @return The accessor or null if getter or setter can't be resolved
+     */
+    public static FieldAccessor create(Class<?> clazz, PojoAttribute<?> attribute) {
+        if (clazz == null || attribute == null || attribute.getType() == null) return null;
+        Class<?> type = attribute.getType();
+        String name = normalize(attribute.getName());
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+        try {
+            for (Method m : clazz.getMethods()) {
+                if (Modifier.isStatic(m.getModifiers())) continue;
+                String mName = normalize(m.getName());
+                if (getter == null
+                        && m.getParameterCount() == 0
+                        && m.getReturnType() == type
+                        && (mName.equals("get" + name) || mName.equals("is" + name)))
+                    getter = lookup.unreflect(m);
+                else if (setter == null
+                        && m.getParameterCount() == 1
+                        && m.getParameterTypes()[0] == type
+                        && mName.equals("set" + name)) setter = lookup.unreflect(m);
+            }
+            if (getter == null || setter == null) {
+                java.lang.reflect.Field field = findField(clazz, name, type);
+                if (field != null) {
+                    field.setAccessible(true);
+                    if (getter == null) getter = lookup.unreflectGetter(field);
+                    if (setter == null && !Modifier.isFinal(field.getModifiers()))
+                        setter = lookup.unreflectSetter(field);
+                }
+            }
+        } catch (Throwable t) {
+            MLogUtil.log().d("can't create accessor", clazz, attribute.getName(), t);
+            return null;
+        }
+        if (getter == null || setter == null) return null;
+        return new FieldAccessor(getter.asType(GETTER_TYPE), setter.asType(SETTER_TYPE), type);
+    }
+
+    private static java.lang.reflect.Field findField(Class<?> clazz, String name, Class<?> type) {
+        while (clazz != null && clazz != Object.class) {
+            for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())
+                        && field.getType() == type
+                        && normalize(field.getName()).equals(name)) return field;
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    public Object get(Object pojo) throws Throwable {
+        return getter.invokeExact(pojo);
+    }
+
+    /**
+     * Set the value if it matches the type of the attribute.
+     *
+     * @param pojo
+     * @param value
+     * @return false if the value was not set
+     * @throws Throwable
+     */
+    public boolean set(Object pojo, Object value) throws Throwable {
+        if (type.isPrimitive()) {
+            if (value == null || !isWrapperOf(type, value.getClass())) return false;
+        } else if (value != null && !type.isInstance(value)) return false;
+        try {
+            setter.invokeExact(pojo, value);
+        } catch (ClassCastException | WrongMethodTypeException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isWrapperOf(Class<?> primitive, Class<?> wrapper) {
+        return primitive == int.class && wrapper == Integer.class
+                || primitive == long.class && wrapper == Long.class
+                || primitive == boolean.class && wrapper == Boolean.class
+                || primitive == double.class && wrapper == Double.class
+                || primitive == float.class && wrapper == Float.class
+                || primitive == short.class && wrapper == Short.class
+                || primitive == byte.class && wrapper == Byte.class
+                || primitive == char.class && wrapper == Character.class;
+    }
+}
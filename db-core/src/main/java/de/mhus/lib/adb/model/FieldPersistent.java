@@ -17,9 +17,10 @@ package de.mhus.lib.adb.model;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.UUID;
@@ -27,9 +28,9 @@ import java.util.UUID;
 import de.mhus.lib.adb.DbDynamic;
 import de.mhus.lib.adb.DbManager;
 import de.mhus.lib.annotations.adb.DbType;
+import de.mhus.lib.basics.RC;
 import de.mhus.lib.core.MDate;
 import de.mhus.lib.core.MString;
-import de.mhus.lib.core.io.MObjectInputStream;
 import de.mhus.lib.core.node.INode;
 import de.mhus.lib.core.pojo.PojoAttribute;
 import de.mhus.lib.core.util.MUri;
@@ -46,6 +47,9 @@ import de.mhus.lib.sql.DbResult;
 public class FieldPersistent extends Field {
 
     private String autoPrefix;
+    private DbType.TYPE dbType;
+    private BlobCodec codec;
+    private boolean lazy;
 
     /**
      * Constructor for FieldPersistent.
@@ -107,6 +111,11 @@ public class FieldPersistent extends Field {
                 attr.getExtracted("type", table.getDbRetType(attribute.getType())).toUpperCase();
         //		if (this.retDbType.equals("DATE"))
         //			this.retDbType = "DATETIME";
+        try {
+            this.dbType = DbType.TYPE.valueOf(retDbType);
+        } catch (IllegalArgumentException e) {
+            this.dbType = null;
+        }
         this.autoId = attr.getBoolean("auto_id", false);
         this.autoPrefix = attr.getString("auto_prefix", null);
         size = attr.getInt("size", size);
@@ -115,6 +124,14 @@ public class FieldPersistent extends Field {
         description = attr.getExtracted("description");
         hints = MUri.explodeArray(attr.getString("hints", null));
         if (isPrimary) nullable = false;
+        if (dbType == DbType.TYPE.BLOB) {
+            try {
+                codec = BlobCodec.find(attr.getString("codec", null), manager.getActivator());
+            } catch (Exception e) {
+                throw new MException(RC.ERROR, "blob codec {1} not found", nameOrg, e);
+            }
+            lazy = LazyBlob.class.isAssignableFrom(attribute.getType());
+        }
 
         super.init(features);
     }
@@ -169,107 +186,212 @@ public class FieldPersistent extends Field {
     /** {@inheritDoc} */
     @Override
     public Object getFromTarget(Object obj) throws Exception {
-        Object out = get(obj);
-        if (retDbType.equals(DbType.TYPE.BLOB.name())) {
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(os);
-            oos.writeObject(out);
-            ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
-            return is;
+        return toTarget(get(obj));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object toTarget(Object value) throws Exception {
+        if (dbType == DbType.TYPE.BLOB) {
+            if (value == null) return null;
+            if (value instanceof LazyBlob) return ((LazyBlob<?>) value).encode(codec);
+            return codec.encode(value);
         }
-        return out;
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>BLOB values are mutable, the state is the encoded data.
+     */
+    @Override
+    public Object toState(Object value) throws Exception {
+        if (dbType != DbType.TYPE.BLOB || value == null) return value;
+        InputStream is = (InputStream) toTarget(value);
+        return is == null ? null : readBytes(is);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object fromState(Object state) throws Exception {
+        if (dbType != DbType.TYPE.BLOB || state == null) return state;
+        byte[] data = ((byte[]) state).clone();
+        if (lazy) return new LazyBlob<>(data, codec, manager.getActivator());
+        return codec.decode(
+                new ByteArrayInputStream(data), attribute.getType(), manager.getActivator());
     }
 
     /** {@inheritDoc} */
     @Override
     public void setToTarget(DbResult res, Object obj) throws Exception {
+        setToTarget(res, -1, obj);
+    }
 
-        if (retDbType.equals(DbType.TYPE.INT.name())) set(obj, res.getInt(name));
-        else if (retDbType.equals(DbType.TYPE.LONG.name())) set(obj, res.getLong(name));
-        else if (retDbType.equals(DbType.TYPE.BOOL.name())) set(obj, res.getBoolean(name));
-        else if (retDbType.equals(DbType.TYPE.DATETIME.name())) {
-            try {
-                if (attribute.getType() == Date.class) set(obj, res.getTimestamp(name));
-                else if (attribute.getType() == java.sql.Date.class) {
-                    Timestamp time = res.getTimestamp(name);
-                    set(obj, time == null ? null : new java.sql.Date(time.getTime()));
-                } else set(obj, new MDate(res.getTimestamp(name)).toCalendar());
-            } catch (java.sql.SQLException sqle) {
-                // Caused by: java.sql.SQLException: Value '0000-00-00 00:00:00' can not be
-                // represented as java.sql.Timestamp
-                set(obj, null);
-            }
-        } else if (retDbType.equals(DbType.TYPE.DOUBLE.name())) set(obj, res.getDouble(name));
-        else if (retDbType.equals(DbType.TYPE.BIGDECIMAL.name())) set(obj, res.getBigDecimal(name));
-        else if (retDbType.equals(DbType.TYPE.FLOAT.name())) set(obj, res.getFloat(name));
-        else if (retDbType.equals(DbType.TYPE.STRING.name())) set(obj, res.getString(name));
-        else if (retDbType.equals(DbType.TYPE.UUID.name())) {
-            String o = res.getString(name);
-            if (o == null) set(obj, (UUID) null);
-            else
+    /** {@inheritDoc} */
+    @Override
+    public void setToTarget(DbResult res, int column, Object obj) throws Exception {
+
+        if (dbType == null) {
+            log().d("can't set to target ", name, retDbType);
+            return;
+        }
+        switch (dbType) {
+            case INT:
+                set(obj, column > 0 ? res.getInt(column) : res.getInt(name));
+                break;
+            case LONG:
+                set(obj, column > 0 ? res.getLong(column) : res.getLong(name));
+                break;
+            case BOOL:
+                set(obj, column > 0 ? res.getBoolean(column) : res.getBoolean(name));
+                break;
+            case DATETIME:
                 try {
-                    set(obj, UUID.fromString(o));
-                } catch (Throwable t) {
-                    log().d("uuid", name, o, t);
-                    set(obj, (UUID) null);
+                    Timestamp time = column > 0 ? res.getTimestamp(column) : res.getTimestamp(name);
+                    if (attribute.getType() == Date.class) set(obj, time);
+                    else if (attribute.getType() == java.sql.Date.class)
+                        set(obj, time == null ? null : new java.sql.Date(time.getTime()));
+                    else set(obj, new MDate(time).toCalendar());
+                } catch (java.sql.SQLException sqle) {
+                    // Caused by: java.sql.SQLException: Value '0000-00-00 00:00:00' can not be
+                    // represented as java.sql.Timestamp
+                    set(obj, null);
+                }
+                break;
+            case DOUBLE:
+                set(obj, column > 0 ? res.getDouble(column) : res.getDouble(name));
+                break;
+            case BIGDECIMAL:
+                set(obj, column > 0 ? res.getBigDecimal(column) : res.getBigDecimal(name));
+                break;
+            case FLOAT:
+                set(obj, column > 0 ? res.getFloat(column) : res.getFloat(name));
+                break;
+            case STRING:
+                set(obj, column > 0 ? res.getString(column) : res.getString(name));
+                break;
+            case UUID:
+                {
+                    String o = column > 0 ? res.getString(column) : res.getString(name);
+                    if (o == null) set(obj, (UUID) null);
+                    else
+                        try {
+                            set(obj, UUID.fromString(o));
+                        } catch (Throwable t) {
+                            log().d("uuid", name, o, t);
+                            set(obj, (UUID) null);
+                        }
+                }
+                break;
+            case BLOB:
+                {
+                    InputStream st =
+                            column > 0 ? res.getBinaryStream(column) : res.getBinaryStream(name);
+                    if (st == null) set(obj, null);
+                    else if (lazy)
+                        set(obj, new LazyBlob<>(readBytes(st), codec, manager.getActivator()));
+                    else set(obj, codec.decode(st, attribute.getType(), manager.getActivator()));
                 }
-        } else if (retDbType.equals(DbType.TYPE.BLOB.name())) {
-            InputStream st = res.getBinaryStream(name);
-            if (st != null) {
-                @SuppressWarnings("resource")
-                MObjectInputStream ois = new MObjectInputStream(st);
-                ois.setActivator(manager.getActivator());
-                //												ois.setClassLoader(manager.getActivator());
+                break;
+            default:
+                log().d("can't set to target ", name, retDbType);
+        }
+    }
 
-                Object o = ois.readObject();
-                set(obj, o);
-            } else set(obj, null);
-        } else log().d("can't set to target ", name, retDbType);
+    /**
+     * {@inheritDoc}
+     *
+     * <p>BLOB values are read into memory, the read data is the state.
+     */
+    @Override
+    public Object loadToTarget(DbResult res, int column, Object obj) throws Exception {
+        if (dbType != DbType.TYPE.BLOB) return super.loadToTarget(res, column, obj);
+        InputStream st = column > 0 ? res.getBinaryStream(column) : res.getBinaryStream(name);
+        if (st == null) {
+            set(obj, null);
+            return null;
+        }
+        byte[] data = readBytes(st);
+        if (lazy) set(obj, new LazyBlob<>(data, codec, manager.getActivator()));
+        else
+            set(
+                    obj,
+                    codec.decode(
+                            new ByteArrayInputStream(data),
+                            attribute.getType(),
+                            manager.getActivator()));
+        return data;
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean changed(DbResult res, Object obj) throws Exception {
 
-        if (retDbType.equals(DbType.TYPE.INT.name())) return different(obj, res.getInt(name));
-        else if (retDbType.equals(DbType.TYPE.LONG.name()))
-            return different(obj, res.getLong(name));
-        else if (retDbType.equals(DbType.TYPE.BOOL.name()))
-            return different(obj, res.getBoolean(name));
-        else if (retDbType.equals(DbType.TYPE.DATETIME.name())) {
-            if (attribute.getType() == Date.class) return different(obj, res.getTimestamp(name));
-            else return different(obj, new MDate(res.getTimestamp(name)).toCalendar());
-        } else if (retDbType.equals(DbType.TYPE.DOUBLE.name()))
-            return different(obj, res.getDouble(name));
-        else if (retDbType.equals(DbType.TYPE.FLOAT.name()))
-            return different(obj, res.getFloat(name));
-        else if (retDbType.equals(DbType.TYPE.STRING.name()))
-            return different(obj, res.getString(name));
-        else if (retDbType.equals(DbType.TYPE.UUID.name())) {
-            String o = res.getString(name);
-            if (o == null) return different(obj, (UUID) null);
-            else
-                try {
-                    return different(obj, UUID.fromString(o));
-                } catch (Throwable t) {
-                    log().d("uuid", name, o, t);
-                    return different(obj, (UUID) null);
+        if (dbType == null) {
+            log().d("can't test", name, retDbType);
+            return false;
+        }
+        switch (dbType) {
+            case INT:
+                return different(obj, res.getInt(name));
+            case LONG:
+                return different(obj, res.getLong(name));
+            case BOOL:
+                return different(obj, res.getBoolean(name));
+            case DATETIME:
+                if (attribute.getType() == Date.class)
+                    return different(obj, res.getTimestamp(name));
+                else return different(obj, new MDate(res.getTimestamp(name)).toCalendar());
+            case DOUBLE:
+                return different(obj, res.getDouble(name));
+            case FLOAT:
+                return different(obj, res.getFloat(name));
+            case STRING:
+                return different(obj, res.getString(name));
+            case UUID:
+                {
+                    String o = res.getString(name);
+                    if (o == null) return different(obj, (UUID) null);
+                    else
+                        try {
+                            return different(obj, UUID.fromString(o));
+                        } catch (Throwable t) {
+                            log().d("uuid", name, o, t);
+                            return different(obj, (UUID) null);
+                        }
+                }
+            case BLOB:
+                {
+                    // compare the encoded data, no need to decode the stored value
+                    InputStream st = res.getBinaryStream(name);
+                    byte[] stored = st == null ? null : readBytes(st);
+                    Object value = get(obj);
+                    if (value instanceof LazyBlob && ((LazyBlob<?>) value).isData(stored))
+                        return false;
+                    InputStream current = (InputStream) getFromTarget(obj);
+                    return !Arrays.equals(stored, current == null ? null : readBytes(current));
                 }
-        } else if (retDbType.equals(DbType.TYPE.BLOB.name())) {
-            InputStream st = res.getBinaryStream(name);
-            if (st != null) {
-                @SuppressWarnings("resource")
-                MObjectInputStream ois = new MObjectInputStream(st);
-                ois.setClassLoader(manager.getActivator());
-                Object o = ois.readObject();
-                return different(obj, o);
-            } else return different(obj, null);
-        } else if (retDbType.equals(DbType.TYPE.BIGDECIMAL.name())) {
-            return different(obj, res.getBigDecimal(name));
-        } else log().d("can't test", name, retDbType);
+            case BIGDECIMAL:
+                return different(obj, res.getBigDecimal(name));
+            default:
+                log().d("can't test", name, retDbType);
+        }
         return false;
     }
 
+    private static byte[] readBytes(InputStream is) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = is.read(buffer)) >= 0) os.write(buffer, 0, len);
+        return os.toByteArray();
+    }
+
+    public BlobCodec getCodec() {
+        return codec;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean isPersistent() {
@@ -15,9 +15,14 @@
  */
 package de.mhus.lib.adb.model;
 
+import java.util.List;
+
 import de.mhus.lib.adb.DbManager;
 import de.mhus.lib.adb.IRelationObject;
+import de.mhus.lib.adb.relation.RelMultible;
+import de.mhus.lib.adb.relation.RelSingle;
 import de.mhus.lib.annotations.adb.DbRelation;
+import de.mhus.lib.core.cfg.CfgLong;
 import de.mhus.lib.core.pojo.PojoAttribute;
 import de.mhus.lib.core.util.MObject;
 import de.mhus.lib.sql.DbConnection;
@@ -30,6 +35,9 @@ import de.mhus.lib.sql.DbConnection;
  */
 public class FieldRelation extends MObject {
 
+    private static final CfgLong CFG_PREFETCH_CHUNK_SIZE =
+            new CfgLong(FieldRelation.class, "prefetchChunkSize", 500);
+
     private DbManager manager;
     private DbRelation config;
     private Table table;
@@ -180,6 +188,25 @@ public class FieldRelation extends MObject {
         if (rel != null) rel.prepareSave(con);
     }
 
+    /**
+     * Load the relation of all given objects in chunks. Supported for RelSingle and RelMultible,
+     * other relation types are loaded lazy as before.
+     *
+     * @param objects The loaded objects
+     * @throws Exception
+     */
+    public void prefetch(List<?> objects) throws Exception {
+        if (objects.isEmpty()) return;
+        if (RelSingle.class.isAssignableFrom(attribute.getType()))
+            RelSingle.prefetch(this, objects);
+        else if (RelMultible.class.isAssignableFrom(attribute.getType()))
+            RelMultible.prefetch(this, objects);
+    }
+
+    public int getPrefetchChunkSize() {
+        return (int) Math.max(1, CFG_PREFETCH_CHUNK_SIZE.value());
+    }
+
     /**
      * inject.
      *
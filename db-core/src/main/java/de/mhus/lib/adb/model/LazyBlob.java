@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import de.mhus.lib.basics.RC;
+import de.mhus.lib.core.MActivator;
+import de.mhus.lib.core.MSystem;
+import de.mhus.lib.errors.MRuntimeException;
+
+/**
+ * Holder for BLOB values which are decoded only if accessed. Use it as type of a BLOB field. If the
+ * value is not accessed the encoded data is written back unchanged.
+ *
+ * @param <T> Type of the value
+ */
+public class LazyBlob<T> {
+
+    private byte[] data;
+    private BlobCodec codec;
+    private MActivator activator;
+    private T value;
+    private boolean decoded;
+
+    public LazyBlob() {
+        decoded = true;
+    }
+
+    public LazyBlob(T value) {
+        this.value = value;
+        decoded = true;
+    }
+
+    LazyBlob(byte[] data, BlobCodec codec, MActivator activator) {
+        this.data = data;
+        this.codec = codec;
+        this.activator = activator;
+    }
+
+    /**
+     * Return the value, decode it with the first access.
+     *
+     * @return The value
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T get() {
+        if (!decoded) {
+            try {
+                value = (T) codec.decode(new ByteArrayInputStream(data), Object.class, activator);
+            } catch (Exception e) {
+                throw new MRuntimeException(RC.ERROR, "decode blob failed", e);
+            }
+            decoded = true;
+            data = null;
+        }
+        return value;
+    }
+
+    public synchronized void set(T value) {
+        this.value = value;
+        decoded = true;
+        data = null;
+    }
+
+    public synchronized boolean isDecoded() {
+        return decoded;
+    }
+
+    /**
+     * Return the stream to store, the original data if not decoded.
+     *
+     * @param codec
+     * @return The stream or null if the value is null
+     * @throws Exception
+     */
+    synchronized InputStream encode(BlobCodec codec) throws Exception {
+        if (!decoded && codec == this.codec) return new ByteArrayInputStream(data);
+        T v = get();
+        return v == null ? null : codec.encode(v);
+    }
+
+    synchronized boolean isData(byte[] other) {
+        return !decoded && Arrays.equals(data, other);
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(this, decoded ? value : "[not decoded]");
+    }
+}
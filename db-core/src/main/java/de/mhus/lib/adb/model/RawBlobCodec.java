@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import de.mhus.lib.core.MActivator;
+import de.mhus.lib.errors.NotSupportedException;
+
+/** Pass through of byte[] and ByteBuffer values without serialization. */
+public class RawBlobCodec implements BlobCodec {
+
+    public static final RawBlobCodec INSTANCE = new RawBlobCodec();
+
+    @Override
+    public InputStream encode(Object value) throws Exception {
+        if (value instanceof byte[]) return new ByteArrayInputStream((byte[]) value);
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) value;
+            if (buffer.hasArray())
+                return new ByteArrayInputStream(
+                        buffer.array(),
+                        buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining());
+            byte[] data = new byte[buffer.remaining()];
+            buffer.duplicate().get(data);
+            return new ByteArrayInputStream(data);
+        }
+        if (value instanceof InputStream) return (InputStream) value;
+        throw new NotSupportedException("raw codec not supported for type", value.getClass());
+    }
+
+    @Override
+    public Object decode(InputStream is, Class<?> type, MActivator activator) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = is.read(buffer)) >= 0) os.write(buffer, 0, len);
+        byte[] data = os.toByteArray();
+        if (type == ByteBuffer.class) return ByteBuffer.wrap(data);
+        return data;
+    }
+}
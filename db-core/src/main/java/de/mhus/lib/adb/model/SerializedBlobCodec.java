@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+
+import de.mhus.lib.core.MActivator;
+import de.mhus.lib.core.io.MObjectInputStream;
+
+/** Java serialization of the value, the default codec of BLOB fields. */
+public class SerializedBlobCodec implements BlobCodec {
+
+    public static final SerializedBlobCodec INSTANCE = new SerializedBlobCodec();
+
+    @Override
+    public InputStream encode(Object value) throws Exception {
+        Buffer os = new Buffer();
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeObject(value);
+        }
+        return os.toInputStream();
+    }
+
+    @SuppressWarnings("resource")
+    @Override
+    public Object decode(InputStream is, Class<?> type, MActivator activator) throws Exception {
+        MObjectInputStream ois = new MObjectInputStream(is);
+        ois.setActivator(activator);
+        return ois.readObject();
+    }
+
+    /** Output buffer which can be read without copying the content. */
+    static class Buffer extends ByteArrayOutputStream {
+
+        public InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -16,17 +16,26 @@
 package de.mhus.lib.adb.model;
 
 import java.math.BigDecimal;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.mhus.lib.adb.DbManager;
 import de.mhus.lib.adb.DbSchema;
+import de.mhus.lib.adb.DbTrackedObject;
 import de.mhus.lib.annotations.adb.DbIndex;
 import de.mhus.lib.annotations.adb.DbIndex.TYPE;
 import de.mhus.lib.basics.RC;
@@ -42,11 +51,13 @@ import de.mhus.lib.core.node.MNode;
 import de.mhus.lib.core.util.MObject;
 import de.mhus.lib.core.util.MUri;
 import de.mhus.lib.core.util.Raw;
+import de.mhus.lib.errors.AccessDeniedException;
 import de.mhus.lib.errors.MException;
 import de.mhus.lib.errors.NotFoundException;
 import de.mhus.lib.sql.DbConnection;
 import de.mhus.lib.sql.DbPrepared;
 import de.mhus.lib.sql.DbResult;
+import de.mhus.lib.sql.DbStatement;
 import de.mhus.lib.sql.Dialect;
 
 /**
@@ -75,8 +86,12 @@ public abstract class Table extends MObject {
     private DbPrepared sqlUpdate;
     private DbPrepared sqlUpdateForce;
     private DbPrepared sqlDelete;
+    private ConcurrentHashMap<BitSet, DbPrepared> sqlUpdateChanged =
+            new ConcurrentHashMap<>();
     private LinkedList<Feature> features = new LinkedList<Feature>();
     protected INode attributes;
+    private TableCache cache;
+    private Field[] persistentFields;
 
     /**
      * init.
@@ -135,6 +150,9 @@ public abstract class Table extends MObject {
 
         createTable(con, cleanup);
         postInit();
+
+        cache = schema.createTableCache(this);
+        if (cache != null) log().d("object cache", name, cache.getMaxSize(), cache.getTtl());
     }
 
     /**
@@ -243,6 +261,7 @@ public abstract class Table extends MObject {
         schema.internalCreateObject(con, name, object, attributes);
 
         sqlInsert.getStatement(con).execute(attributes);
+        takeSnapshot(object);
 
         for (Feature f : features) f.postCreateObject(con, object);
 
@@ -262,19 +281,29 @@ public abstract class Table extends MObject {
 
         for (Feature f : features) f.preSaveObject(con, object);
 
-        HashMap<String, Object> attributes = new HashMap<String, Object>();
-        for (Field f : fList) {
-            attributes.put(f.name, f.getFromTarget(object));
-        }
+        if (isTracked(object)) {
+            for (FieldRelation f : relationList) {
+                f.prepareSave(con, object);
+            }
+            saveChangedFields(con, object, false);
+        } else {
+            checkFullyLoaded(object);
+            HashMap<String, Object> attributes = new HashMap<String, Object>();
+            for (Field f : fList) {
+                attributes.put(f.name, f.getFromTarget(object));
+            }
 
-        for (FieldRelation f : relationList) {
-            f.prepareSave(con, object);
-        }
+            for (FieldRelation f : relationList) {
+                f.prepareSave(con, object);
+            }
 
-        schema.internalSaveObject(con, name, object, attributes);
+            schema.internalSaveObject(con, name, object, attributes);
 
-        int c = sqlUpdate.getStatement(con).executeUpdate(attributes);
-        if (c != 1) throw new MException(RC.ERROR, "update failed, updated objects {1}", c);
+            int c = sqlUpdate.getStatement(con).executeUpdate(attributes);
+            invalidateCache(con, object);
+            if (c != 1) throw new MException(RC.ERROR, "update failed, updated objects {1}", c);
+            takeSnapshot(object);
+        }
 
         for (Feature f : features) f.postSaveObject(con, object);
 
@@ -297,19 +326,29 @@ public abstract class Table extends MObject {
 
         if (!raw) for (Feature f : features) f.preSaveObject(con, object);
 
-        HashMap<String, Object> attributes = new HashMap<String, Object>();
-        for (Field f : fList) {
-            attributes.put(f.name, f.getFromTarget(object));
-        }
+        if (isTracked(object)) {
+            for (FieldRelation f : relationList) {
+                f.prepareSave(con, object);
+            }
+            saveChangedFields(con, object, true);
+        } else {
+            checkFullyLoaded(object);
+            HashMap<String, Object> attributes = new HashMap<String, Object>();
+            for (Field f : fList) {
+                attributes.put(f.name, f.getFromTarget(object));
+            }
 
-        for (FieldRelation f : relationList) {
-            f.prepareSave(con, object);
-        }
+            for (FieldRelation f : relationList) {
+                f.prepareSave(con, object);
+            }
 
-        schema.internalSaveObject(con, name, object, attributes);
+            schema.internalSaveObject(con, name, object, attributes);
 
-        int c = sqlUpdateForce.getStatement(con).executeUpdate(attributes);
-        if (c != 1) throw new MException(RC.ERROR, "update failed, updated objects {1}", c);
+            int c = sqlUpdateForce.getStatement(con).executeUpdate(attributes);
+            invalidateCache(con, object);
+            if (c != 1) throw new MException(RC.ERROR, "update failed, updated objects {1}", c);
+            takeSnapshot(object);
+        }
 
         if (!raw) for (Feature f : features) f.postSaveObject(con, object);
 
@@ -340,34 +379,21 @@ public abstract class Table extends MObject {
 
         // create query and collect values
 
-        StringBuilder sql = new StringBuilder().append("UPDATE ").append(tableName).append(" SET ");
-        int nr = 0;
+        BitSet written = new BitSet(persistentFields.length);
         for (String aname : attributeNames) {
             Field f = fIndex.get(aname);
             if (f == null) throw new NotFoundException("field not found", name, aname);
 
             if (!f.isPrimary && f.isPersistent()) {
-                if (nr > 0) sql.append(",");
-                sql.append(f.name).append("=$").append(f.name).append("$");
-                nr++;
+                for (int i = 0; i < persistentFields.length; i++)
+                    if (persistentFields[i] == f) written.set(i);
                 attributes.put(f.name, f.getFromTarget(object)); // collect values
             }
         }
-        if (nr == 0) throw new NotFoundException("no valid fields found");
+        if (written.isEmpty()) throw new NotFoundException("no valid fields found");
+        for (Field f : pk) attributes.put(f.name, f.getFromTarget(object)); // collect values
 
-        sql.append(" WHERE ");
-        nr = 0;
-        for (Field f : pk) {
-            sql.append((nr > 0 ? " AND " : ""))
-                    .append(f.name)
-                    .append("=$")
-                    .append(f.name)
-                    .append("$");
-            nr++;
-            attributes.put(f.name, f.getFromTarget(object)); // collect values
-        }
-
-        DbPrepared query = manager.getPool().createStatement(sql.toString());
+        DbPrepared query = getUpdateStatement(written);
 
         // execute query
 
@@ -379,7 +405,9 @@ public abstract class Table extends MObject {
         schema.internalSaveObject(con, name, object, attributes);
 
         int c = query.getStatement(con).executeUpdate(attributes);
+        invalidateCache(con, object);
         if (c != 1) throw new MException(RC.STATUS.ERROR, "update failed, updated objects {1}", c);
+        updateSnapshot(object, attributeNames);
 
         if (!raw) for (Feature f : features) f.postSaveObject(con, object);
 
@@ -397,6 +425,12 @@ public abstract class Table extends MObject {
      */
     protected void postInit() throws MException {
 
+        for (Field f : fList) f.prepareAccess();
+
+        LinkedList<Field> persistent = new LinkedList<>();
+        for (Field f : fList) if (f.isPersistent()) persistent.add(f);
+        persistentFields = persistent.toArray(new Field[persistent.size()]);
+
         Collections.sort(
                 pk,
                 new Comparator<Field>() {
@@ -460,6 +494,7 @@ public abstract class Table extends MObject {
         }
 
         sqlUpdate = manager.getPool().createStatement(sql);
+        sqlUpdateChanged.clear();
 
         // ------
 
@@ -503,6 +538,14 @@ public abstract class Table extends MObject {
      */
     public Object getObject(DbConnection con, Object[] keys) throws Exception {
 
+        keys = toPrimaryKey(keys);
+        long epoch = 0;
+        if (cache != null) {
+            epoch = cache.getEpoch();
+            Object obj = getCachedObject(con, keys);
+            if (obj != null) return obj;
+        }
+
         HashMap<String, Object> attributes = new HashMap<String, Object>();
         int nr = 0;
         for (Object key : keys) {
@@ -515,14 +558,219 @@ public abstract class Table extends MObject {
             return null;
         }
 
+        Object obj = readObject(con, ret, true, epoch);
+        ret.close();
+        loadedObject(con, obj);
+
+        return obj;
+    }
+
+    /**
+     * Load the objects for a list of primary keys with chunked IN queries. Composite keys are
+     * queried with row value IN lists.
+     *
+     * @param con a {@link de.mhus.lib.sql.DbConnection} object.
+     * @param keys The primary key values of the objects
+     * @param chunkSize Maximum number of keys in one query
+     * @return The objects in the order of the keys, null if the object was not found or access
+     *     was denied
+     * @throws java.lang.Exception if any.
+     */
+    public List<Object> getObjects(DbConnection con, List<Object[]> keys, int chunkSize)
+            throws Exception {
+
+        Object[] out = new Object[keys.size()];
+        long epoch = cache == null ? 0 : cache.getEpoch();
+        // position of the keys not found in the cache
+        HashMap<String, List<Integer>> index = new HashMap<>();
+        ArrayList<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < out.length; i++) {
+            Object[] key = toPrimaryKey(keys.get(i));
+            if (cache != null) {
+                out[i] = getCachedObject(con, key);
+                if (out[i] != null) continue;
+            }
+            List<Integer> positions = index.get(toKey(key));
+            if (positions == null) {
+                positions = new LinkedList<>();
+                index.put(toKey(key), positions);
+                missing.add(key);
+            }
+            positions.add(i);
+        }
+
+        // loaded objects not matching a key exactly, e.g. by a case insensitive collation
+        HashMap<String, Object> unmatched = new HashMap<>();
+        for (int i = 0; i < missing.size(); i += chunkSize) {
+            List<Object[]> chunk = missing.subList(i, Math.min(missing.size(), i + chunkSize));
+            ArrayList<Object> loaded = new ArrayList<>(chunk.size());
+            DbStatement sth = con.createStatement(createSqlPrimaryIn(chunk.size()));
+            try {
+                HashMap<String, Object> attributes = new HashMap<String, Object>();
+                if (pk.size() == 1) {
+                    ArrayList<Object> ids = new ArrayList<>(chunk.size());
+                    for (Object[] key : chunk) ids.add(key[0]);
+                    attributes.put("ids", ids);
+                } else {
+                    for (int j = 0; j < chunk.size(); j++)
+                        attributes.put(String.valueOf(j), chunk.get(j));
+                }
+                DbResult ret = sth.executeQuery(attributes);
+                try {
+                    while (ret.next()) {
+                        try {
+                            loaded.add(readObject(con, ret, false, 0));
+                        } catch (AccessDeniedException e) {
+                            // marked as not found
+                        }
+                    }
+                } finally {
+                    ret.close();
+                }
+            } finally {
+                sth.close();
+            }
+
+            for (Object obj : loaded) {
+                Object[] key = getPrimaryKey(obj);
+                List<Integer> positions = index.remove(toKey(key));
+                if (positions == null) {
+                    unmatched.put(toKey(key).toLowerCase(), obj);
+                    continue;
+                }
+                if (cache != null && obj.getClass() == clazz)
+                    cache.put(key, getRawValues(obj), epoch);
+                loadedObject(con, obj);
+                for (int pos : positions) out[pos] = obj;
+            }
+        }
+
+        if (!unmatched.isEmpty()) {
+            Set<Object> done = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+                Object obj = unmatched.get(entry.getKey().toLowerCase());
+                if (obj == null) continue;
+                if (done.add(obj)) loadedObject(con, obj);
+                for (int pos : entry.getValue()) out[pos] = obj;
+            }
+        }
+
+        return Arrays.asList(out);
+    }
+
+    /**
+     * Convert the values of the key to the types of the primary key fields, e.g. a String to a
+     * UUID or a number. Values which can't be converted are returned unchanged.
+     */
+    private Object[] toPrimaryKey(Object[] key) {
+        if (key == null || key.length != pk.size()) return key;
+        Object[] out = new Object[key.length];
+        for (int i = 0; i < key.length; i++) out[i] = toPrimaryKeyValue(pk.get(i), key[i]);
+        return out;
+    }
+
+    private static Object toPrimaryKeyValue(Field field, Object value) {
+        Class<?> type = field.getType();
+        if (value == null || type == null || type.isInstance(value)) return value;
+        try {
+            if (type == UUID.class) return UUID.fromString(String.valueOf(value).trim());
+            if (type == String.class) return String.valueOf(value);
+            if (type == long.class || type == Long.class)
+                return value instanceof Number
+                        ? ((Number) value).longValue()
+                        : Long.parseLong(String.valueOf(value).trim());
+            if (type == int.class || type == Integer.class)
+                return value instanceof Number
+                        ? ((Number) value).intValue()
+                        : Integer.parseInt(String.valueOf(value).trim());
+        } catch (IllegalArgumentException e) {
+            // keep the value, the database decides
+        }
+        return value;
+    }
+
+    private String createSqlPrimaryIn(int size) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(tableName).append(" WHERE ");
+        if (pk.size() == 1) {
+            sql.append(pk.get(0).name).append(" IN ($ids$)");
+            return sql.toString();
+        }
+        sql.append('(');
+        int nr = 0;
+        for (Field f : pk) sql.append(nr++ > 0 ? "," : "").append(f.name);
+        sql.append(") IN (");
+        for (int i = 0; i < size; i++) sql.append(i > 0 ? ",($" : "($").append(i).append("$)");
+        sql.append(')');
+        return sql.toString();
+    }
+
+    private static String toKey(Object[] keys) {
+        if (keys.length == 1) return String.valueOf(keys[0]);
+        StringBuilder out = new StringBuilder();
+        for (Object key : keys) out.append(key).append('\0');
+        return out.toString();
+    }
+
+    /**
+     * Create and fill the object from the current row of the result.
+     *
+     * @param toCache Store the object in the cache by the loaded primary key
+     * @param epoch Epoch of the cache before the row was loaded
+     */
+    private Object readObject(DbConnection con, DbResult ret, boolean toCache, long epoch)
+            throws Exception {
         for (Feature f : features) f.preGetObject(con, ret);
 
         Object obj = schema.createObject(clazz, registryName, ret, manager, true);
 
         // fill object
-        for (Field f : fList) {
-            f.setToTarget(ret, obj);
+        ReadPlan plan = getReadPlan(ret);
+        Object[] states = createStates(obj);
+        for (int i = 0; i < plan.fields.length; i++) {
+            loadField(ret, plan, i, obj, states);
         }
+        takeSnapshot(obj, null, states);
+
+        if (toCache && cache != null && obj.getClass() == clazz)
+            cache.put(getPrimaryKey(obj), getRawValues(obj), epoch);
+
+        return obj;
+    }
+
+    private Object[] getPrimaryKey(Object obj) throws Exception {
+        Object[] keys = new Object[pk.size()];
+        int nr = 0;
+        for (Field f : pk) keys[nr++] = f.getRaw(obj);
+        return keys;
+    }
+
+    private Object[] getRawValues(Object obj) throws Exception {
+        Object[] values = new Object[persistentFields.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = persistentFields[i].toState(persistentFields[i].getRaw(obj));
+        return values;
+    }
+
+    /** Call the features and relations after the object was read and the result closed. */
+    private void loadedObject(DbConnection con, Object obj) throws Exception {
+        for (Feature f : features) f.postGetObject(con, obj);
+
+        for (FieldRelation f : relationList) {
+            f.loaded(con, obj);
+        }
+    }
+
+    protected Object getCachedObject(DbConnection con, Object[] keys) throws Exception {
+        Object[] values = cache.get(keys);
+        if (values == null) return null;
+
+        for (Feature f : features) f.preGetObject(con, null);
+
+        Object obj = schema.createObject(clazz, registryName, null, manager, true);
+        if (obj.getClass() != clazz) return null;
+        for (int i = 0; i < values.length; i++)
+            persistentFields[i].setRaw(obj, persistentFields[i].fromState(values[i]));
+        takeSnapshot(obj);
 
         for (Feature f : features) f.postGetObject(con, obj);
 
@@ -533,6 +781,306 @@ public abstract class Table extends MObject {
         return obj;
     }
 
+    /**
+     * Remove the object from the cache now and again after the connection is committed. Readers
+     * could cache the old row until the change is committed.
+     *
+     * @param con The connection used to change the object
+     * @param object The object or null to clear the cache
+     */
+    public void invalidateCache(DbConnection con, Object object) {
+        if (cache == null) return;
+        invalidateCache(object);
+        if (con != null) con.afterCommit(() -> invalidateCache(object));
+    }
+
+    /**
+     * Remove the object from the cache. Called after the object was changed in the database.
+     *
+     * @param object The object or null to clear the cache
+     */
+    public void invalidateCache(Object object) {
+        if (cache == null) return;
+        if (object == null) {
+            cache.clear();
+            return;
+        }
+        try {
+            cache.invalidate(getPrimaryKey(object));
+        } catch (Throwable t) {
+            log().w("invalidate cache failed, clear", name, t);
+            cache.clear();
+        }
+    }
+
+    /**
+     * Return true if the object holds a snapshot of this table to track the changes.
+     *
+     * @param obj The object
+     * @return true if the changes are tracked
+     */
+    public boolean isTracked(Object obj) {
+        if (!(obj instanceof DbTrackedObject)) return false;
+        Object snapshot = ((DbTrackedObject) obj).getAdbSnapshot();
+        return snapshot instanceof Snapshot && ((Snapshot) snapshot).table == this;
+    }
+
+    /**
+     * Store the current persistent values in the object if it supports tracking.
+     *
+     * @param obj The loaded or saved object
+     */
+    protected void takeSnapshot(Object obj) {
+        takeSnapshot(obj, null);
+    }
+
+    /**
+     * Store the current persistent values in the object if it supports tracking.
+     *
+     * @param obj The loaded or saved object
+     * @param unloaded Flags of the persistent fields not loaded from the database or null
+     */
+    protected void takeSnapshot(Object obj, boolean[] unloaded) {
+        takeSnapshot(obj, unloaded, null);
+    }
+
+    /**
+     * Store the current persistent values in the object if it supports tracking.
+     *
+     * @param obj The loaded or saved object
+     * @param unloaded Flags of the persistent fields not loaded from the database or null
+     * @param states States of the persistent fields returned while loading or null
+     */
+    protected void takeSnapshot(Object obj, boolean[] unloaded, Object[] states) {
+        if (!(obj instanceof DbTrackedObject)) return;
+        Snapshot snapshot = null;
+        try {
+            snapshot = new Snapshot(this);
+            snapshot.unloaded = unloaded;
+            for (int i = 0; i < persistentFields.length; i++)
+                snapshot.values[i] =
+                        states != null && states[i] instanceof byte[]
+                                ? new Encoded((byte[]) states[i])
+                                : Snapshot.copy(
+                                        persistentFields[i], persistentFields[i].getRaw(obj));
+        } catch (Throwable t) {
+            log().d("snapshot failed", name, t);
+            if (unloaded == null) snapshot = null;
+            else {
+                // keep tracking the not loaded fields, the others are written with the next save
+                snapshot = new Snapshot(this);
+                snapshot.unloaded = unloaded;
+                Arrays.fill(snapshot.values, Snapshot.UNKNOWN);
+            }
+        }
+        ((DbTrackedObject) obj).setAdbSnapshot(snapshot);
+    }
+
+    /**
+     * Return the array to collect the loaded states of the persistent fields or null if the
+     * object is not tracked.
+     */
+    private Object[] createStates(Object obj) {
+        return obj instanceof DbTrackedObject ? new Object[persistentFields.length] : null;
+    }
+
+    /**
+     * Load the field of the read plan into the object. The loaded state is collected for the
+     * snapshot if the object is tracked.
+     */
+    private void loadField(DbResult res, ReadPlan plan, int i, Object obj, Object[] states)
+            throws Exception {
+        Field field = plan.fields[i];
+        if (states == null) {
+            field.setToTarget(res, plan.columns[i], obj);
+            return;
+        }
+        Object state = field.loadToTarget(res, plan.columns[i], obj);
+        if (state == null) return;
+        for (int j = 0; j < persistentFields.length; j++)
+            if (persistentFields[j] == field) states[j] = state;
+    }
+
+    /**
+     * Refresh the snapshot of the given attributes after they are written.
+     *
+     * @param obj The object
+     * @param attributeNames The written attributes
+     */
+    protected void updateSnapshot(Object obj, String... attributeNames) {
+        if (!isTracked(obj)) return;
+        Snapshot snapshot = (Snapshot) ((DbTrackedObject) obj).getAdbSnapshot();
+        try {
+            for (String aname : attributeNames) {
+                for (int i = 0; i < persistentFields.length; i++)
+                    if (persistentFields[i].createName.equals(aname)) {
+                        snapshot.values[i] =
+                                Snapshot.copy(
+                                        persistentFields[i], persistentFields[i].getRaw(obj));
+                        if (snapshot.unloaded != null) snapshot.unloaded[i] = false;
+                    }
+            }
+        } catch (Throwable t) {
+            log().d("snapshot failed", name, t);
+            ((DbTrackedObject) obj).setAdbSnapshot(null);
+        }
+    }
+
+    /**
+     * Return the persistent fields changed since the last load or save or null if the object is
+     * not tracked.
+     *
+     * @param obj The object
+     * @return The changed fields or null
+     * @throws Exception
+     */
+    public List<Field> getChangedFields(Object obj) throws Exception {
+        if (!isTracked(obj)) return null;
+        Snapshot snapshot = (Snapshot) ((DbTrackedObject) obj).getAdbSnapshot();
+        LinkedList<Field> out = new LinkedList<>();
+        for (int i = 0; i < persistentFields.length; i++) {
+            if (Snapshot.changed(
+                    persistentFields[i], snapshot.values[i], persistentFields[i].getRaw(obj)))
+                out.add(persistentFields[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Return the persistent fields not loaded by a projection query. A save of the object will not
+     * write these fields as long as they are not changed.
+     *
+     * @param obj The object
+     * @return The fields not loaded or null if the object is not tracked
+     */
+    public List<Field> getUnloadedFields(Object obj) {
+        if (!isTracked(obj)) return null;
+        Snapshot snapshot = (Snapshot) ((DbTrackedObject) obj).getAdbSnapshot();
+        LinkedList<Field> out = new LinkedList<>();
+        if (snapshot.unloaded == null) return out;
+        for (int i = 0; i < persistentFields.length; i++)
+            if (snapshot.unloaded[i]) out.add(persistentFields[i]);
+        return out;
+    }
+
+    /**
+     * Return true if some persistent fields of the object are not loaded by a projection query.
+     *
+     * @param obj The object
+     * @return true if the object is partially loaded
+     */
+    public boolean isPartiallyLoaded(Object obj) {
+        if (!(obj instanceof DbTrackedObject)) return false;
+        Object snapshot = ((DbTrackedObject) obj).getAdbSnapshot();
+        if (!(snapshot instanceof Snapshot) || ((Snapshot) snapshot).unloaded == null) return false;
+        for (boolean flag : ((Snapshot) snapshot).unloaded) if (flag) return true;
+        return false;
+    }
+
+    /**
+     * Throw an exception if the object is partially loaded. Statements writing the full row would
+     * overwrite the columns not loaded.
+     *
+     * @param obj The object
+     * @throws MException
+     */
+    protected void checkFullyLoaded(Object obj) throws MException {
+        if (isPartiallyLoaded(obj))
+            throw new MException(
+                    RC.NOT_SUPPORTED,
+                    "object {1} is partially loaded, can't write all columns",
+                    name);
+    }
+
+    /**
+     * Write only the changed fields of a tracked object. No statement is executed if nothing
+     * changed.
+     *
+     * @param con The connection
+     * @param object The tracked object
+     * @param force Write also read only fields
+     * @throws Exception
+     */
+    protected void saveChangedFields(DbConnection con, Object object, boolean force)
+            throws Exception {
+
+        // the written fields are loaded now, keep the flags of the others
+        boolean[] unloaded = ((Snapshot) ((DbTrackedObject) object).getAdbSnapshot()).unloaded;
+        if (unloaded != null) unloaded = unloaded.clone();
+
+        // collect the written fields, the set is the key of the cached statement
+        Snapshot snapshot = (Snapshot) ((DbTrackedObject) object).getAdbSnapshot();
+        HashMap<String, Object> attributes = new HashMap<String, Object>();
+        BitSet written = new BitSet(persistentFields.length);
+        for (int i = 0; i < persistentFields.length; i++) {
+            Field f = persistentFields[i];
+            if (f.isPrimary || !force && f.isReadOnly()) continue;
+            // a not loaded field is written only if it was set, unknown values can't be compared
+            if (unloaded != null && unloaded[i] && snapshot.values[i] == Snapshot.UNKNOWN)
+                continue;
+            if (!Snapshot.changed(f, snapshot.values[i], f.getRaw(object))) continue;
+            written.set(i);
+            attributes.put(f.name, f.getFromTarget(object));
+            if (unloaded != null) unloaded[i] = false;
+        }
+        if (written.isEmpty()) {
+            log().t("nothing changed", name);
+            return;
+        }
+        for (Field f : pk) attributes.put(f.name, f.getFromTarget(object));
+
+        schema.internalSaveObject(con, name, object, attributes);
+
+        DbPrepared query = getUpdateStatement(written);
+        int c = query.getStatement(con).executeUpdate(attributes);
+        invalidateCache(con, object);
+        if (c != 1) throw new MException(RC.ERROR, "update failed, updated objects {1}", c);
+        takeSnapshot(object, unloaded);
+    }
+
+    /**
+     * Return the update statement for the given persistent fields. The statements are created once
+     * for each set of fields, so the statement cache of the connection can reuse them.
+     *
+     * @param written Indexes of the written persistent fields
+     * @return The prepared statement
+     * @throws MException
+     */
+    protected DbPrepared getUpdateStatement(BitSet written) throws MException {
+        DbPrepared query = sqlUpdateChanged.get(written);
+        if (query != null) return query;
+        StringBuilder sql = new StringBuilder().append("UPDATE ").append(tableName).append(" SET ");
+        int nr = 0;
+        for (int i = written.nextSetBit(0); i >= 0; i = written.nextSetBit(i + 1)) {
+            Field f = persistentFields[i];
+            if (nr > 0) sql.append(",");
+            sql.append(f.name).append("=$").append(f.name).append("$");
+            nr++;
+        }
+        sql.append(" WHERE ");
+        nr = 0;
+        for (Field f : pk) {
+            sql.append((nr > 0 ? " AND " : ""))
+                    .append(f.name)
+                    .append("=$")
+                    .append(f.name)
+                    .append("$");
+            nr++;
+        }
+        query = manager.getPool().createStatement(sql.toString());
+        sqlUpdateChanged.put((BitSet) written.clone(), query);
+        return query;
+    }
+
+    /**
+     * Return the object cache or null if the table is not cached.
+     *
+     * @return The cache or null
+     */
+    public TableCache getCache() {
+        return cache;
+    }
+
     /**
      * existsObject.
      *
@@ -543,6 +1091,8 @@ public abstract class Table extends MObject {
      */
     public boolean existsObject(DbConnection con, Object[] keys) throws Exception {
 
+        if (cache != null && cache.contains(toPrimaryKey(keys))) return true;
+
         HashMap<String, Object> attributes = new HashMap<String, Object>();
         int nr = 0;
         for (Object key : keys) {
@@ -570,6 +1120,129 @@ public abstract class Table extends MObject {
         }
     }
 
+    /**
+     * Return the read plan for the result. The plan is created once for each result and holds the
+     * resolved column index of every field. Results not supporting index access will return -1 as
+     * column index, the field will read the value by name.
+     *
+     * @param res The result
+     * @return The plan
+     */
+    protected ReadPlan getReadPlan(DbResult res) {
+        ReadPlan plan = (ReadPlan) res.getAttachment(this);
+        if (plan != null) return plan;
+        Field[] fields = fList.toArray(new Field[fList.size()]);
+        int[] columns = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns[i] = -1;
+            if (!fields[i].isPersistent()) continue;
+            try {
+                columns[i] = res.findColumn(fields[i].name);
+            } catch (Throwable t) {
+                log().t("column not found", name, fields[i].name, t);
+            }
+        }
+        plan = new ReadPlan(fields, columns, null);
+        res.setAttachment(this, plan);
+        return plan;
+    }
+
+    /**
+     * Copy of the persistent values of an object. Mutable values like BLOBs are stored in the
+     * encoded state of the field and compared encoded. The state of loaded BLOBs is the data read
+     * from the database. Other values of unknown types can't be
+     * compared and are always handled as changed.
+     */
+    protected static class Snapshot {
+
+        private static final Object UNKNOWN = new Object();
+
+        private Table table;
+        private Object[] values;
+        private boolean[] unloaded;
+
+        Snapshot(Table table) {
+            this.table = table;
+            values = new Object[table.persistentFields.length];
+        }
+
+        static Object copy(Field field, Object value) throws Exception {
+            if (value == null
+                    || value instanceof String
+                    || value instanceof Number
+                    || value instanceof Boolean
+                    || value instanceof Character
+                    || value instanceof Enum
+                    || value instanceof UUID) return value;
+            if (value instanceof Date) return ((Date) value).clone();
+            if (value instanceof byte[]) return ((byte[]) value).clone();
+            Object state = field.toState(value);
+            if (state instanceof byte[]) return new Encoded((byte[]) state);
+            return UNKNOWN;
+        }
+
+        static boolean changed(Field field, Object snapshot, Object value) throws Exception {
+            if (snapshot == UNKNOWN) return true;
+            if (snapshot instanceof Encoded) {
+                if (value == null) return true;
+                Object state = field.toState(value);
+                return !(state instanceof byte[])
+                        || !Arrays.equals(((Encoded) snapshot).data, (byte[]) state);
+            }
+            if (snapshot instanceof byte[])
+                return !(value instanceof byte[])
+                        || !Arrays.equals((byte[]) snapshot, (byte[]) value);
+            return !MSystem.equals(snapshot, value);
+        }
+    }
+
+    /** Encoded state of a mutable value, see Field.toState(). */
+    private static class Encoded {
+
+        private final byte[] data;
+
+        private Encoded(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    protected static class ReadPlan {
+        private final Field[] fields;
+        private final int[] columns;
+        private final boolean[] unloaded;
+
+        private ReadPlan(Field[] fields, int[] columns, boolean[] unloaded) {
+            this.fields = fields;
+            this.columns = columns;
+            this.unloaded = unloaded;
+        }
+    }
+
+    /**
+     * Read only the selected fields from the result. The other persistent fields of the filled
+     * objects are marked as not loaded in the snapshot.
+     *
+     * @param res The result of a query selecting the columns of the fields
+     * @param selection The selected fields
+     */
+    public void setProjection(DbResult res, Field[] selection) {
+        int[] columns = new int[selection.length];
+        for (int i = 0; i < selection.length; i++) {
+            columns[i] = -1;
+            try {
+                columns[i] = res.findColumn(selection[i].name);
+            } catch (Throwable t) {
+                log().t("column not found", name, selection[i].name, t);
+            }
+        }
+        boolean[] unloaded = new boolean[persistentFields.length];
+        for (int i = 0; i < persistentFields.length; i++) {
+            unloaded[i] = true;
+            for (Field f : selection) if (f == persistentFields[i]) unloaded[i] = false;
+        }
+        res.setAttachment(this, new ReadPlan(selection, columns, unloaded));
+    }
+
     /**
      * fillObject.
      *
@@ -582,13 +1255,16 @@ public abstract class Table extends MObject {
 
         for (Feature f : features) f.preFillObject(obj, con, res);
 
-        for (Field f : fList) {
+        ReadPlan plan = getReadPlan(res);
+        Object[] states = createStates(obj);
+        for (int i = 0; i < plan.fields.length; i++) {
             try {
-                f.setToTarget(res, obj);
+                loadField(res, plan, i, obj, states);
             } catch (Throwable t) {
-                manager.getSchema().onFillObjectException(Table.this, obj, res, f, t);
+                manager.getSchema().onFillObjectException(Table.this, obj, res, plan.fields[i], t);
             }
         }
+        takeSnapshot(obj, plan.unloaded, states);
 
         for (Feature f : features) f.postFillObject(obj, con);
 
@@ -623,14 +1299,17 @@ public abstract class Table extends MObject {
         for (Feature f : features) f.preFillObject(obj, con, ret);
 
         // fill object
-        for (Field f : fList) {
+        ReadPlan plan = getReadPlan(ret);
+        Object[] states = createStates(obj);
+        for (int i = 0; i < plan.fields.length; i++) {
             try {
-                f.setToTarget(ret, obj);
+                loadField(ret, plan, i, obj, states);
             } catch (Throwable t) {
-                manager.getSchema().onFillObjectException(Table.this, obj, ret, f, t);
+                manager.getSchema().onFillObjectException(Table.this, obj, ret, plan.fields[i], t);
             }
         }
         ret.close();
+        takeSnapshot(obj, null, states);
 
         for (Feature f : features) f.postFillObject(obj, con);
 
@@ -657,6 +1336,18 @@ public abstract class Table extends MObject {
             if (field.isChanged(obj)) return true;
         }
 
+        // tracked objects are compared with the snapshot, con and keys are not needed
+        List<Field> changed = getChangedFields(obj);
+        if (changed != null) {
+            for (Field f : changed) {
+                if (!f.isTechnical()) {
+                    log().d("changed field", getName(), f, f.getName());
+                    return true;
+                }
+            }
+            return false;
+        }
+
         HashMap<String, Object> attributes = new HashMap<String, Object>();
         int nr = 0;
         for (Object key : keys) {
@@ -768,6 +1459,141 @@ public abstract class Table extends MObject {
         schema.internalDeleteObject(con, name, object, attributes);
 
         sqlDelete.getStatement(con).execute(attributes);
+        invalidateCache(con, object);
+    }
+
+    /**
+     * Create the objects using jdbc batches. Features are called for every object before the
+     * entries are added to the batch. Post create features and relations are called after the
+     * batch was executed.
+     *
+     * @param con a {@link de.mhus.lib.sql.DbConnection} object.
+     * @param objects The objects of this table.
+     * @param batchSize Maximum number of entries sent in one batch.
+     * @throws java.lang.Exception if any.
+     */
+    public void createObjects(DbConnection con, List<?> objects, int batchSize)
+            throws Exception {
+
+        DbStatement sth = sqlInsert.getStatement(con);
+        try {
+            int cnt = 0;
+            for (Object object : objects) {
+                for (Feature f : features) f.preCreateObject(con, object);
+
+                HashMap<String, Object> attributes = new HashMap<String, Object>();
+                for (Field f : fList) {
+                    attributes.put(f.name, f.getFromTarget(object));
+                }
+
+                schema.internalCreateObject(con, name, object, attributes);
+
+                sth.addBatch(attributes);
+                if (++cnt % batchSize == 0) sth.executeBatch();
+            }
+            sth.executeBatch();
+        } finally {
+            sth.clearBatch();
+        }
+
+        for (Object object : objects) {
+            takeSnapshot(object);
+            for (Feature f : features) f.postCreateObject(con, object);
+
+            for (FieldRelation f : relationList) {
+                f.created(con, object);
+            }
+        }
+    }
+
+    /**
+     * Save the objects using jdbc batches. Every object must update exactly one row.
+     *
+     * @param con a {@link de.mhus.lib.sql.DbConnection} object.
+     * @param objects The objects of this table.
+     * @param batchSize Maximum number of entries sent in one batch.
+     * @throws java.lang.Exception if any.
+     */
+    public void saveObjects(DbConnection con, List<?> objects, int batchSize) throws Exception {
+
+        for (Object object : objects) checkFullyLoaded(object);
+
+        DbStatement sth = sqlUpdate.getStatement(con);
+        try {
+            int cnt = 0;
+            for (Object object : objects) {
+                for (Feature f : features) f.preSaveObject(con, object);
+
+                HashMap<String, Object> attributes = new HashMap<String, Object>();
+                for (Field f : fList) {
+                    attributes.put(f.name, f.getFromTarget(object));
+                }
+
+                for (FieldRelation f : relationList) {
+                    f.prepareSave(con, object);
+                }
+
+                schema.internalSaveObject(con, name, object, attributes);
+
+                sth.addBatch(attributes);
+                if (++cnt % batchSize == 0) checkBatchUpdate(sth.executeBatch());
+            }
+            checkBatchUpdate(sth.executeBatch());
+        } finally {
+            sth.clearBatch();
+            for (Object object : objects) invalidateCache(con, object);
+        }
+
+        for (Object object : objects) {
+            takeSnapshot(object);
+            for (Feature f : features) f.postSaveObject(con, object);
+
+            for (FieldRelation f : relationList) {
+                f.saved(con, object);
+            }
+        }
+    }
+
+    /**
+     * Delete the objects using jdbc batches.
+     *
+     * @param con a {@link de.mhus.lib.sql.DbConnection} object.
+     * @param objects The objects of this table.
+     * @param batchSize Maximum number of entries sent in one batch.
+     * @throws java.lang.Exception if any.
+     */
+    public void deleteObjects(DbConnection con, List<?> objects, int batchSize)
+            throws Exception {
+
+        DbStatement sth = sqlDelete.getStatement(con);
+        try {
+            int cnt = 0;
+            for (Object object : objects) {
+                for (Feature f : features) f.deleteObject(con, object);
+
+                HashMap<String, Object> attributes = new HashMap<String, Object>();
+                for (Field f : pk) {
+                    attributes.put(f.name, f.getFromTarget(object));
+                }
+
+                schema.internalDeleteObject(con, name, object, attributes);
+
+                sth.addBatch(attributes);
+                if (++cnt % batchSize == 0) sth.executeBatch();
+            }
+            sth.executeBatch();
+        } finally {
+            sth.clearBatch();
+            for (Object object : objects) invalidateCache(con, object);
+        }
+    }
+
+    private void checkBatchUpdate(int[] result) throws MException {
+        for (int c : result) {
+            // drivers rewriting the batch (mysql) do not return the count per entry
+            if (c != 1 && c != Statement.SUCCESS_NO_INFO)
+                throw new MException(RC.ERROR, "update failed, updated objects {1}", c);
+        }
     }
 
     /**
@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.model;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.mhus.lib.core.MSystem;
+import de.mhus.lib.core.util.MObject;
+
+/**
+ * Second level cache for the objects of one table, used by Table.getObject(). The cache stores a
+ * copy of the attribute values (snapshot) by primary key, a hit creates a new object and fills the
+ * copied values. Callers can't modify the cached values.
+ *
+ * <p>Entries are evicted by LRU order if the maximum size or the estimated memory is reached and
+ * expire after the time to live. Changes by the manager invalidate the entry, changes by other
+ * nodes or by plain sql are visible after the ttl. Every invalidation increments the epoch of the
+ * cache, values loaded in an older epoch are not stored.
+ *
+ * <p>Mutable values are copied for Date and array types. The table stores BLOB values encoded,
+ * they are decoded with every hit.
+ */
+public class TableCache extends MObject {
+
+    private final int maxSize;
+    private final long ttl;
+    private final long maxMemory;
+    private final LinkedHashMap<String, Entry> cache;
+    private long memory;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long epoch;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize Maximum count of entries
+     * @param ttl Time to live of an entry in milliseconds or 0
+     * @param maxMemory Maximum estimated memory in bytes or 0
+     */
+    public TableCache(int maxSize, long ttl, long maxMemory) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.maxMemory = maxMemory;
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Return a copy of the cached values or null.
+     *
+     * @param keys Primary key values
+     * @return The values in the order of the fields or null
+     */
+    public synchronized Object[] get(Object[] keys) {
+        String key = toKey(keys);
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttl > 0 && System.currentTimeMillis() - entry.created > ttl) {
+            remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(entry.values);
+    }
+
+    public synchronized boolean contains(Object[] keys) {
+        Entry entry = cache.get(toKey(keys));
+        return entry != null && (ttl <= 0 || System.currentTimeMillis() - entry.created <= ttl);
+    }
+
+    /**
+     * Store a copy of the values.
+     *
+     * @param keys Primary key values
+     * @param values The values in the order of the fields
+     */
+    public synchronized void put(Object[] keys, Object[] values) {
+        String key = toKey(keys);
+        remove(key);
+        Entry entry = new Entry();
+        entry.values = copy(values);
+        entry.created = System.currentTimeMillis();
+        entry.size = estimate(key, entry.values);
+        cache.put(key, entry);
+        memory += entry.size;
+
+        Iterator<Map.Entry<String, Entry>> iter = cache.entrySet().iterator();
+        while (iter.hasNext()
+                && (cache.size() > maxSize || maxMemory > 0 && memory > maxMemory)) {
+            Map.Entry<String, Entry> eldest = iter.next();
+            if (eldest.getValue() == entry) break;
+            memory -= eldest.getValue().size;
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Store a copy of the values if the cache was not invalidated since the given epoch. Loaders
+     * take the epoch before reading from the database, so a row read before a concurrent change
+     * is not cached after the change was invalidated.
+     *
+     * @param keys Primary key values
+     * @param values The values in the order of the fields
+     * @param epoch The epoch returned by getEpoch() before the values were loaded
+     * @return true if the values are stored
+     */
+    public synchronized boolean put(Object[] keys, Object[] values, long epoch) {
+        if (epoch != this.epoch) return false;
+        put(keys, values);
+        return true;
+    }
+
+    /**
+     * Return the current epoch. The epoch changes with every invalidation.
+     *
+     * @return The epoch
+     */
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized void invalidate(Object[] keys) {
+        epoch++;
+        if (remove(toKey(keys))) invalidations++;
+    }
+
+    public synchronized void clear() {
+        epoch++;
+        invalidations += cache.size();
+        cache.clear();
+        memory = 0;
+    }
+
+    private boolean remove(String key) {
+        Entry entry = cache.remove(key);
+        if (entry == null) return false;
+        memory -= entry.size;
+        return true;
+    }
+
+    protected String toKey(Object[] keys) {
+        if (keys.length == 1) return String.valueOf(keys[0]);
+        StringBuilder out = new StringBuilder();
+        for (Object key : keys) out.append(key).append('\0');
+        return out.toString();
+    }
+
+    protected Object[] copy(Object[] values) {
+        Object[] out = new Object[values.length];
+        for (int i = 0; i < values.length; i++) out[i] = copy(values[i]);
+        return out;
+    }
+
+    protected Object copy(Object value) {
+        if (value instanceof Date) return ((Date) value).clone();
+        if (value instanceof byte[]) return ((byte[]) value).clone();
+        if (value instanceof char[]) return ((char[]) value).clone();
+        if (value instanceof int[]) return ((int[]) value).clone();
+        if (value instanceof long[]) return ((long[]) value).clone();
+        if (value instanceof Object[]) return copy((Object[]) value);
+        return value;
+    }
+
+    protected long estimate(String key, Object[] values) {
+        // rough estimation: entry overhead, key and values
+        long size = 64 + 40 + 2L * key.length() + 16L + 8L * values.length;
+        for (Object value : values) {
+            if (value == null) continue;
+            if (value instanceof String) size += 40 + 2L * ((String) value).length();
+            else if (value instanceof byte[]) size += 16 + ((byte[]) value).length;
+            else if (value instanceof char[]) size += 16 + 2L * ((char[]) value).length;
+            else if (value instanceof Object[]) size += 16 + 32L * ((Object[]) value).length;
+            else size += 24;
+        }
+        return size;
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public synchronized long getMemory() {
+        return memory;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MSystem.toString(
+                this,
+                "size",
+                cache.size(),
+                "memory",
+                memory,
+                "hits",
+                hits,
+                "misses",
+                misses,
+                "evictions",
+                evictions,
+                "invalidations",
+                invalidations);
+    }
+
+    private static class Entry {
+        private Object[] values;
+        private long created;
+        private long size;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.query;
+
+import de.mhus.lib.core.parser.AttributeMap;
+
+/**
+ * Keyset (seek) pagination. Selects the rows with a primary key greater then the given key and
+ * orders the result by the primary key. Use it together with a limit to page through a table
+ * without an offset, e.g. query.after(lastKey).limit(100). The key values are in the order of
+ * DbManager.getPrimaryKeyValues(). Without a key the first page is returned. Queries with an
+ * additional order are rejected, the order would break the key set.
+ */
+public class AAfter extends AOperation {
+
+    private Object[] key;
+    private ADynValue[] values;
+
+    public AAfter(Object... key) {
+        this.key = key == null ? new Object[0] : key;
+        values = new ADynValue[this.key.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = new ADynValue(null, null, null, this.key[i]);
+    }
+
+    @Override
+    public void getAttributes(AQuery<?> query, AttributeMap map) {
+        for (ADynValue value : values) value.getAttributes(query, map);
+    }
+
+    public Object[] getKey() {
+        return key;
+    }
+
+    public ADynValue[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.query;
+
+import de.mhus.lib.core.parser.AttributeMap;
+
+/**
+ * An aggregate function over an attribute, e.g. count(*) or sum(price). Used as selected column
+ * of an aggregate query or as left side of a having compare.
+ *
+ * @author mikehummel
+ */
+public class AAggregate extends AAttribute {
+
+    public enum FUNCTION {
+        COUNT,
+        COUNT_DISTINCT,
+        SUM,
+        MIN,
+        MAX,
+        AVG
+    }
+
+    private FUNCTION function;
+    private Class<?> clazz;
+    private String attribute;
+    private String alias;
+
+    /**
+     * Constructor for AAggregate.
+     *
+     * @param function The aggregate function
+     * @param clazz The class of the attribute or null for the query type
+     * @param attribute The attribute or null for count(*)
+     */
+    public AAggregate(FUNCTION function, Class<?> clazz, String attribute) {
+        this.function = function;
+        this.clazz = clazz;
+        this.attribute = attribute == null ? null : attribute.toLowerCase();
+        this.alias =
+                this.attribute == null
+                        ? function.name().toLowerCase()
+                        : function.name().toLowerCase() + "_" + this.attribute;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void getAttributes(AQuery<?> query, AttributeMap map) {}
+
+    public FUNCTION getFunction() {
+        return function;
+    }
+
+    public Class<?> getClazz() {
+        return clazz;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * The name of the value in the result row, e.g. count or sum_price.
+     *
+     * @return The alias
+     */
+    public String getAlias() {
+        return alias;
+    }
+
+    /**
+     * Set the name of the value in the result row.
+     *
+     * @param alias The alias
+     * @return The aggregate itself
+     */
+    public AAggregate as(String alias) {
+        this.alias = alias;
+        return this;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.query;
+
+import de.mhus.lib.core.parser.AttributeMap;
+
+public class AGroupBy extends AOperation {
+
+    private Class<?> clazz;
+    private String[] attributes;
+
+    public AGroupBy(Class<?> clazz, String... attributes) {
+        this.clazz = clazz;
+        this.attributes = new String[attributes.length];
+        for (int i = 0; i < attributes.length; i++)
+            this.attributes[i] = attributes[i].toLowerCase();
+    }
+
+    @Override
+    public void getAttributes(AQuery<?> query, AttributeMap map) {}
+
+    public Class<?> getClazz() {
+        return clazz;
+    }
+
+    public String[] getAttributes() {
+        return attributes;
+    }
+}
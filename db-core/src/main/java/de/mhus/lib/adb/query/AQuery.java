@@ -37,6 +37,10 @@ public class AQuery<T> extends APrint {
     private ACreateContext context;
     private int unique = 0;
     private AttributeMap map;
+    private int fetchSize;
+    private LinkedList<String> fetch;
+    private String[] select;
+    private LinkedList<AAggregate> aggregates;
 
     /**
      * Constructor for AQuery.
@@ -608,6 +612,225 @@ public class AQuery<T> extends APrint {
         return this;
     }
 
+    /**
+     * limit.
+     *
+     * @param offset Count of rows to skip
+     * @param limit a int.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> limit(int offset, int limit) {
+        operations.add(Db.limit(offset, limit));
+        return this;
+    }
+
+    /**
+     * Return true if the query already contains a limit or keyset pagination.
+     *
+     * @return true if the result is restricted
+     */
+    public boolean isPaged() {
+        for (AOperation operation : operations)
+            if (operation instanceof ALimit || operation instanceof AAfter) return true;
+        return false;
+    }
+
+    /**
+     * Keyset pagination, select the rows after the given primary key ordered by the primary key.
+     * The query can't be combined with another order.
+     *
+     * @param lastRowKey The primary key values of the last row of the previous page or nothing
+     *     for the first page
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> after(Object... lastRowKey) {
+        operations.add(Db.after(lastRowKey));
+        return this;
+    }
+
+    /**
+     * Stream the result with the given fetch size instead of loading it at once. The collection
+     * holds an open cursor on the connection until it is closed.
+     *
+     * @param fetchSize The count of rows per round trip
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> stream(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Select only the given attributes. Objects are partially loaded, the other attributes are
+     * marked as not loaded and not written by a later save. The objects must implement
+     * DbTrackedObject.
+     *
+     * @param attributes The names of the attributes to load
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> select(String... attributes) {
+        this.select = attributes;
+        return this;
+    }
+
+    /**
+     * Select only the attributes of the getters.
+     *
+     * @param getters The getters of the attributes to load
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> select(Identifier... getters) {
+        String[] attributes = new String[getters.length];
+        for (int i = 0; i < getters.length; i++)
+            attributes[i] = MPojo.toAttributeName(getters[i]);
+        return select(attributes);
+    }
+
+    public String[] getSelect() {
+        return select;
+    }
+
+    /**
+     * Select count(*), the value is named 'count' in the result row.
+     *
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> count() {
+        return aggregate(Db.count());
+    }
+
+    /**
+     * Select count(DISTINCT attribute), the value is named 'count_distinct_[attribute]'.
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> countDistinct(String attribute) {
+        return aggregate(Db.countDistinct(attribute));
+    }
+
+    /**
+     * Select sum(attribute), the value is named 'sum_[attribute]'.
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> sum(String attribute) {
+        return aggregate(Db.sum(attribute));
+    }
+
+    /**
+     * Select min(attribute), the value is named 'min_[attribute]'.
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> min(String attribute) {
+        return aggregate(Db.min(attribute));
+    }
+
+    /**
+     * Select max(attribute), the value is named 'max_[attribute]'.
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> max(String attribute) {
+        return aggregate(Db.max(attribute));
+    }
+
+    /**
+     * Select avg(attribute), the value is named 'avg_[attribute]'.
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> avg(String attribute) {
+        return aggregate(Db.avg(attribute));
+    }
+
+    /**
+     * Add an aggregate to the selected values of an aggregate query.
+     *
+     * @param aggregate a {@link de.mhus.lib.adb.query.AAggregate} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> aggregate(AAggregate aggregate) {
+        if (aggregates == null) aggregates = new LinkedList<>();
+        aggregates.add(aggregate);
+        return this;
+    }
+
+    public List<AAggregate> getAggregates() {
+        return aggregates == null ? new LinkedList<>() : aggregates;
+    }
+
+    /**
+     * Group the aggregates by the attributes. The attributes are also selected in front of the
+     * aggregates.
+     *
+     * @param attributes a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> groupBy(String... attributes) {
+        operations.add(new AGroupBy(type, attributes));
+        return this;
+    }
+
+    /**
+     * groupBy.
+     *
+     * @param getters a {@link java.util.function.Function} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> groupBy(Identifier... getters) {
+        String[] attributes = new String[getters.length];
+        for (int i = 0; i < getters.length; i++)
+            attributes[i] = MPojo.toAttributeName(getters[i]);
+        return groupBy(attributes);
+    }
+
+    /**
+     * Restrict the groups, e.g. having(Db.gt(Db.count(), Db.fix("10"))).
+     *
+     * @param parts a {@link de.mhus.lib.adb.query.APart} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> having(APart... parts) {
+        operations.add(new AHaving(parts));
+        return this;
+    }
+
+    /**
+     * Load the relation eager for all objects of the result with one query per page of results.
+     *
+     * @param relationName Name of the relation attribute
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> fetch(String relationName) {
+        if (fetch == null) fetch = new LinkedList<>();
+        fetch.add(relationName);
+        return this;
+    }
+
+    /**
+     * fetch.
+     *
+     * @param getter a {@link java.util.function.Function} object.
+     * @return a {@link de.mhus.lib.adb.query.AQuery} object.
+     */
+    public AQuery<T> fetch(Identifier getter) {
+        return fetch(MPojo.toAttributeName(getter));
+    }
+
+    public String[] getFetch() {
+        return fetch == null ? null : fetch.toArray(new String[fetch.size()]);
+    }
+
     /**
      * isNull.
      *
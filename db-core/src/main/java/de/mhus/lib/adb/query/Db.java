@@ -478,6 +478,65 @@ public class Db {
         return new AList(list);
     }
 
+    /**
+     * count(*) of the rows, e.g. to use in a having part.
+     *
+     * @return a {@link de.mhus.lib.adb.query.AAggregate} object.
+     */
+    public static AAggregate count() {
+        return new AAggregate(AAggregate.FUNCTION.COUNT, null, null);
+    }
+
+    /**
+     * count(DISTINCT attribute).
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AAggregate} object.
+     */
+    public static AAggregate countDistinct(String attribute) {
+        return new AAggregate(AAggregate.FUNCTION.COUNT_DISTINCT, null, attribute);
+    }
+
+    /**
+     * sum(attribute).
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AAggregate} object.
+     */
+    public static AAggregate sum(String attribute) {
+        return new AAggregate(AAggregate.FUNCTION.SUM, null, attribute);
+    }
+
+    /**
+     * min(attribute).
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AAggregate} object.
+     */
+    public static AAggregate min(String attribute) {
+        return new AAggregate(AAggregate.FUNCTION.MIN, null, attribute);
+    }
+
+    /**
+     * max(attribute).
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AAggregate} object.
+     */
+    public static AAggregate max(String attribute) {
+        return new AAggregate(AAggregate.FUNCTION.MAX, null, attribute);
+    }
+
+    /**
+     * avg(attribute).
+     *
+     * @param attribute a {@link java.lang.String} object.
+     * @return a {@link de.mhus.lib.adb.query.AAggregate} object.
+     */
+    public static AAggregate avg(String attribute) {
+        return new AAggregate(AAggregate.FUNCTION.AVG, null, attribute);
+    }
+
     /**
      * limit.
      *
@@ -500,6 +559,16 @@ public class Db {
         return new ALimit(offset, limit);
     }
 
+    /**
+     * Keyset pagination, select the rows after the given primary key.
+     *
+     * @param lastRowKey The primary key values of the last row or nothing for the first page
+     * @return a {@link de.mhus.lib.adb.query.AOperation} object.
+     */
+    public static AOperation after(Object... lastRowKey) {
+        return new AAfter(lastRowKey);
+    }
+
     private static class AContainsWrap extends AAttribute {
 
         private AAttribute attr;
@@ -15,9 +15,15 @@
  */
 package de.mhus.lib.adb.relation;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
 import de.mhus.lib.adb.IRelationObject;
 import de.mhus.lib.adb.model.Field;
 import de.mhus.lib.adb.model.FieldRelation;
+import de.mhus.lib.adb.model.Table;
 import de.mhus.lib.core.parser.AttributeMap;
 import de.mhus.lib.sql.DbConnection;
 
@@ -153,4 +159,91 @@ public class RelMultible<T> implements IRelationObject {
         // TODO Auto-generated method stub
 
     }
+
+    /**
+     * Load the relations of all given objects with one IN query per chunk of ids instead of one
+     * query per object.
+     *
+     * @param field The relation field
+     * @param objects The loaded objects owning the relation
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public static void prefetch(FieldRelation field, List<?> objects) throws Exception {
+        Class<?> target = field.getConfig().target();
+        String src = field.getConfig().sourceAttribute();
+        if ("".equals(src)) src = "id";
+        src = src.toLowerCase();
+        String tar = field.getConfig().targetAttribute();
+        if ("".equals(tar)) tar = field.getName() + "id";
+
+        Field idField = field.getTable().getField(src);
+        if (idField == null) return;
+        Table targetTable =
+                field.getManager().getTable(field.getManager().getRegistryName(target));
+        if (targetTable == null) return;
+        Field tarField = targetTable.getField(tar.toLowerCase());
+        if (tarField == null) return;
+
+        String order = "";
+        if (!"".equals(field.getConfig().orderBy())) {
+            order =
+                    " ORDER BY $db."
+                            + field.getManager().getMappingName(target)
+                            + "."
+                            + field.getConfig().orderBy()
+                            + "$";
+        }
+
+        // collect the relations by id
+        HashMap<String, List<RelMultible<Object>>> index = new HashMap<>();
+        ArrayList<Object> ids = new ArrayList<>();
+        for (Object obj : objects) {
+            IRelationObject rel = field.getRelationObject(obj);
+            if (!(rel instanceof RelMultible)) continue;
+            RelMultible<Object> multi = (RelMultible<Object>) rel;
+            if (multi.relations != null) continue;
+            Object id = idField.getFromTarget(obj);
+            if (id == null) continue;
+            List<RelMultible<Object>> list = index.get(String.valueOf(id));
+            if (list == null) {
+                list = new LinkedList<>();
+                index.put(String.valueOf(id), list);
+                ids.add(id);
+            }
+            list.add(multi);
+        }
+
+        String qualification =
+                "$db." + field.getManager().getMappingName(target) + "." + tar + "$ IN ($ids$)";
+        int chunkSize = field.getPrefetchChunkSize();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<Object> chunk = ids.subList(i, Math.min(ids.size(), i + chunkSize));
+            HashMap<String, List<Object>> results = new HashMap<>();
+            for (Object res :
+                    field.getManager()
+                            .getByQualification(
+                                    target, qualification + order, new AttributeMap("ids", chunk))
+                            .toCacheAndClose()) {
+                String key = String.valueOf(tarField.get(res));
+                List<Object> list = results.get(key);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    results.put(key, list);
+                }
+                list.add(res);
+            }
+            // every parent of the chunk gets a list, also if no relation was found
+            for (Object id : chunk) {
+                List<Object> list = results.get(String.valueOf(id));
+                if (list == null) list = new ArrayList<>();
+                for (RelMultible<Object> multi : index.get(String.valueOf(id))) {
+                    synchronized (multi) {
+                        multi.relations =
+                                new RelList<Object>(new ArrayList<>(list), field.getConfig());
+                    }
+                }
+            }
+        }
+    }
 }
@@ -15,11 +15,15 @@
  */
 package de.mhus.lib.adb.relation;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 
 import de.mhus.lib.adb.IRelationObject;
 import de.mhus.lib.adb.model.Field;
 import de.mhus.lib.adb.model.FieldRelation;
+import de.mhus.lib.adb.model.Table;
 import de.mhus.lib.core.parser.AttributeMap;
 import de.mhus.lib.sql.DbConnection;
 
@@ -29,11 +33,12 @@ public class RelSingle<T> implements IRelationObject {
     private Object obj;
     private T relation;
     private boolean changed = false;
+    private boolean loaded = false;
 
     @SuppressWarnings("unchecked")
     public T getRelation() throws Exception {
         synchronized (this) {
-            if (relation == null) {
+            if (relation == null && !loaded) {
 
                 String src = field.getConfig().sourceAttribute();
                 if ("".equals(src)) src = field.getName() + "id";
@@ -61,6 +66,7 @@ public class RelSingle<T> implements IRelationObject {
                                 .toCacheAndClose();
 
                 if (res != null && res.size() > 0) relation = (T) res.get(0);
+                loaded = true;
 
                 // relation = (T) field.getManager().getObject(field.getConfig().target(), id);
 
@@ -73,11 +79,13 @@ public class RelSingle<T> implements IRelationObject {
     public void setRelation(T relation) {
         changed = true;
         this.relation = relation;
+        loaded = true;
     }
 
     public void reset() {
         synchronized (this) {
             relation = null;
+            loaded = false;
         }
     }
 
@@ -134,6 +142,7 @@ public class RelSingle<T> implements IRelationObject {
     public void loaded(DbConnection con) {
         synchronized (this) {
             relation = null;
+            loaded = false;
             changed = false;
         }
     }
@@ -142,4 +151,78 @@ public class RelSingle<T> implements IRelationObject {
     public void prepareSave(DbConnection con) throws Exception {
         prepare();
     }
+
+    /**
+     * Load the relations of all given objects with one IN query per chunk of ids instead of one
+     * query per object.
+     *
+     * @param field The relation field
+     * @param objects The loaded objects owning the relation
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public static void prefetch(FieldRelation field, List<?> objects) throws Exception {
+        String src = field.getConfig().sourceAttribute();
+        if ("".equals(src)) src = field.getName() + "id";
+        src = src.toLowerCase();
+        String tar = field.getConfig().targetAttribute();
+        if ("".equals(tar)) tar = "id";
+
+        Field idField = field.getTable().getField(src);
+        if (idField == null) return;
+        Class<?> target = field.getConfig().target();
+        Table targetTable =
+                field.getManager().getTable(field.getManager().getRegistryName(target));
+        if (targetTable == null) return;
+        Field tarField = targetTable.getField(tar.toLowerCase());
+        if (tarField == null) return;
+
+        // collect the relations by foreign key
+        HashMap<String, List<RelSingle<Object>>> index = new HashMap<>();
+        ArrayList<Object> ids = new ArrayList<>();
+        for (Object obj : objects) {
+            IRelationObject rel = field.getRelationObject(obj);
+            if (!(rel instanceof RelSingle)) continue;
+            RelSingle<Object> single = (RelSingle<Object>) rel;
+            if (single.relation != null || single.loaded) continue;
+            Object id = idField.getFromTarget(obj);
+            if (id == null) continue;
+            List<RelSingle<Object>> list = index.get(String.valueOf(id));
+            if (list == null) {
+                list = new LinkedList<>();
+                index.put(String.valueOf(id), list);
+                ids.add(id);
+            }
+            list.add(single);
+        }
+
+        String qualification =
+                "$db." + field.getManager().getMappingName(target) + "." + tar + "$ IN ($ids$)";
+        int chunkSize = field.getPrefetchChunkSize();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<Object> chunk = ids.subList(i, Math.min(ids.size(), i + chunkSize));
+            for (Object res :
+                    field.getManager()
+                            .getByQualification(
+                                    target, qualification, new AttributeMap("ids", chunk))
+                            .toCacheAndClose()) {
+                List<RelSingle<Object>> list = index.get(String.valueOf(tarField.get(res)));
+                if (list == null) continue;
+                for (RelSingle<Object> single : list) {
+                    synchronized (single) {
+                        single.relation = res;
+                        single.changed = false;
+                    }
+                }
+            }
+            // dangling foreign keys are loaded without a relation, don't query them again
+            for (Object id : chunk) {
+                for (RelSingle<Object> single : index.get(String.valueOf(id))) {
+                    synchronized (single) {
+                        single.loaded = true;
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.adb.transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.mhus.lib.basics.RC;
+import de.mhus.lib.core.MThread;
+import de.mhus.lib.core.cfg.CfgBoolean;
+import de.mhus.lib.core.cfg.CfgLong;
+import de.mhus.lib.core.parser.AttributeMap;
+import de.mhus.lib.errors.MRuntimeException;
+import de.mhus.lib.errors.TimeoutRuntimeException;
+import de.mhus.lib.sql.DbConnection;
+import de.mhus.lib.sql.DbPool;
+import de.mhus.lib.sql.DbResult;
+import de.mhus.lib.sql.DbStatement;
+import de.mhus.lib.sql.Dialect;
+
+/**
+ * Lock strategy using the advisory locks of the database (GET_LOCK on MySQL, pg_advisory_lock on
+ * PostgreSQL). Every lock holds a connection of the pool until it is released, locks of a died
+ * session are released by the database server. If the dialect does not support advisory locks
+ * (HSQLDB, H2) the locks are managed in memory by a MemoryLockStrategy.
+ */
+public class DbAdvisoryLockStrategy extends LockStrategy {
+
+    private static final CfgLong CFG_SLEEP_TIME =
+            new CfgLong(DbAdvisoryLockStrategy.class, "sleepTime", 200);
+    private static final CfgBoolean CFG_IGNORE_LOCK_OWNER =
+            new CfgBoolean(DbAdvisoryLockStrategy.class, "ignoreLockOwner", false);
+
+    private long sleepTime = CFG_SLEEP_TIME.value();
+    private boolean ignoreLockOwner = CFG_IGNORE_LOCK_OWNER.value();
+    private MemoryLockStrategy fallback;
+    private ConcurrentHashMap<String, Held> held = new ConcurrentHashMap<>();
+
+    @Override
+    public void lock(Object object, String key, LockBase transaction, long timeout) {
+        DbPool pool = transaction.getDbManager().getPool();
+        Dialect dialect = pool.getDialect();
+        if (dialect.getAdvisoryLockSql() == null) {
+            getFallback().lock(object, key, transaction, timeout);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        long sleep = 10;
+        DbConnection con = null;
+        try {
+            con = pool.getConnection();
+            while (true) {
+                long waited = System.currentTimeMillis() - start;
+                long seconds =
+                        dialect.isAdvisoryLockWaiting() ? toTimeoutSeconds(timeout, waited) : 0;
+                if (isTrue(execute(con, dialect.getAdvisoryLockSql(), key, seconds))) {
+                    held.put(key, new Held(transaction.getName(), con));
+                    con = null;
+                    return;
+                }
+                if (timeout >= 0 && System.currentTimeMillis() - start > timeout)
+                    throw new TimeoutRuntimeException(key);
+                if (!dialect.isAdvisoryLockWaiting()) {
+                    // the database returned directly, retry with backoff
+                    MThread.sleep(sleep);
+                    sleep = Math.min(sleep * 2, sleepTime);
+                }
+            }
+        } catch (TimeoutRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MRuntimeException(RC.STATUS.ERROR, "lock {1} failed", key, e);
+        } finally {
+            if (con != null) con.close();
+        }
+    }
+
+    @Override
+    public void releaseLock(Object object, String key, LockBase transaction) {
+        Dialect dialect = transaction.getDbManager().getPool().getDialect();
+        if (dialect.getAdvisoryUnlockSql() == null) {
+            getFallback().releaseLock(object, key, transaction);
+            return;
+        }
+
+        Held current = held.get(key);
+        if (current == null) return;
+        if (!current.owner.equals(transaction.getName())) {
+            log().w("you are not the lock owner", key, current.owner, transaction.getName());
+            if (!ignoreLockOwner) return;
+        }
+        if (!held.remove(key, current)) return;
+        try {
+            execute(current.con, dialect.getAdvisoryUnlockSql(), key, 0);
+        } catch (Exception e) {
+            // the lock is released by the server if the session is closed
+            log().w("release lock failed", key, e);
+        } finally {
+            current.con.close();
+        }
+    }
+
+    @Override
+    public boolean isLocked(Object object, String key, LockBase transaction) {
+        Dialect dialect = transaction.getDbManager().getPool().getDialect();
+        if (dialect.getAdvisoryLockedSql() == null)
+            return getFallback().isLocked(object, key, transaction);
+        if (held.containsKey(key)) return true;
+
+        DbConnection con = null;
+        try {
+            con = transaction.getDbManager().getPool().getConnection();
+            return isTrue(execute(con, dialect.getAdvisoryLockedSql(), key, 0));
+        } catch (Exception e) {
+            log().d(key, e);
+        } finally {
+            if (con != null) con.close();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isLockedByOwner(Object object, String key, LockBase transaction) {
+        Dialect dialect = transaction.getDbManager().getPool().getDialect();
+        if (dialect.getAdvisoryLockSql() == null)
+            return getFallback().isLockedByOwner(object, key, transaction);
+        // the owner is known for the locks of this node only
+        Held current = held.get(key);
+        return current != null && current.owner.equals(transaction.getName());
+    }
+
+    /**
+     * Return the remaining seconds to wait for the lock, rounded up and clamped to the integer
+     * range of the databases. A negative timeout waits the maximum time.
+     *
+     * @param timeout The timeout in milliseconds
+     * @param waited The already waited time in milliseconds
+     * @return The seconds
+     */
+    protected long toTimeoutSeconds(long timeout, long waited) {
+        if (timeout < 0) return Integer.MAX_VALUE;
+        long remaining = timeout - waited;
+        if (remaining <= 0) return 0;
+        return Math.min(remaining / 1000 + (remaining % 1000 == 0 ? 0 : 1), Integer.MAX_VALUE);
+    }
+
+    protected String execute(DbConnection con, String sql, String key, long timeout)
+            throws Exception {
+        AttributeMap attributes = new AttributeMap();
+        attributes.put("name", toLockName(key));
+        attributes.put("hash", toLockHash(key));
+        attributes.put("timeout", timeout);
+        DbStatement sth = con.createStatement(sql);
+        try {
+            DbResult res = sth.executeQuery(attributes);
+            String ret = res.next() ? res.getString(1) : null;
+            res.close();
+            // do not keep a transaction open while holding the lock
+            con.commit();
+            return ret;
+        } finally {
+            sth.close();
+        }
+    }
+
+    protected boolean isTrue(String value) {
+        if (value == null) return false;
+        value = value.trim();
+        if ("t".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value)) return true;
+        try {
+            return Long.parseLong(value) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the lock name. MySQL supports 64 characters, longer keys are hashed.
+     *
+     * @param key The lock key
+     * @return The name
+     */
+    protected String toLockName(String key) {
+        if (key.length() <= 64) return key;
+        return "adb:" + Long.toHexString(toLockHash(key));
+    }
+
+    /**
+     * Return a positive 62 bit hash of the key for databases using numeric lock ids.
+     *
+     * @param key The lock key
+     * @return The hash
+     */
+    protected long toLockHash(String key) {
+        try {
+            byte[] digest =
+                    MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) hash = (hash << 8) | (digest[i] & 0xff);
+            return hash & 0x3fffffffffffffffL;
+        } catch (Exception e) {
+            return key.hashCode() & 0x7fffffffL;
+        }
+    }
+
+    protected synchronized MemoryLockStrategy getFallback() {
+        if (fallback == null) fallback = new MemoryLockStrategy();
+        return fallback;
+    }
+
+    public long getSleepTime() {
+        return sleepTime;
+    }
+
+    public void setSleepTime(long sleepTime) {
+        this.sleepTime = sleepTime;
+    }
+
+    private static class Held {
+        private String owner;
+        private DbConnection con;
+
+        private Held(String owner, DbConnection con) {
+            this.owner = owner;
+            this.con = con;
+        }
+    }
+}
@@ -16,13 +16,20 @@
 package de.mhus.lib.adb.transaction;
 
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.mhus.lib.core.MPeriod;
-import de.mhus.lib.core.MThread;
 import de.mhus.lib.core.cfg.CfgBoolean;
 import de.mhus.lib.core.cfg.CfgLong;
 import de.mhus.lib.errors.TimeoutRuntimeException;
 
+/**
+ * Lock strategy for one JVM. The lock table is striped by the hash of the key, waiting threads
+ * park on the condition of the current lock and are signalled if the lock is released or wake up
+ * if the lock gets older then maxLockAge.
+ */
 public class MemoryLockStrategy extends LockStrategy {
 
     private static final CfgLong CFG_MAX_LOCK_AGE =
@@ -31,36 +38,61 @@ public class MemoryLockStrategy extends LockStrategy {
             new CfgLong(MemoryLockStrategy.class, "sleepTime", 200);
     private static final CfgBoolean CFG_IGNORE_LOCK_OWNER =
             new CfgBoolean(MemoryLockStrategy.class, "ignoreLockOwner", false);
+    private static final CfgLong CFG_STRIPES =
+            new CfgLong(MemoryLockStrategy.class, "stripes", 64);
 
     private long maxLockAge = CFG_MAX_LOCK_AGE.value();
     private long sleepTime = CFG_SLEEP_TIME.value();
     private boolean ignoreLockOwner = CFG_IGNORE_LOCK_OWNER.value();
 
-    private HashMap<String, LockObject> locks = new HashMap<>();
+    private final Stripe[] stripes;
+
+    public MemoryLockStrategy() {
+        stripes = new Stripe[(int) Math.max(1, CFG_STRIPES.value())];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe();
+    }
+
+    private Stripe getStripe(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[Math.floorMod(h, stripes.length)];
+    }
+
+    /**
+     * Return the current lock or null. A lock older then maxLockAge is removed and the waiters are
+     * signalled. Must be called with the stripe lock.
+     */
+    private LockObject getCurrent(Stripe stripe, String key) {
+        LockObject current = stripe.locks.get(key);
+        if (current != null && current.getAge() > maxLockAge) {
+            log().i("remove stare lock", current.owner, current.ownerStr, key);
+            stripe.locks.remove(key);
+            current.released.signalAll();
+            return null;
+        }
+        return current;
+    }
 
     @Override
     public boolean isLocked(Object object, String key, LockBase transaction) {
-        synchronized (this) {
-            LockObject current = locks.get(key);
-            if (current != null && current.getAge() > maxLockAge) {
-                log().i("remove stare lock", current.owner, current.ownerStr, key);
-                locks.remove(key);
-                return false;
-            }
-            return current != null;
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            return getCurrent(stripe, key) != null;
+        } finally {
+            stripe.lock.unlock();
         }
     }
 
     @Override
     public boolean isLockedByOwner(Object object, String key, LockBase transaction) {
-        synchronized (this) {
-            LockObject current = locks.get(key);
-            if (current != null && current.getAge() > maxLockAge) {
-                log().i("remove stare lock", current.owner, current.ownerStr, key);
-                locks.remove(key);
-                return false;
-            }
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            LockObject current = getCurrent(stripe, key);
             return current != null && current.owner.equals(transaction.getName());
+        } finally {
+            stripe.lock.unlock();
         }
     }
 
@@ -68,42 +100,52 @@ public class MemoryLockStrategy extends LockStrategy {
     public void lock(Object object, String key, LockBase transaction, long timeout) {
 
         long start = System.currentTimeMillis();
-        while (true) {
-            synchronized (this) {
-                LockObject current = locks.get(key);
-                if (current != null && current.getAge() > maxLockAge) {
-                    log().i("remove stare lock", current.owner, current.ownerStr, key);
-                    locks.remove(key);
-                    continue;
-                }
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            while (true) {
+                LockObject current = getCurrent(stripe, key);
                 if (current == null) {
-                    locks.put(key, new LockObject(transaction));
+                    stripe.locks.put(key, new LockObject(transaction, stripe));
                     return;
-                } else {
-                    log().t("wait for lock", key);
                 }
-                //				if (current != null && current.equals(transaction)) {
-                //					// already locked by me
-                //					return;
-                //				}
+                log().t("wait for lock", key);
+
+                long waited = System.currentTimeMillis() - start;
+                if (waited > timeout) throw new TimeoutRuntimeException(key);
+                // wake up at the latest if the lock gets stale
+                long wait = Math.min(timeout - waited, maxLockAge - current.getAge());
+                try {
+                    current.released.await(Math.max(1, wait), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TimeoutRuntimeException("interrupted", key, e);
+                }
             }
-
-            if (System.currentTimeMillis() - start > timeout)
-                throw new TimeoutRuntimeException(key);
-            MThread.sleepForSure(sleepTime);
+        } finally {
+            stripe.lock.unlock();
         }
     }
 
     @Override
     public void releaseLock(Object object, String key, LockBase transaction) {
-        synchronized (this) {
-            LockObject obj = locks.get(key);
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            LockObject obj = stripe.locks.get(key);
             if (obj == null) return;
-            if (obj.owner.equals(transaction.getName())) locks.remove(key);
-            else {
+            if (obj.owner.equals(transaction.getName())) {
+                stripe.locks.remove(key);
+                obj.released.signalAll();
+            } else {
                 log().w("you are not the lock owner", key, obj.owner, transaction.getName());
-                if (ignoreLockOwner) locks.remove(key);
+                if (ignoreLockOwner) {
+                    stripe.locks.remove(key);
+                    obj.released.signalAll();
+                }
             }
+        } finally {
+            stripe.lock.unlock();
         }
     }
 
@@ -115,18 +157,31 @@ public class MemoryLockStrategy extends LockStrategy {
         this.maxLockAge = maxLockAge;
     }
 
+    /**
+     * Not used any more, waiting threads are signalled if the lock is released.
+     *
+     * @return x
+     */
+    @Deprecated
     public long getSleepTime() {
         return sleepTime;
     }
 
+    @Deprecated
     public void setSleepTime(long sleepTime) {
         this.sleepTime = sleepTime;
     }
 
-    private class LockObject {
-        public LockObject(LockBase transaction) {
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final HashMap<String, LockObject> locks = new HashMap<>();
+    }
+
+    private static class LockObject {
+        public LockObject(LockBase transaction, Stripe stripe) {
             owner = transaction.getName();
             ownerStr = transaction.toString();
+            released = stripe.lock.newCondition();
         }
 
         public long getAge() {
@@ -136,5 +191,6 @@ public class MemoryLockStrategy extends LockStrategy {
         private long created = System.currentTimeMillis();
         private String owner;
         private String ownerStr;
+        private Condition released;
     }
 }
@@ -0,0 +1,337 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.sql;
+
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import de.mhus.lib.annotations.jmx.JmxManaged;
+import de.mhus.lib.basics.RC;
+import de.mhus.lib.core.MActivator;
+import de.mhus.lib.core.MSystem;
+import de.mhus.lib.core.node.INode;
+import de.mhus.lib.errors.MException;
+import de.mhus.lib.errors.TimeoutRuntimeException;
+
+/**
+ * A bounded pool without a global lock. Idle connections are held in a concurrent deque and the
+ * number of connections is limited by a fair semaphore. Waiting threads get a connection in the
+ * order of the request or fail after the acquire timeout. The housekeeper validates idle
+ * connections, evicts closed, timed out or broken ones and fills the pool up to the minimum size.
+ *
+ * <p>Configuration: maxSize (default 20), minSize (default 0), acquireTimeout in milliseconds
+ * (default 30000), validationTimeout in seconds (default 5).
+ */
+@JmxManaged(descrition = "Bounded database pool")
+public class BoundedDbPool extends DbPool {
+
+    private ConcurrentLinkedDeque<InternalDbConnection> idle =
+            new ConcurrentLinkedDeque<InternalDbConnection>();
+    private Set<InternalDbConnection> connections = ConcurrentHashMap.newKeySet();
+    private Set<InternalDbConnection> leased = ConcurrentHashMap.newKeySet();
+    private Semaphore permits;
+    private int minSize;
+    private int maxSize;
+    private long acquireTimeout;
+    private int validationTimeout;
+    private volatile boolean closed;
+
+    /**
+     * Create a new pool from central configuration. It's used the MApi configuration with the key
+     * of this class.
+     *
+     * @throws java.lang.Exception if any.
+     */
+    public BoundedDbPool() throws Exception {
+        this(null, null);
+    }
+
+    /**
+     * Create a new pool from a configuration.
+     *
+     * @param config Config element or null. null will use the central MApi configuration.
+     * @param activator Activator or null. null will use the central MApi Activator.
+     * @throws java.lang.Exception if any.
+     */
+    public BoundedDbPool(INode config, MActivator activator) throws Exception {
+        super(config, activator);
+        initBounds();
+    }
+
+    /**
+     * Create a pool with the DbProvider.
+     *
+     * @param provider a {@link de.mhus.lib.sql.DbProvider} object.
+     */
+    public BoundedDbPool(DbProvider provider) {
+        super(provider);
+        initBounds();
+    }
+
+    protected void initBounds() {
+        INode config = getConfig();
+        maxSize = Math.max(1, config.getInt("maxSize", 20));
+        minSize = Math.min(config.getInt("minSize", 0), maxSize);
+        acquireTimeout = config.getLong("acquireTimeout", 30000);
+        validationTimeout = config.getInt("validationTimeout", 5);
+        permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Take an idle connection or create a new one if the maximum size is not reached. Waits for
+     * a released connection until the acquire timeout.
+     */
+    @Override
+    public DbConnection getConnection() throws Exception {
+        log().t(getName(), "getConnection");
+        if (closed) throw new MException(RC.STATUS.ERROR, "pool {1} is closed", getName());
+
+        if (!permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+            printStackTrace();
+            throw new TimeoutRuntimeException(
+                    "no free connection in pool", getName(), maxSize, acquireTimeout);
+        }
+        try {
+            InternalDbConnection con;
+            while ((con = idle.pollFirst()) != null) {
+                if (con.isClosed() || con.checkTimedOut()) {
+                    connections.remove(con);
+                    continue;
+                }
+                leased.add(con);
+                con.setUsed(true);
+                return new DbConnectionProxy(this, con);
+            }
+            DbConnection out = createConnection();
+            if (out == null) permits.release();
+            return out;
+        } catch (Throwable t) {
+            permits.release();
+            throw t;
+        }
+    }
+
+    /**
+     * Overwrite to configure new created connections before use.
+     *
+     * @return created connection or null if not possible
+     * @throws Exception
+     */
+    protected DbConnection createConnection() throws Exception {
+        InternalDbConnection con = createInternalConnection();
+        if (con == null) return null;
+        leased.add(con);
+        con.setUsed(true);
+        return new DbConnectionProxy(this, con);
+    }
+
+    protected InternalDbConnection createInternalConnection() throws Exception {
+        try {
+            InternalDbConnection con = getProvider().createConnection();
+            if (con == null) return null;
+            con.setPool(this);
+            connections.add(con);
+            if (tracePoolSize.value()) log().d("Create DB Connection", connections.size());
+            return con;
+        } catch (Exception e) {
+            // e.g. mysql: Too many connections
+            if (e.getMessage() != null && e.getMessage().indexOf("Too many connections") > -1) {
+                printStackTrace();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected void releaseConnection(InternalDbConnection con) {
+        if (!leased.remove(con)) return; // not leased from this pool or already released
+        if (closed || con.isClosed()) {
+            connections.remove(con);
+            con.close();
+        } else {
+            // LIFO, the last used connections are reused, the others will time out
+            idle.offerFirst(con);
+        }
+        permits.release();
+    }
+
+    /**
+     * Validate the connection with the jdbc driver.
+     *
+     * @param con
+     * @return true if the connection can be used
+     */
+    protected boolean isValid(InternalDbConnection con) {
+        if (con.isClosed()) return false;
+        if (!(con instanceof JdbcConnection)) return true;
+        try {
+            Connection jdbc = ((JdbcConnection) con).getConnection();
+            return jdbc != null && jdbc.isValid(validationTimeout);
+        } catch (Throwable t) {
+            log().d("validation failed", getName(), t);
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Validate idle connections and remove closed, timed out or broken ones. If unusedAlso is
+     * set the idle connections over the minimum size will be closed. At the end the pool is filled
+     * up to the minimum size.
+     */
+    @Override
+    @JmxManaged(descrition = "Cleanup unused connections")
+    public void cleanup(boolean unusedAlso) {
+        log().t(getName(), "cleanup");
+        if (closed || permits == null) return;
+        boolean removed = false;
+        // check every idle connection once, a connection in check holds a permit like a leased one,
+        // so the pool can't create more then maxSize connections in the meantime
+        int cnt = idle.size();
+        for (int i = 0; i < cnt && !closed; i++) {
+            if (!permits.tryAcquire()) break; // all connections are in use
+            try {
+                InternalDbConnection con = idle.pollFirst();
+                if (con == null) break;
+                try {
+                    if (con.checkTimedOut()
+                            || !isValid(con)
+                            || unusedAlso && connections.size() > minSize) {
+                        connections.remove(con);
+                        con.close();
+                        removed = true;
+                    } else {
+                        idle.offerLast(con);
+                    }
+                } catch (Throwable t) {
+                    log().d("cleanup failed", getName(), t);
+                    connections.remove(con);
+                    con.close();
+                    removed = true;
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        for (InternalDbConnection con : connections) {
+            if (!con.isClosed()) continue;
+            if (leased.contains(con)) {
+                // closed directly and not by the user, give the permit back
+                releaseConnection(con);
+                removed = true;
+            } else {
+                connections.remove(con);
+                removed = true;
+            }
+        }
+        if (removed && tracePoolSize.value()) log().d("Pool cleanup", connections.size());
+
+        // fill up to minimum size
+        while (!closed && connections.size() < minSize && permits.tryAcquire()) {
+            try {
+                InternalDbConnection con = createInternalConnection();
+                if (con == null) break;
+                idle.offerLast(con);
+            } catch (Throwable t) {
+                log().d("can't create connection", getName(), t);
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Current pool size.
+     */
+    @Override
+    @JmxManaged(descrition = "Current size of the pool")
+    public int getSize() {
+        return connections.size();
+    }
+
+    @Override
+    @JmxManaged(descrition = "Current used connections in the pool")
+    public int getUsedSize() {
+        return leased.size();
+    }
+
+    @JmxManaged(descrition = "Current idle connections in the pool")
+    public int getIdleSize() {
+        return idle.size();
+    }
+
+    @JmxManaged(descrition = "Threads waiting for a connection")
+    public int getWaitingSize() {
+        return permits.getQueueLength();
+    }
+
+    @JmxManaged(descrition = "Maximum size of the pool")
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @JmxManaged(descrition = "Minimum size of the pool")
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Close the pool and all connections.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        log().t(getName(), "close");
+        closed = true;
+        for (InternalDbConnection con : connections) con.close();
+        connections.clear();
+        idle.clear();
+        leased.clear();
+    }
+
+    @Override
+    @JmxManaged(descrition = "Return the usage of the connections")
+    public String dumpUsage(boolean used) {
+        StringBuilder out = new StringBuilder();
+        for (ConnectionTrace trace : getStackTraces().values()) {
+            out.append(trace.toString()).append("\n");
+        }
+        return out.toString();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(this, connections.size(), leased.size(), maxSize);
+    }
+}
@@ -121,6 +121,15 @@ public interface DbConnection extends TransactionConnection {
      */
     public long getInstanceId();
 
+    /**
+     * Run the task after the changes of the current transaction are committed. A rollback
+     * discards the pending tasks. Used to invalidate caches after the changes are visible for
+     * other connections.
+     *
+     * @param task The task
+     */
+    public void afterCommit(Runnable task);
+
     /**
      * Create a query compiler for this connection. Used by the DbStatement class.
      *
@@ -120,6 +120,11 @@ public class DbConnectionProxy extends MObject implements DbConnection {
         return id;
     }
 
+    @Override
+    public void afterCommit(Runnable task) {
+        instance.afterCommit(task);
+    }
+
     @Override
     public Parser createQueryCompiler(String language) throws MException {
         return instance.createQueryCompiler(language);
@@ -34,6 +34,10 @@ import de.mhus.lib.core.node.INode;
 import de.mhus.lib.core.node.MNode;
 import de.mhus.lib.core.service.UniqueId;
 import de.mhus.lib.errors.MException;
+import de.mhus.lib.sql.analytics.SqlAnalytics;
+import de.mhus.lib.sql.analytics.SqlAnalyzer;
+import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer;
+import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer.Snapshot;
 
 /**
  * The pool handles a bundle of connections. The connections should have the same credentials (url,
@@ -191,6 +195,15 @@ public abstract class DbPool extends MJmx implements DbTransactionable {
      */
     public abstract DbConnection getConnection() throws Exception;
 
+    /**
+     * Called by the connection after it was released by the user (set to unused). Overwrite to
+     * bring the connection back into the pool. By default pools scan the connections for unused
+     * ones.
+     *
+     * @param con The released connection
+     */
+    protected void releaseConnection(InternalDbConnection con) {}
+
     /**
      * Current pool size.
      *
@@ -211,6 +224,32 @@ public abstract class DbPool extends MJmx implements DbTransactionable {
     @JmxManaged(descrition = "Cleanup unused connections")
     public abstract void cleanup(boolean unusedAlso);
 
+    @JmxManaged(descrition = "Runtime statistics per statement shape, times in microseconds")
+    public String getSqlStatistics() {
+        SqlAnalyzer analyzer = SqlAnalytics.getAnalyzer();
+        if (!(analyzer instanceof SqlRuntimeAnalyzer)) return String.valueOf(analyzer);
+        StringBuilder out = new StringBuilder();
+        out.append("count;errors;rows;total;p50;p95;p99;max;sql\n");
+        for (Snapshot s : ((SqlRuntimeAnalyzer) analyzer).getSnapshot()) {
+            out.append(s.getCnt()).append(';');
+            out.append(s.getErrors()).append(';');
+            out.append(s.getRows()).append(';');
+            out.append(s.getNanos() / 1000).append(';');
+            out.append(s.getP50() / 1000).append(';');
+            out.append(s.getP95() / 1000).append(';');
+            out.append(s.getP99() / 1000).append(';');
+            out.append(s.getMax() / 1000).append(';');
+            out.append(s.getSql()).append('\n');
+        }
+        return out.toString();
+    }
+
+    @JmxManaged(descrition = "Reset the runtime statistics")
+    public void resetSqlStatistics() {
+        SqlAnalyzer analyzer = SqlAnalytics.getAnalyzer();
+        if (analyzer instanceof SqlRuntimeAnalyzer) ((SqlRuntimeAnalyzer) analyzer).reset();
+    }
+
     /** Close the pool and all connections. */
     public abstract void close();
 
@@ -77,7 +77,9 @@ public class DbPoolBundle extends MObject {
             if (pool == null) {
                 INode poolCon = config.getObject(name);
                 if (poolCon != null) {
-                    pool = new DefaultDbPool(poolCon, activator);
+                    if ("bounded".equals(poolCon.getString("pool", null)))
+                        pool = new BoundedDbPool(poolCon, activator);
+                    else pool = new DefaultDbPool(poolCon, activator);
                     bundle.put(name, pool);
                 } else {
                     throw new MException(RC.ERROR, "config for pool {1} not found", name);
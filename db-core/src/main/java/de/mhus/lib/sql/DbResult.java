@@ -20,10 +20,12 @@ import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.HashMap;
 import java.util.List;
 
 import de.mhus.lib.basics.MCloseable;
 import de.mhus.lib.core.MDate;
+import de.mhus.lib.errors.NotSupportedException;
 
 /**
  * Abstract DbResult class.
@@ -33,6 +35,8 @@ import de.mhus.lib.core.MDate;
  */
 public abstract class DbResult implements MCloseable {
 
+    private HashMap<Object, Object> attachments;
+
     /**
      * getString.
      *
@@ -165,4 +169,67 @@ public abstract class DbResult implements MCloseable {
      * @throws Exception
      */
     public abstract BigDecimal getBigDecimal(String columnLabel) throws Exception;
+
+    /**
+     * Return the index of the column or -1 if index based access is not supported by this result.
+     * Index based access is much faster then access by label for the most jdbc drivers.
+     *
+     * @param columnLabel
+     * @return The index starting with 1 or -1
+     * @throws Exception If the column was not found
+     */
+    public int findColumn(String columnLabel) throws Exception {
+        return -1;
+    }
+
+    public String getString(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public InputStream getBinaryStream(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public boolean getBoolean(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public int getInt(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public long getLong(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public float getFloat(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public double getDouble(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public Timestamp getTimestamp(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    public BigDecimal getBigDecimal(int columnIndex) throws Exception {
+        throw new NotSupportedException("index based access", columnIndex);
+    }
+
+    /**
+     * Return an object attached to this result, e.g. a read plan of the reader.
+     *
+     * @param key
+     * @return The attachment or null
+     */
+    public Object getAttachment(Object key) {
+        return attachments == null ? null : attachments.get(key);
+    }
+
+    public void setAttachment(Object key, Object value) {
+        if (attachments == null) attachments = new HashMap<>();
+        attachments.put(key, value);
+    }
 }
@@ -29,6 +29,12 @@ public abstract class DbStatement extends MObject {
 
     public static final String RETURN_BINARY_KEY = "return_binary_attribute_";
 
+    /**
+     * If the key is set in the attributes the values are bound as parameters regardless of the
+     * dialect configuration. Batches need the same sql text for every entry.
+     */
+    public static final String BIND_PARAMETERS_KEY = "bind_parameters_attribute_";
+
     @Override
     protected void finalize() throws Throwable {
         close();
@@ -66,6 +72,35 @@ public abstract class DbStatement extends MObject {
      */
     public abstract int executeUpdate(Map<String, Object> attributes) throws Exception;
 
+    /**
+     * Add the query with the given attributes to the batch of this statement. The batch will be
+     * sent to the database with executeBatch(). Entries rendering a different sql text will be
+     * sent as separate batches.
+     *
+     * @param attributes
+     * @throws Exception
+     */
+    public abstract void addBatch(Map<String, Object> attributes) throws Exception;
+
+    /**
+     * Execute all pending batch entries.
+     *
+     * @return The update counts of all entries in order of the addBatch() calls
+     * @throws Exception
+     */
+    public abstract int[] executeBatch() throws Exception;
+
+    /** Discard all pending batch entries. */
+    public abstract void clearBatch();
+
+    /**
+     * Set the count of rows fetched per round trip by the next queries. Zero resets to the driver
+     * default. The dialect translates the value to the driver specific streaming mode.
+     *
+     * @param fetchSize The fetch size or 0
+     */
+    public abstract void setFetchSize(int fetchSize);
+
     /**
      * Return the used connection.
      *
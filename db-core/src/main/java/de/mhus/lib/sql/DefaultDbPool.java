@@ -17,6 +17,7 @@ package de.mhus.lib.sql;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.mhus.lib.annotations.jmx.JmxManaged;
 import de.mhus.lib.core.MActivator;
@@ -33,6 +34,8 @@ import de.mhus.lib.core.node.INode;
 public class DefaultDbPool extends DbPool {
 
     private List<InternalDbConnection> pool = new LinkedList<InternalDbConnection>();
+    // lock instead of monitor, virtual threads are not pinned while waiting
+    private final ReentrantLock poolLock = new ReentrantLock();
 
     /**
      * Create a new pool from central configuration. It's used the MApi configuration with the key
@@ -74,7 +77,8 @@ public class DefaultDbPool extends DbPool {
         log().t(getName(), "getConnection");
         boolean foundClosed = false;
         try {
-            synchronized (pool) {
+            poolLock.lock();
+            try {
                 for (InternalDbConnection con : pool) {
                     if (con.isClosed() || con.checkTimedOut()) {
                         foundClosed = true;
@@ -84,6 +88,8 @@ public class DefaultDbPool extends DbPool {
                     }
                 }
                 return createConnection();
+            } finally {
+                poolLock.unlock();
             }
         } finally {
             if (foundClosed) cleanup(false);
@@ -125,8 +131,11 @@ public class DefaultDbPool extends DbPool {
     @Override
     @JmxManaged(descrition = "Current size of the pool")
     public int getSize() {
-        synchronized (pool) {
+        poolLock.lock();
+        try {
             return pool.size();
+        } finally {
+            poolLock.unlock();
         }
     }
 
@@ -135,10 +144,13 @@ public class DefaultDbPool extends DbPool {
     @JmxManaged(descrition = "Current used connections in the pool")
     public int getUsedSize() {
         int cnt = 0;
-        synchronized (pool) {
+        poolLock.lock();
+        try {
             for (DbConnection con : new LinkedList<DbConnection>(pool)) {
                 if (con.isUsed()) cnt++;
             }
+        } finally {
+            poolLock.unlock();
         }
         return cnt;
     }
@@ -154,7 +166,8 @@ public class DefaultDbPool extends DbPool {
     public void cleanup(boolean unusedAlso) {
         log().t(getName(), "cleanup");
         boolean removed = false;
-        synchronized (pool) {
+        poolLock.lock();
+        try {
             for (InternalDbConnection con : new LinkedList<InternalDbConnection>(pool)) {
                 try {
                     con.checkTimedOut();
@@ -167,6 +180,8 @@ public class DefaultDbPool extends DbPool {
                 } // for secure - do not impact the thread
             }
             if (removed && tracePoolSize.value()) log().d("Pool cleanup", pool.size());
+        } finally {
+            poolLock.unlock();
         }
     }
 
@@ -179,11 +194,14 @@ public class DefaultDbPool extends DbPool {
     public void close() {
         if (pool == null) return;
         log().t(getName(), "close");
-        synchronized (pool) {
+        poolLock.lock();
+        try {
             for (DbConnection con : pool) {
                 con.close();
             }
             pool = null;
+        } finally {
+            poolLock.unlock();
         }
     }
 
@@ -192,10 +210,13 @@ public class DefaultDbPool extends DbPool {
     @JmxManaged(descrition = "Return the usage of the connections")
     public String dumpUsage(boolean used) {
         StringBuilder out = new StringBuilder();
-        synchronized (pool) {
+        poolLock.lock();
+        try {
             for (ConnectionTrace trace : getStackTraces().values()) {
                 out.append(trace.toString()).append("\n");
             }
+        } finally {
+            poolLock.unlock();
         }
         return out.toString();
     }
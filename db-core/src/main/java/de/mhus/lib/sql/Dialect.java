@@ -28,12 +28,14 @@ import de.mhus.lib.basics.RC;
 import de.mhus.lib.core.MCast;
 import de.mhus.lib.core.MDate;
 import de.mhus.lib.core.MSql;
+import de.mhus.lib.core.cfg.CfgBoolean;
 import de.mhus.lib.core.node.INode;
 import de.mhus.lib.core.parser.Parser;
 import de.mhus.lib.core.parser.ParsingPart;
 import de.mhus.lib.core.util.MObject;
 import de.mhus.lib.errors.MException;
 import de.mhus.lib.sql.commonparser.Common2SqlCompiler;
+import de.mhus.lib.sql.parser.CachedQueryParser;
 import de.mhus.lib.sql.parser.FunctionPart;
 import de.mhus.lib.sql.parser.ICompiler;
 import de.mhus.lib.sql.parser.SqlCompiler;
@@ -89,8 +91,13 @@ public abstract class Dialect extends MObject implements ICompiler, AQueryCreato
 
     public static final String C_ENUMERATION = "[enum]";
 
-    private Parser sqlParser = new SqlCompiler(this);
-    private Parser commonParser = new Common2SqlCompiler(this);
+    private static CfgBoolean CFG_BIND_PARAMETERS =
+            new CfgBoolean(Dialect.class, "bindParameters", true);
+
+    private Boolean bindParameters;
+
+    private CachedQueryParser sqlParser = new CachedQueryParser(new SqlCompiler(this));
+    private CachedQueryParser commonParser = new CachedQueryParser(new Common2SqlCompiler(this));
 
     /**
      * Return the named type for a TYPE enum value. Use this function to be sure you have all hacks
@@ -341,6 +348,21 @@ public abstract class Dialect extends MObject implements ICompiler, AQueryCreato
         throw new MException(RC.STATUS.ERROR, "language {2} not supported", this, language);
     }
 
+    /**
+     * Return the statistics of the compiled query caches.
+     *
+     * @return x
+     */
+    public String getQueryCacheInfo() {
+        return sqlParser + "\n" + commonParser;
+    }
+
+    /** Remove all compiled queries from the caches. */
+    public void clearQueryCache() {
+        sqlParser.clear();
+        commonParser.clear();
+    }
+
     /** Interface for the parser. */
     @Override
     public boolean isParseAttributes() {
@@ -353,6 +375,40 @@ public abstract class Dialect extends MObject implements ICompiler, AQueryCreato
         return function;
     }
 
+    /**
+     * If enabled values are bound as prepared statement parameters. This allows the database to
+     * reuse execution plans and the connection to batch statements. Binding is used by the dialects
+     * supporting it, see isBindParametersSupported(). Set 'bindParameters' to false to inline all
+     * values as literals.
+     *
+     * <p>Bound dates are set as Timestamp by the jdbc driver and are not formatted by
+     * toSqlDateValue(). Enumerations are bound as ordinal, null values are always inlined.
+     */
+    @Override
+    public boolean isBindParameters() {
+        if (bindParameters != null) return bindParameters;
+        return CFG_BIND_PARAMETERS.value() && isBindParametersSupported();
+    }
+
+    /**
+     * Return true if the database of the dialect is tested with bound parameters. The default
+     * inlines all values.
+     *
+     * @return true if parameters can be bound
+     */
+    protected boolean isBindParametersSupported() {
+        return false;
+    }
+
+    /**
+     * Overwrite the 'bindParameters' configuration for this dialect.
+     *
+     * @param bindParameters true or false or null to use the configuration
+     */
+    public void setBindParameters(Boolean bindParameters) {
+        this.bindParameters = bindParameters;
+    }
+
     @Override
     public String toSqlDateValue(Object value) {
         if (value == null) return "null";
@@ -398,6 +454,58 @@ public abstract class Dialect extends MObject implements ICompiler, AQueryCreato
         con.setAutoCommit(false);
     }
 
+    /**
+     * Return the jdbc fetch size to use for a streaming query. Connections are not in auto commit
+     * mode, so most drivers will fetch the rows by a server side cursor in chunks of this size.
+     *
+     * @param fetchSize The requested count of rows per round trip, 0 for the driver default
+     * @return The value for Statement.setFetchSize
+     */
+    public int toFetchSize(int fetchSize) {
+        return Math.max(0, fetchSize);
+    }
+
+    /**
+     * Return the query to acquire a session based advisory lock or null if not supported. The
+     * query returns one value, true or 1 if the lock was acquired. Parameters are $name$ (max 64
+     * characters), $hash$ (positive long) and $timeout$ (seconds).
+     *
+     * @return The query or null
+     */
+    public String getAdvisoryLockSql() {
+        return null;
+    }
+
+    /**
+     * Return true if the lock query waits up to $timeout$ seconds for the lock on the server side.
+     * Otherwise the query returns directly and the caller needs to retry.
+     *
+     * @return true if the server waits
+     */
+    public boolean isAdvisoryLockWaiting() {
+        return false;
+    }
+
+    /**
+     * Return the query to release an advisory lock acquired by getAdvisoryLockSql(). Same
+     * parameters.
+     *
+     * @return The query or null
+     */
+    public String getAdvisoryUnlockSql() {
+        return null;
+    }
+
+    /**
+     * Return the query to check if an advisory lock is held by any session. The query returns one
+     * value, true or a number greater then 0 if the lock is held.
+     *
+     * @return The query or null
+     */
+    public String getAdvisoryLockedSql() {
+        return null;
+    }
+
     public static Dialect findDialect(String driver) {
         Dialect dialect = null;
         if (driver != null) {
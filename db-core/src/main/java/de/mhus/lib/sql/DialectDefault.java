@@ -25,6 +25,10 @@ import java.util.List;
 import java.util.TreeSet;
 
 import de.mhus.lib.adb.DbManager;
+import de.mhus.lib.adb.model.Field;
+import de.mhus.lib.adb.model.Table;
+import de.mhus.lib.adb.query.AAfter;
+import de.mhus.lib.adb.query.AAggregate;
 import de.mhus.lib.adb.query.AAnd;
 import de.mhus.lib.adb.query.AAttribute;
 import de.mhus.lib.adb.query.ACompare;
@@ -33,6 +37,8 @@ import de.mhus.lib.adb.query.ADbAttribute;
 import de.mhus.lib.adb.query.ADynValue;
 import de.mhus.lib.adb.query.AEnumFix;
 import de.mhus.lib.adb.query.AFix;
+import de.mhus.lib.adb.query.AGroupBy;
+import de.mhus.lib.adb.query.AHaving;
 import de.mhus.lib.adb.query.ALimit;
 import de.mhus.lib.adb.query.AList;
 import de.mhus.lib.adb.query.ALiteral;
@@ -46,9 +52,11 @@ import de.mhus.lib.adb.query.APart;
 import de.mhus.lib.adb.query.APrint;
 import de.mhus.lib.adb.query.AQuery;
 import de.mhus.lib.adb.query.ASubQuery;
+import de.mhus.lib.basics.RC;
 import de.mhus.lib.core.MSql;
 import de.mhus.lib.core.MString;
 import de.mhus.lib.core.node.INode;
+import de.mhus.lib.errors.MRuntimeException;
 import de.mhus.lib.errors.NotSupportedException;
 
 /**
@@ -637,6 +645,7 @@ public class DialectDefault extends Dialect {
 
         if (p instanceof AQuery) {
             //		buffer.append('(');
+            AAfter after = null;
             {
                 boolean first = true;
                 for (AOperation operation : ((AQuery<?>) p).getOperations()) {
@@ -644,14 +653,58 @@ public class DialectDefault extends Dialect {
                         if (first) first = false;
                         else buffer.append(" and ");
                         createQuery(operation, query);
-                    }
+                    } else if (operation instanceof AAfter) after = (AAfter) operation;
+                }
+                if (after != null)
+                    for (AOperation operation : ((AQuery<?>) p).getOperations())
+                        if (operation instanceof AOrder)
+                            throw new MRuntimeException(
+                                    RC.NOT_SUPPORTED,
+                                    "order is not supported with keyset pagination",
+                                    query.getType());
+                if (after != null && after.getValues().length > 0) {
+                    if (!first) buffer.append(" and ");
+                    createQuery(after, query);
                 }
             }
             //		buffer.append(')');
 
+            {
+                boolean first = true;
+                for (AOperation operation : ((AQuery<?>) p).getOperations()) {
+                    if (operation instanceof AGroupBy) {
+                        if (first) {
+                            first = false;
+                            buffer.append(" GROUP BY ");
+                        } else buffer.append(" , ");
+                        createQuery(operation, query);
+                    }
+                }
+                first = true;
+                for (AOperation operation : ((AQuery<?>) p).getOperations()) {
+                    if (operation instanceof AHaving) {
+                        if (first) {
+                            first = false;
+                            buffer.append(" HAVING ");
+                        } else buffer.append(" and ");
+                        createQuery(operation, query);
+                    }
+                }
+            }
+
             {
                 boolean first = true;
                 AOperation limit = null;
+                if (after != null) {
+                    // keyset pagination needs the primary key as first order
+                    for (Field f : getPrimaryKeys(query)) {
+                        if (first) {
+                            first = false;
+                            buffer.append(" ORDER BY ");
+                        } else buffer.append(" , ");
+                        createQuery(new AOrder(query.getType(), f.getName(), true), query);
+                    }
+                }
                 for (AOperation operation : ((AQuery<?>) p).getOperations()) {
                     if (operation instanceof AOrder) {
                         if (first) {
@@ -666,6 +719,62 @@ public class DialectDefault extends Dialect {
                     createQuery(limit, query);
                 }
             }
+        } else if (p instanceof AAfter) {
+            // render (pk1,pk2) > (v1,v2) as row value comparison
+            DbManager manager = ((SqlDialectCreateContext) query.getContext()).getManager();
+            String mappingName = manager.getMappingName(query.getType());
+            List<Field> keys = getPrimaryKeys(query);
+            ADynValue[] values = ((AAfter) p).getValues();
+            if (keys.size() != values.length)
+                throw new MRuntimeException(
+                        RC.ERROR,
+                        "key size of {1} is {2} not {3}",
+                        query.getType(),
+                        keys.size(),
+                        values.length);
+            StringBuilder left = new StringBuilder();
+            StringBuilder right = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    left.append(',');
+                    right.append(',');
+                }
+                String name = keys.get(i).getName();
+                left.append("$db.").append(mappingName).append('.').append(name).append('$');
+                ADynValue value =
+                        new ADynValue(
+                                query.getType(), name, values[i].getName(), values[i].getValue());
+                right.append('$').append(value.getDefinition(manager)).append('$');
+            }
+            if (values.length == 1) buffer.append(left).append(" > ").append(right);
+            else buffer.append('(').append(left).append(") > (").append(right).append(')');
+        } else if (p instanceof AAggregate) {
+            AAggregate aggregate = (AAggregate) p;
+            switch (aggregate.getFunction()) {
+                case COUNT:
+                    buffer.append("count(");
+                    break;
+                case COUNT_DISTINCT:
+                    buffer.append("count(DISTINCT ");
+                    break;
+                case SUM:
+                    buffer.append("sum(");
+                    break;
+                case MIN:
+                    buffer.append("min(");
+                    break;
+                case MAX:
+                    buffer.append("max(");
+                    break;
+                case AVG:
+                    buffer.append("avg(");
+                    break;
+            }
+            if (aggregate.getAttribute() == null) buffer.append('*');
+            else
+                createQuery(
+                        new ADbAttribute(aggregate.getClazz(), aggregate.getAttribute()), query);
+            buffer.append(')');
         } else if (p instanceof AAnd) {
             buffer.append('(');
             boolean first = true;
@@ -739,6 +848,20 @@ public class DialectDefault extends Dialect {
                     .append(((ALimit) p).getOffset())
                     .append(",")
                     .append(((ALimit) p).getLimit()); // mysql specific !!
+        } else if (p instanceof AGroupBy) {
+            boolean first = true;
+            for (String attribute : ((AGroupBy) p).getAttributes()) {
+                if (first) first = false;
+                else buffer.append(",");
+                createQuery(new ADbAttribute(((AGroupBy) p).getClazz(), attribute), query);
+            }
+        } else if (p instanceof AHaving) {
+            boolean first = true;
+            for (APart part : ((AHaving) p).getParts()) {
+                if (first) first = false;
+                else buffer.append(" and ");
+                createQuery(part, query);
+            }
         } else if (p instanceof AList) {
             buffer.append('(');
             boolean first = true;
@@ -802,6 +925,14 @@ public class DialectDefault extends Dialect {
         } else throw new NotSupportedException(p.getClass());
     }
 
+    protected List<Field> getPrimaryKeys(AQuery<?> query) {
+        DbManager manager = ((SqlDialectCreateContext) query.getContext()).getManager();
+        Table table = manager.getTable(manager.getRegistryName(query.getType()));
+        if (table == null)
+            throw new MRuntimeException(RC.ERROR, "table not found for {1}", query.getType());
+        return table.getPrimaryKeys();
+    }
+
     @Override
     public String toBoolValue(boolean value) {
         return value ? "1" : "0";
@@ -38,6 +38,11 @@ public class DialectHsqldb extends DialectDefault {
 
     private static SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
+    @Override
+    protected boolean isBindParametersSupported() {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected String getFieldConfig(INode f) {
@@ -32,6 +32,11 @@ import de.mhus.lib.core.node.INode;
  */
 public class DialectMysql extends DialectDefault {
 
+    @Override
+    protected boolean isBindParametersSupported() {
+        return true;
+    }
+
     @Override
     public String normalizeColumnName(String columnName) {
         //		if ("key".equals(columnName))
@@ -67,6 +72,36 @@ public class DialectMysql extends DialectDefault {
         sql.append(" ENGINE=InnoDb");
     }
 
+    /**
+     * Connector/J buffers the full result unless the fetch size is Integer.MIN_VALUE, then the
+     * rows are streamed one by one. No other statement can use the connection while the stream is
+     * open.
+     */
+    @Override
+    public int toFetchSize(int fetchSize) {
+        return fetchSize > 0 ? Integer.MIN_VALUE : 0;
+    }
+
+    @Override
+    public String getAdvisoryLockSql() {
+        return "SELECT GET_LOCK($name$,$timeout,int$)";
+    }
+
+    @Override
+    public boolean isAdvisoryLockWaiting() {
+        return true;
+    }
+
+    @Override
+    public String getAdvisoryUnlockSql() {
+        return "SELECT RELEASE_LOCK($name$)";
+    }
+
+    @Override
+    public String getAdvisoryLockedSql() {
+        return "SELECT IS_USED_LOCK($name$) IS NOT NULL";
+    }
+
     @Override
     public String escape(String text) {
         String ret = MSql.escape(text);
@@ -39,6 +39,11 @@ import de.mhus.lib.core.node.INode;
  */
 public class DialectPostgresql extends DialectDefault {
 
+    @Override
+    protected boolean isBindParametersSupported() {
+        return true;
+    }
+
     @Override
     public String normalizeColumnName(String columnName) {
         //		if ("key".equals(columnName))
@@ -170,4 +175,21 @@ public class DialectPostgresql extends DialectDefault {
             log().e(sql, e);
         }
     }
+
+    @Override
+    public String getAdvisoryLockSql() {
+        return "SELECT pg_try_advisory_lock($hash,long$)";
+    }
+
+    @Override
+    public String getAdvisoryUnlockSql() {
+        return "SELECT pg_advisory_unlock($hash,long$)";
+    }
+
+    @Override
+    public String getAdvisoryLockedSql() {
+        // a bigint key is stored in classid (high) and objid (low) with objsubid 1
+        return "SELECT count(*) FROM pg_locks WHERE locktype = 'advisory' AND objsubid = 1"
+                + " AND ((classid::bigint << 32) | objid::bigint) = $hash,long$";
+    }
 }
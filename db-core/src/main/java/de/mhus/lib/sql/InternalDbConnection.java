@@ -15,6 +15,8 @@
  */
 package de.mhus.lib.sql;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import de.mhus.lib.core.cfg.CfgTimeInterval;
 import de.mhus.lib.core.util.MObject;
 
@@ -31,6 +33,7 @@ public abstract class InternalDbConnection extends MObject implements DbConnecti
     protected long lastUsedTime = 0;
     protected long timeoutUnused = CFG_TIMEOUT_UNUSED.interval();
     protected long timeoutLifetime = CFG_TIMEOUT_LIFETIME.interval();
+    private ConcurrentLinkedQueue<Runnable> afterCommit = new ConcurrentLinkedQueue<>();
 
     public InternalDbConnection() {
         creationTime = System.currentTimeMillis();
@@ -58,6 +61,28 @@ public abstract class InternalDbConnection extends MObject implements DbConnecti
         lastUsedTime = System.currentTimeMillis();
     }
 
+    @Override
+    public void afterCommit(Runnable task) {
+        afterCommit.add(task);
+    }
+
+    /** Run the tasks registered for the commit, call it after a successful commit. */
+    protected void runAfterCommit() {
+        Runnable task;
+        while ((task = afterCommit.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log().w("after commit task failed", poolId, t);
+            }
+        }
+    }
+
+    /** Discard the tasks registered for the commit, call it after a rollback. */
+    protected void clearAfterCommit() {
+        afterCommit.clear();
+    }
+
     public long getTimeoutUnused() {
         return timeoutUnused;
     }
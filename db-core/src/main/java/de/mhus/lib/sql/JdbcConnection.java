@@ -17,9 +17,15 @@ package de.mhus.lib.sql;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.mhus.lib.basics.RC;
 import de.mhus.lib.core.M;
+import de.mhus.lib.core.cfg.CfgLong;
 import de.mhus.lib.core.parser.Parser;
 import de.mhus.lib.core.service.UniqueId;
 import de.mhus.lib.errors.MException;
@@ -41,15 +47,42 @@ public class JdbcConnection extends InternalDbConnection {
     private Connection connection;
     private DbProvider provider;
     private boolean closed;
+    private final ReentrantLock lock = new ReentrantLock();
 
     private long id;
 
+    /** Maximum number of cached statements per connection, 0 disables the cache */
+    protected static final CfgLong CFG_STATEMENT_CACHE_SIZE =
+            new CfgLong(DbConnection.class, "statementCacheSize", 50);
+
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+
+    // LRU cache of statements of prepared queries, the statements hold the jdbc prepared statement
+    private LinkedHashMap<DbPrepared, JdbcStatement> statementCache =
+            new LinkedHashMap<DbPrepared, JdbcStatement>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<DbPrepared, JdbcStatement> eldest) {
+                    if (size() <= CFG_STATEMENT_CACHE_SIZE.value()) return false;
+                    statementCacheEvictions.increment();
+                    eldest.getValue().close();
+                    return true;
+                }
+            };
+
+    // statements created while the cached statement was busy, closed with the connection
+    private LinkedList<JdbcStatement> busyStatements = new LinkedList<>();
+
     /** {@inheritDoc} */
     @Override
     public void commit() throws Exception {
         log().t(poolId, id, "commit");
         if (closed) throw new MException(RC.INTERNAL_ERROR, "Connection not valid", poolId, id);
         if (!connection.getAutoCommit()) connection.commit();
+        runAfterCommit();
     }
 
     /** {@inheritDoc} */
@@ -63,6 +96,7 @@ public class JdbcConnection extends InternalDbConnection {
     @Override
     public void rollback() throws Exception {
         log().t(poolId, id, "rollback");
+        clearAfterCommit();
         if (closed) throw new IOException("Connection not valid");
         connection.rollback();
     }
@@ -82,30 +116,39 @@ public class JdbcConnection extends InternalDbConnection {
     /** {@inheritDoc} */
     @Override
     public DbStatement getStatement(String name) throws MException {
-        synchronized (this) {
+        lock.lock();
+        try {
             if (closed) throw new MException(RC.STATUS.INTERNAL_ERROR, "Connection not valid");
 
             String[] query = provider.getQuery(name);
             if (query == null) return null;
             return new JdbcStatement(this, query[1], query[0]);
+        } finally {
+            lock.unlock();
         }
     }
 
     /** {@inheritDoc} */
     @Override
     public DbStatement createStatement(String sql, String language) throws MException {
-        synchronized (this) {
+        lock.lock();
+        try {
             if (closed) throw new MException(RC.STATUS.INTERNAL_ERROR, "Connection not valid");
 
             return new JdbcStatement(this, sql, language);
+        } finally {
+            lock.unlock();
         }
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean isClosed() {
-        synchronized (this) {
+        lock.lock();
+        try {
             return closed;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -120,8 +163,11 @@ public class JdbcConnection extends InternalDbConnection {
     /** {@inheritDoc} */
     @Override
     public boolean isUsed() {
-        synchronized (this) {
+        lock.lock();
+        try {
             return used;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -130,8 +176,10 @@ public class JdbcConnection extends InternalDbConnection {
     public void setUsed(boolean used) {
         log().t(poolId, id, "used", used);
         super.setUsed(used);
-        synchronized (this) {
+        lock.lock();
+        try {
             this.used = used;
+            if (!used) clearAfterCommit();
             if (!used) // for security reasons - remove old garbage in the session
             try {
                     if (connection != null) connection.rollback();
@@ -139,7 +187,10 @@ public class JdbcConnection extends InternalDbConnection {
                     log().d(e);
                     close();
                 }
+        } finally {
+            lock.unlock();
         }
+        if (!used && pool != null) pool.releaseConnection(this);
     }
 
     /**
@@ -155,7 +206,9 @@ public class JdbcConnection extends InternalDbConnection {
     @Override
     public void close() {
         log().t(poolId, id, "close");
-        synchronized (this) {
+        lock.lock();
+        try {
+            clearStatementCache();
             try {
                 if (connection != null && !connection.isClosed()) {
                     connection.close();
@@ -166,7 +219,11 @@ public class JdbcConnection extends InternalDbConnection {
                 connection = null;
             }
             closed = true;
+        } finally {
+            lock.unlock();
         }
+        // a connection closed while it is in use will not be released by the user
+        if (pool != null) pool.releaseConnection(this);
     }
 
     /** {@inheritDoc} */
@@ -182,16 +239,113 @@ public class JdbcConnection extends InternalDbConnection {
         return new SimpleQueryCompiler();
     }
 
+    Dialect getDialect() {
+        return provider.getDialect();
+    }
+
     /** {@inheritDoc} */
     @Override
     public DbConnection instance() {
         return this;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * Return the statement for the prepared query. The statement is cached for the lifetime of the
+     * connection, so the underlying jdbc prepared statement will be reused. If the cached statement
+     * still has an open result set, another statement is returned. These statements are closed
+     * and released as soon as their result is closed.
+     */
     @Override
     public DbStatement createStatement(DbPrepared dbPrepared) {
-        return new JdbcStatement(this, dbPrepared);
+        lock.lock();
+        try {
+            if (closed || CFG_STATEMENT_CACHE_SIZE.value() <= 0)
+                return new JdbcStatement(this, dbPrepared);
+
+            JdbcStatement sth = statementCache.get(dbPrepared);
+            if (sth != null && !sth.isBusy()) {
+                statementCacheHits.increment();
+                return sth;
+            }
+            if (sth != null) {
+                for (JdbcStatement other : busyStatements) {
+                    if (other.getPrepared().equals(dbPrepared) && !other.isBusy()) {
+                        statementCacheHits.increment();
+                        return other;
+                    }
+                }
+                statementCacheMisses.increment();
+                sth = new JdbcStatement(this, dbPrepared);
+                busyStatements.add(sth);
+                return sth;
+            }
+            statementCacheMisses.increment();
+
+            sth = new JdbcStatement(this, dbPrepared);
+            statementCache.put(dbPrepared, sth);
+            return sth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove and close the statement if it was created because the cached statement was busy. The
+     * cached statement is free again at the latest when its result is closed.
+     *
+     * @param sth The statement
+     */
+    void releaseBusyStatement(JdbcStatement sth) {
+        lock.lock();
+        try {
+            if (!busyStatements.remove(sth)) return;
+        } finally {
+            lock.unlock();
+        }
+        sth.close();
+    }
+
+    /** Close and remove all cached statements. */
+    public void clearStatementCache() {
+        lock.lock();
+        try {
+            for (JdbcStatement sth : statementCache.values()) sth.close();
+            statementCache.clear();
+            for (JdbcStatement sth : busyStatements) sth.close();
+            busyStatements.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getStatementCacheSize() {
+        lock.lock();
+        try {
+            return statementCache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBusyStatementCount() {
+        lock.lock();
+        try {
+            return busyStatements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions.sum();
     }
 
     /**
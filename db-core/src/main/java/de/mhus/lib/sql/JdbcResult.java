@@ -42,6 +42,7 @@ import java.util.Map;
 
 import de.mhus.lib.core.MDate;
 import de.mhus.lib.core.logging.MLogUtil;
+import de.mhus.lib.sql.analytics.SqlAnalytics;
 
 /**
  * This proxy is used to hold a instance of the connection while the ResultSet is used. That's the
@@ -54,12 +55,19 @@ public class JdbcResult extends DbResult {
     private ResultSet instance;
     private DbStatement sth; // need to have a reference to the statement to avoid a finalize
     private List<String> columnNames;
+    private String original;
+    private long rows;
 
     JdbcResult(DbStatement sth, ResultSet instance) {
         this.sth = sth;
         this.instance = instance;
     }
 
+    JdbcResult(DbStatement sth, ResultSet instance, String original) {
+        this(sth, instance);
+        this.original = original;
+    }
+
     public <T> T unwrap(Class<T> iface) throws SQLException {
         return instance.unwrap(iface);
     }
@@ -70,26 +78,35 @@ public class JdbcResult extends DbResult {
 
     @Override
     public boolean next() throws SQLException {
-        return instance.next();
+        boolean ret = instance.next();
+        if (ret) rows++;
+        return ret;
     }
 
     @Override
     public void close() {
+        if (original != null) {
+            SqlAnalytics.rows(original, rows);
+            original = null;
+        }
         try {
             instance.close();
         } catch (SQLException e) {
             MLogUtil.log().d("close failed", this, e);
         }
+        if (sth instanceof JdbcStatement) ((JdbcStatement) sth).resultClosed();
     }
 
     public boolean wasNull() throws SQLException {
         return instance.wasNull();
     }
 
+    @Override
     public String getString(int columnIndex) throws SQLException {
         return instance.getString(columnIndex);
     }
 
+    @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
         return instance.getBoolean(columnIndex);
     }
@@ -102,18 +119,22 @@ public class JdbcResult extends DbResult {
         return instance.getShort(columnIndex);
     }
 
+    @Override
     public int getInt(int columnIndex) throws SQLException {
         return instance.getInt(columnIndex);
     }
 
+    @Override
     public long getLong(int columnIndex) throws SQLException {
         return instance.getLong(columnIndex);
     }
 
+    @Override
     public float getFloat(int columnIndex) throws SQLException {
         return instance.getFloat(columnIndex);
     }
 
+    @Override
     public double getDouble(int columnIndex) throws SQLException {
         return instance.getDouble(columnIndex);
     }
@@ -135,6 +156,7 @@ public class JdbcResult extends DbResult {
         return instance.getTime(columnIndex);
     }
 
+    @Override
     public Timestamp getTimestamp(int columnIndex) throws SQLException {
         return instance.getTimestamp(columnIndex);
     }
@@ -148,6 +170,7 @@ public class JdbcResult extends DbResult {
         return instance.getUnicodeStream(columnIndex);
     }
 
+    @Override
     public InputStream getBinaryStream(int columnIndex) throws SQLException {
         return instance.getBinaryStream(columnIndex);
     }
@@ -253,6 +276,7 @@ public class JdbcResult extends DbResult {
         return instance.getObject(columnLabel);
     }
 
+    @Override
     public int findColumn(String columnLabel) throws SQLException {
         return instance.findColumn(columnLabel);
     }
@@ -265,6 +289,7 @@ public class JdbcResult extends DbResult {
         return instance.getCharacterStream(columnLabel);
     }
 
+    @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
         return instance.getBigDecimal(columnIndex);
     }
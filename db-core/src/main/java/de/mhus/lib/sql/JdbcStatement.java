@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.mhus.lib.core.parser.CompiledString;
 import de.mhus.lib.errors.MException;
@@ -43,9 +46,16 @@ public class JdbcStatement extends DbStatement {
 
     private String xquery;
     private String original;
+    private DbPrepared prepared;
+    private JdbcResult lastResult;
+    private int batchSize;
+    private LinkedList<int[]> batchResults;
+    private int fetchSize;
+    private final ReentrantLock lock = new ReentrantLock();
 
     JdbcStatement(JdbcConnection dbCon, DbPrepared prepared) {
         this.original = prepared.toString();
+        this.prepared = prepared;
         this.dbCon = dbCon;
         this.query = prepared.getQuery();
     }
@@ -56,38 +66,84 @@ public class JdbcStatement extends DbStatement {
         this.query = dbCon.createQueryCompiler(language).compileString(query);
     }
 
+    /**
+     * Return true if the last result set of this statement is still open. Executing the statement
+     * again would close the result set.
+     *
+     * @return true if the statement is in use
+     */
+    boolean isBusy() {
+        try {
+            return lastResult != null && !lastResult.isClosed();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    DbPrepared getPrepared() {
+        return prepared;
+    }
+
+    /** Called if the result of this statement is closed. */
+    void resultClosed() {
+        dbCon.releaseBusyStatement(this);
+    }
+
     private void validateSth() throws Exception {
-        synchronized (this) {
+        lock.lock();
+        try {
             if (sth == null || sth.isClosed()) {
                 Connection con = dbCon.getConnection();
                 sth = con.createStatement();
             }
+        } finally {
+            lock.unlock();
         }
     }
 
     protected PreparedStatement prepareStatement(
             Map<String, Object> attributes, Statement sth, String query) throws SQLException {
 
-        // recycle prepared query - should not differ !
-        if (xquery != null & preparedSth != null && xquery.equals(query)) return preparedSth;
-
-        // if differ close last prepared query
-        closePreparedSth();
+        // use prepared statement only if parameters (bound values or binaries) are present
+        if (attributes == null || !attributes.containsKey(RETURN_BINARY_KEY + "0")) {
+            closePreparedSth();
+            return null;
+        }
 
-        // checkout new
-        if (attributes != null && attributes.containsKey(RETURN_BINARY_KEY + "0")) {
-            PreparedStatement psth = dbCon.getConnection().prepareStatement(query);
+        // recycle prepared query if the sql text is the same, otherwise close last prepared query
+        if (xquery == null || preparedSth == null || !xquery.equals(query)) {
+            closePreparedSth();
+            preparedSth = dbCon.getConnection().prepareStatement(query);
             xquery = query;
-            for (int nr = 0; attributes.containsKey(RETURN_BINARY_KEY + nr); nr++) {
-                psth.setBinaryStream(nr + 1, (InputStream) attributes.get(RETURN_BINARY_KEY + nr));
-                attributes.remove(RETURN_BINARY_KEY + nr);
-            }
-            return psth;
+        } else {
+            preparedSth.clearParameters();
         }
-        return null;
+
+        bindParameters(preparedSth, attributes);
+
+        return preparedSth;
+    }
+
+    protected void bindParameters(PreparedStatement psth, Map<String, Object> attributes)
+            throws SQLException {
+        if (attributes == null) return;
+        for (int nr = 0; attributes.containsKey(RETURN_BINARY_KEY + nr); nr++)
+            setParameter(psth, nr + 1, attributes.remove(RETURN_BINARY_KEY + nr));
+    }
+
+    protected void setParameter(PreparedStatement psth, int index, Object value)
+            throws SQLException {
+        if (value instanceof InputStream) psth.setBinaryStream(index, (InputStream) value);
+        else if (value instanceof String) psth.setString(index, (String) value);
+        else if (value instanceof Integer) psth.setInt(index, (Integer) value);
+        else if (value instanceof Long) psth.setLong(index, (Long) value);
+        else if (value instanceof Double) psth.setDouble(index, (Double) value);
+        else if (value instanceof Timestamp) psth.setTimestamp(index, (Timestamp) value);
+        else psth.setObject(index, value);
     }
 
     protected void closePreparedSth() {
+        batchSize = 0;
         if (preparedSth != null) {
             xquery = null;
             try {
@@ -112,14 +168,15 @@ public class JdbcStatement extends DbStatement {
         validateSth();
         String query = this.query.execute(attributes);
         log().t(query);
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         try {
             preparedSth = prepareStatement(attributes, sth, query);
             boolean result = preparedSth == null ? sth.execute(query) : preparedSth.execute();
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, null);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, null);
             return result;
         } catch (Throwable e) {
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, e);
+            SqlAnalytics.traceNanos(getConnection().getInstanceId(), original, query, start, -1, e);
             log().e(query);
             throw e;
         }
@@ -127,12 +184,16 @@ public class JdbcStatement extends DbStatement {
 
     @Override
     public DbResult getResultSet() throws SQLException {
-        return new JdbcResult(this, sth.getResultSet());
+        lastResult =
+                new JdbcResult(
+                        this,
+                        preparedSth == null ? sth.getResultSet() : preparedSth.getResultSet());
+        return lastResult;
     }
 
     @Override
     public int getUpdateCount() throws SQLException {
-        return sth.getUpdateCount();
+        return preparedSth == null ? sth.getUpdateCount() : preparedSth.getUpdateCount();
     }
 
     /**
@@ -148,14 +209,18 @@ public class JdbcStatement extends DbStatement {
         String query = this.query.execute(attributes);
         log().t(query);
         preparedSth = prepareStatement(attributes, sth, query);
-        long start = System.currentTimeMillis();
+        (preparedSth == null ? sth : preparedSth)
+                .setFetchSize(dbCon.getDialect().toFetchSize(fetchSize));
+        long start = System.nanoTime();
         try {
             ResultSet result =
                     preparedSth == null ? sth.executeQuery(query) : preparedSth.executeQuery();
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, null);
-            return new JdbcResult(this, result);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, null);
+            lastResult = new JdbcResult(this, result, original);
+            return lastResult;
         } catch (Throwable t) {
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, t);
+            SqlAnalytics.traceNanos(getConnection().getInstanceId(), original, query, start, -1, t);
             log().e(query);
             throw t;
         }
@@ -174,19 +239,101 @@ public class JdbcStatement extends DbStatement {
         String query = this.query.execute(attributes);
         log().t(query);
         preparedSth = prepareStatement(attributes, sth, query);
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         try {
             int result =
                     preparedSth == null ? sth.executeUpdate(query) : preparedSth.executeUpdate();
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, null);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, result, null);
             return result;
         } catch (Throwable t) {
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, t);
+            SqlAnalytics.traceNanos(getConnection().getInstanceId(), original, query, start, -1, t);
             log().e(query);
             throw t;
         }
     }
 
+    @Override
+    public void addBatch(Map<String, Object> attributes) throws Exception {
+        // bind the values to get the same sql text for all entries, only null values differ
+        attributes.put(BIND_PARAMETERS_KEY, Boolean.TRUE);
+        String query;
+        try {
+            query = this.query.execute(attributes);
+        } finally {
+            attributes.remove(BIND_PARAMETERS_KEY);
+        }
+        log().t("batch", query);
+        if (xquery == null || preparedSth == null || !xquery.equals(query)) {
+            // the sql text changed, send the pending entries first
+            flushBatch();
+            closePreparedSth();
+            preparedSth = dbCon.getConnection().prepareStatement(query);
+            xquery = query;
+        }
+        preparedSth.clearParameters();
+        bindParameters(preparedSth, attributes);
+        preparedSth.addBatch();
+        batchSize++;
+    }
+
+    @Override
+    public int[] executeBatch() throws Exception {
+        try {
+            flushBatch();
+            if (batchResults == null) return new int[0];
+            int size = 0;
+            for (int[] part : batchResults) size += part.length;
+            int[] out = new int[size];
+            int pos = 0;
+            for (int[] part : batchResults) {
+                System.arraycopy(part, 0, out, pos, part.length);
+                pos += part.length;
+            }
+            return out;
+        } finally {
+            batchResults = null;
+        }
+    }
+
+    private void flushBatch() throws Exception {
+        if (batchSize == 0 || preparedSth == null) return;
+        long start = System.nanoTime();
+        try {
+            int[] result = preparedSth.executeBatch();
+            long rows = 0;
+            for (int r : result) if (r > 0) rows += r;
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, xquery, start, rows, null);
+            if (batchResults == null) batchResults = new LinkedList<>();
+            batchResults.add(result);
+        } catch (Throwable t) {
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, xquery, start, -1, t);
+            log().e(xquery);
+            throw t;
+        } finally {
+            batchSize = 0;
+        }
+    }
+
+    @Override
+    public void clearBatch() {
+        batchResults = null;
+        if (batchSize == 0 || preparedSth == null) return;
+        batchSize = 0;
+        try {
+            preparedSth.clearBatch();
+        } catch (SQLException e) {
+            log().d(e);
+        }
+    }
+
+    @Override
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
     /**
      * Return the used connection.
      *
@@ -199,6 +346,7 @@ public class JdbcStatement extends DbStatement {
 
     @Override
     public void close() {
+        lastResult = null;
         closePreparedSth();
         if (sth == null) return;
         try {
@@ -22,8 +22,14 @@ import de.mhus.lib.core.node.MNode;
 public class MysqlDbProvider extends JdbcProvider {
 
     public MysqlDbProvider(String host, String db, String user, String pass) {
+        // rewrite jdbc batches to multi row inserts
         this(
-                "jdbc:mysql://" + host + (host.indexOf(':') < 0 ? ":3306" : "") + "/" + db,
+                "jdbc:mysql://"
+                        + host
+                        + (host.indexOf(':') < 0 ? ":3306" : "")
+                        + "/"
+                        + db
+                        + "?rewriteBatchedStatements=true",
                 user,
                 pass);
     }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.sql.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free log-linear histogram of nano second values. Every power of two is split into four
+ * linear sub buckets, the relative error of a percentile is at most 25 percent. Recording is a
+ * single atomic increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int SIZE = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(SIZE);
+
+    public void record(long nanos) {
+        buckets.incrementAndGet(index(nanos));
+    }
+
+    /**
+     * Return a copy of the current bucket counts.
+     *
+     * @return The counts
+     */
+    public long[] getCounts() {
+        long[] ret = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) ret[i] = buckets.get(i);
+        return ret;
+    }
+
+    /**
+     * Return the upper bound of the bucket containing the percentile.
+     *
+     * @param counts The counts from getCounts()
+     * @param percentile Between 0 and 100
+     * @return The value in nano seconds or 0 if empty
+     */
+    public static long getPercentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100d);
+        if (rank < 1) rank = 1;
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += counts[i];
+            if (sum >= rank) return upperBound(i);
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    /**
+     * Subtract the older counts from the newer ones.
+     *
+     * @param newer
+     * @param older
+     * @return The difference
+     */
+    public static long[] delta(long[] newer, long[] older) {
+        long[] ret = new long[newer.length];
+        for (int i = 0; i < ret.length; i++) ret[i] = newer[i] - (older == null ? 0 : older[i]);
+        return ret;
+    }
+
+    /**
+     * Return the bucket of the value. The buckets below 4 hold one value, above every power of two
+     * is split into 4 buckets.
+     *
+     * @param value The value in nano seconds
+     * @return The bucket index
+     */
+    public static int index(long value) {
+        if (value < SUB) return value < 0 ? 0 : (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        return (msb - SUB_BITS + 1) * SUB + (int) ((value >>> (msb - SUB_BITS)) & (SUB - 1));
+    }
+
+    /**
+     * Return the highest value of the bucket.
+     *
+     * @param index The bucket index
+     * @return The value in nano seconds
+     */
+    public static long upperBound(int index) {
+        if (index < SUB) return index;
+        int msb = index / SUB + SUB_BITS - 1;
+        long lower = (long) (SUB + index % SUB) << (msb - SUB_BITS);
+        return lower + (1L << (msb - SUB_BITS)) - 1;
+    }
+}
@@ -20,7 +20,7 @@ import de.mhus.lib.core.logging.Log;
 public class SqlAnalytics {
 
     private static Log log = Log.getLog(SqlAnalytics.class);
-    private static SqlAnalyzer analyzer = null;
+    private static volatile SqlAnalyzer analyzer = null;
 
     public static void setAnalyzer(SqlAnalyzer analyzer_) {
         try {
@@ -46,4 +46,31 @@ public class SqlAnalytics {
             log.e(t2);
         }
     }
+
+    public static void traceNanos(
+            long connectionId,
+            String original,
+            String query,
+            long startNanos,
+            long rows,
+            Throwable t) {
+        SqlAnalyzer a = analyzer;
+        if (a == null) return;
+        try {
+            long delta = System.nanoTime() - startNanos;
+            a.doAnalyzeNanos(connectionId, original, query, delta, rows, t);
+        } catch (Throwable t2) {
+            log.e(t2);
+        }
+    }
+
+    public static void rows(String original, long rows) {
+        SqlAnalyzer a = analyzer;
+        if (a == null) return;
+        try {
+            a.doRows(original, rows);
+        } catch (Throwable t) {
+            log.e(t);
+        }
+    }
 }
@@ -21,6 +21,34 @@ public interface SqlAnalyzer {
 
     void doAnalyze(long connectionId, String original, String query, long delta, Throwable t);
 
+    /**
+     * Analyze an executed statement with a runtime in nano seconds.
+     *
+     * @param connectionId
+     * @param original The original statement (template)
+     * @param query The executed statement
+     * @param nanos The runtime in nano seconds
+     * @param rows Affected rows or -1 if not known
+     * @param t The error or null
+     */
+    default void doAnalyzeNanos(
+            long connectionId,
+            String original,
+            String query,
+            long nanos,
+            long rows,
+            Throwable t) {
+        doAnalyze(connectionId, original, query, nanos / 1000000, t);
+    }
+
+    /**
+     * Called if the result of a query is closed with the number of fetched rows.
+     *
+     * @param original The original statement (template)
+     * @param rows Fetched rows
+     */
+    default void doRows(String original, long rows) {}
+
     void start();
 
     void stop();
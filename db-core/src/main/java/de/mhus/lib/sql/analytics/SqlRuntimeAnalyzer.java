@@ -15,75 +15,211 @@
  */
 package de.mhus.lib.sql.analytics;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+import de.mhus.lib.core.MSystem;
 import de.mhus.lib.core.node.INode;
 
+/**
+ * Collect runtime statistics per statement shape. The shape is the original statement with
+ * literals (strings, numbers, uuids) replaced by '?' and value lists collapsed, so statements
+ * with different inline values are counted together. Recording does not lock, counters are
+ * LongAdders and latencies are collected in a LatencyHistogram.
+ */
 public class SqlRuntimeAnalyzer extends SqlRuntimeWarning {
 
-    protected HashMap<String, Container> list = new HashMap<>();
-    protected long minRuntime = 3;
+    protected ConcurrentHashMap<String, Container> list = new ConcurrentHashMap<>();
+    // original statement to container, avoids normalizing known statements again. Only the first
+    // original of a shape is cached, statements with inline values would fill the map.
+    private ConcurrentHashMap<String, Container> originals = new ConcurrentHashMap<>();
+    protected long minRuntime = 0;
+    protected int maxOriginals = 10000;
 
     @Override
     public void doAnalyze(
             long connectionId, String original, String query, long delta, Throwable t) {
-        super.doAnalyze(connectionId, original, query, delta, t);
-        if (t != null) return;
-
-        if (delta < minRuntime) return;
-
-        // prepare original - replace $UUID$ entries with $uuid$ static content
-        // do not use uuid any more
-        //		if (original.indexOf('$') >= 0) {
-        //			StringBuilder s = new StringBuilder();
-        //			for (String part : original.split("\\$")) {
-        //				if (s.length() != 0)
-        //					s.append('$');
-        //				if (MValidator.isUUID(part))
-        //					s.append("uuid");
-        //				else
-        //					s.append(part);
-        //			}
-        //			original = s.toString();
-        //		}
-
-        synchronized (this) {
-            Container container = list.get(original);
-            if (container == null) {
-                container = new Container(original);
-                list.put(original, container);
-            }
-            container.add(delta);
+        doAnalyzeNanos(
+                connectionId, original, query, TimeUnit.MILLISECONDS.toNanos(delta), -1, t);
+    }
+
+    @Override
+    public void doAnalyzeNanos(
+            long connectionId,
+            String original,
+            String query,
+            long nanos,
+            long rows,
+            Throwable t) {
+        super.doAnalyze(connectionId, original, query, TimeUnit.NANOSECONDS.toMillis(nanos), t);
+        if (original == null) return;
+        if (t == null && nanos < TimeUnit.MILLISECONDS.toNanos(minRuntime)) return;
+        findContainer(original).add(nanos, rows, t != null);
+    }
+
+    @Override
+    public void doRows(String original, long rows) {
+        if (original == null || rows <= 0) return;
+        Container container = originals.get(original);
+        if (container == null) container = list.get(normalize(original));
+        if (container != null) container.rows.add(rows);
+    }
+
+    protected Container findContainer(String original) {
+        Container container = originals.get(original);
+        if (container != null) return container;
+        container = list.computeIfAbsent(normalize(original), s -> new Container(s));
+        if (container.originals.getAndIncrement() == 0) {
+            if (originals.size() >= maxOriginals) clearOriginals();
+            originals.put(original, container);
         }
+        return container;
+    }
+
+    private void clearOriginals() {
+        originals.clear();
+        for (Container container : list.values()) container.originals.set(0);
     }
 
     public Collection<Container> getData() {
-        synchronized (this) {
-            return Collections.unmodifiableCollection(list.values());
-        }
+        return Collections.unmodifiableCollection(list.values());
+    }
+
+    /**
+     * Return a consistent copy of the current statistics.
+     *
+     * @return The statistics of all shapes
+     */
+    public List<Snapshot> getSnapshot() {
+        ArrayList<Snapshot> ret = new ArrayList<>(list.size());
+        for (Container container : list.values()) ret.add(container.snapshot());
+        return ret;
+    }
+
+    public void reset() {
+        originals.clear();
+        list.clear();
     }
 
     @Override
     public void doConfigure(INode config) {
         minRuntime = config.getLong("minRuntime", minRuntime);
+        maxOriginals = config.getInt("maxOriginals", maxOriginals);
         super.doConfigure(config);
     }
 
+    /**
+     * Replace literals in the statement by '?', collapse lists of values and white spaces.
+     *
+     * @param sql
+     * @return The statement shape
+     */
+    public static String normalize(String sql) {
+        int len = sql.length();
+        StringBuilder out = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < len) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < len && sql.charAt(i + 1) == '\'') i++;
+                        else break;
+                    }
+                    i++;
+                }
+                i++;
+                appendValue(out);
+            } else if (Character.isWhitespace(c)) {
+                while (i < len && Character.isWhitespace(sql.charAt(i))) i++;
+                if (out.length() > 0) out.append(' ');
+            } else if (isUuid(sql, i)) {
+                i += 36;
+                appendValue(out);
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                while (i < len && isIdentifier(sql.charAt(i))) out.append(sql.charAt(i++));
+            } else if (Character.isDigit(c)) {
+                while (i < len && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+                appendValue(out);
+            } else if (c == '?') {
+                i++;
+                appendValue(out);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') end--;
+        out.setLength(end);
+        return out.toString();
+    }
+
+    private static void appendValue(StringBuilder out) {
+        // collapse value lists like (?, ?, ?) to (?)
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') end--;
+        if (end > 0 && out.charAt(end - 1) == ',') {
+            int pos = end - 1;
+            while (pos > 0 && out.charAt(pos - 1) == ' ') pos--;
+            if (pos > 0 && out.charAt(pos - 1) == '?') {
+                out.setLength(pos);
+                return;
+            }
+        }
+        out.append('?');
+    }
+
+    private static boolean isIdentifier(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+
+    private static boolean isUuid(String sql, int pos) {
+        if (pos + 36 > sql.length()) return false;
+        if (pos > 0 && isIdentifier(sql.charAt(pos - 1))) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = sql.charAt(pos + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (Character.digit(c, 16) < 0) return false;
+        }
+        return pos + 36 == sql.length() || !isIdentifier(sql.charAt(pos + 36));
+    }
+
     public static class Container {
 
         private String sql;
-        private int cnt;
-        private long runtime;
+        private final LongAdder cnt = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicInteger originals = new AtomicInteger();
 
-        public Container(String original) {
-            sql = original;
+        public Container(String shape) {
+            sql = shape;
         }
 
         public void add(long delta) {
-            cnt++;
-            runtime += delta;
+            add(TimeUnit.MILLISECONDS.toNanos(delta), -1, false);
+        }
+
+        public void add(long deltaNanos, long rows, boolean error) {
+            cnt.increment();
+            nanos.add(deltaNanos);
+            max.accumulate(deltaNanos);
+            histogram.record(deltaNanos);
+            if (rows > 0) this.rows.add(rows);
+            if (error) errors.increment();
         }
 
         public String getSql() {
@@ -91,11 +227,133 @@ public class SqlRuntimeAnalyzer extends SqlRuntimeWarning {
         }
 
         public int getCnt() {
-            return cnt;
+            return cnt.intValue();
         }
 
+        /**
+         * Summary of the runtime in milliseconds.
+         *
+         * @return The runtime
+         */
         public long getRuntime() {
-            return runtime;
+            return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(
+                    sql,
+                    cnt.sum(),
+                    errors.sum(),
+                    rows.sum(),
+                    nanos.sum(),
+                    max.get(),
+                    histogram.getCounts());
+        }
+    }
+
+    /** Immutable copy of the values of a container. Times are in nano seconds. */
+    public static class Snapshot {
+
+        private final String sql;
+        private final long cnt;
+        private final long errors;
+        private final long rows;
+        private final long nanos;
+        private final long max;
+        private final long[] histogram;
+
+        public Snapshot(
+                String sql,
+                long cnt,
+                long errors,
+                long rows,
+                long nanos,
+                long max,
+                long[] histogram) {
+            this.sql = sql;
+            this.cnt = cnt;
+            this.errors = errors;
+            this.rows = rows;
+            this.nanos = nanos;
+            this.max = max;
+            this.histogram = histogram;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCnt() {
+            return cnt;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long[] getHistogram() {
+            return histogram;
+        }
+
+        public long getPercentile(double percentile) {
+            return LatencyHistogram.getPercentile(histogram, percentile);
+        }
+
+        public long getP50() {
+            return getPercentile(50);
+        }
+
+        public long getP95() {
+            return getPercentile(95);
+        }
+
+        public long getP99() {
+            return getPercentile(99);
+        }
+
+        @Override
+        public String toString() {
+            return MSystem.toString(
+                    this,
+                    "cnt",
+                    cnt,
+                    "errors",
+                    errors,
+                    "rows",
+                    rows,
+                    "p50",
+                    getP50(),
+                    "p95",
+                    getP95(),
+                    "p99",
+                    getP99(),
+                    "max",
+                    max,
+                    sql);
         }
     }
 }
@@ -16,29 +16,42 @@
 package de.mhus.lib.sql.analytics;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.zip.GZIPOutputStream;
 
 import de.mhus.lib.core.MApi;
 import de.mhus.lib.core.MDate;
+import de.mhus.lib.core.node.INode;
 
+/**
+ * Append the statistics of every interval to a log file. Each line contains the delta since the
+ * last flush for one statement shape: time;count;errors;rows;runtime;p50;p95;p99;max;sql, times
+ * in microseconds. Files are rotated by size and age and gzip compressed by default (every flush
+ * is a gzip member, the file can be read with zcat). Writing is done by a timer thread and does not
+ * block the recording.
+ */
 public class SqlRuntimeWriter extends SqlRuntimeAnalyzer {
 
     private Timer timer;
     private File file;
+    private long fileCreated;
+    private long interval = 60000;
+    private long maxFileSize = 10 * 1024 * 1024;
+    private long maxFileAge = 24 * 60 * 60000;
+    private boolean compress = true;
+    private Map<String, Snapshot> last = new HashMap<>();
 
     @Override
-    public void start() {
-        file =
-                MApi.getFile(
-                        MApi.SCOPE.LOG,
-                        getClass().getCanonicalName()
-                                + "_"
-                                + MDate.toFileFormat(new Date())
-                                + ".csv");
-        timer = new Timer(true);
+    public synchronized void start() {
+        if (timer != null) return;
+        timer = new Timer("SqlRuntimeWriter", true);
         timer.schedule(
                 new TimerTask() {
 
@@ -47,32 +60,83 @@ public class SqlRuntimeWriter extends SqlRuntimeAnalyzer {
                         doSave();
                     }
                 },
-                60000,
-                60000);
+                interval,
+                interval);
     }
 
-    protected void doSave() {
+    protected synchronized void doSave() {
         try {
-            PrintStream ps = new PrintStream(file);
-            synchronized (this) {
-                for (Container container : list.values()) {
-                    ps.print(container.getSql());
-                    ps.print(";");
-                    ps.print(container.getCnt());
-                    ps.print(";");
-                    ps.println(container.getRuntime());
-                }
-                ps.flush();
-                ps.close();
+            long now = System.currentTimeMillis();
+            StringBuilder out = new StringBuilder();
+            Map<String, Snapshot> current = new HashMap<>();
+            for (Snapshot snapshot : getSnapshot()) {
+                current.put(snapshot.getSql(), snapshot);
+                Snapshot before = last.get(snapshot.getSql());
+                if (before != null && before.getCnt() > snapshot.getCnt())
+                    before = null; // was reset
+                long cnt = snapshot.getCnt() - (before == null ? 0 : before.getCnt());
+                if (cnt <= 0) continue;
+                long[] histogram =
+                        LatencyHistogram.delta(
+                                snapshot.getHistogram(),
+                                before == null ? null : before.getHistogram());
+                out.append(now).append(';');
+                out.append(cnt).append(';');
+                out.append(snapshot.getErrors() - (before == null ? 0 : before.getErrors()));
+                out.append(';');
+                out.append(snapshot.getRows() - (before == null ? 0 : before.getRows()));
+                out.append(';');
+                out.append((snapshot.getNanos() - (before == null ? 0 : before.getNanos())) / 1000);
+                out.append(';');
+                out.append(LatencyHistogram.getPercentile(histogram, 50) / 1000).append(';');
+                out.append(LatencyHistogram.getPercentile(histogram, 95) / 1000).append(';');
+                out.append(LatencyHistogram.getPercentile(histogram, 99) / 1000).append(';');
+                out.append(LatencyHistogram.getPercentile(histogram, 100) / 1000).append(';');
+                out.append(snapshot.getSql().replace('\n', ' ')).append('\n');
             }
+            last = current;
+            if (out.length() == 0) return;
+            write(now, out.toString());
         } catch (Throwable t) {
             log().e("write file {1} failed", file, t);
         }
     }
 
+    private void write(long now, String content) throws Exception {
+        if (file == null
+                || file.length() > maxFileSize
+                || now - fileCreated > maxFileAge) {
+            file =
+                    MApi.getFile(
+                            MApi.SCOPE.LOG,
+                            getClass().getCanonicalName()
+                                    + "_"
+                                    + MDate.toFileFormat(new Date(now))
+                                    + (compress ? ".csv.gz" : ".csv"));
+            fileCreated = now;
+            log().d("rotate", file);
+        }
+        OutputStream os = new FileOutputStream(file, true);
+        if (compress) os = new GZIPOutputStream(os);
+        try (PrintStream ps = new PrintStream(os, false, "UTF-8")) {
+            ps.print(content);
+        }
+    }
+
     @Override
-    public void stop() {
-        // TODO Auto-generated method stub
+    public synchronized void stop() {
+        if (timer == null) return;
+        timer.cancel();
+        timer = null;
+        doSave();
+    }
 
+    @Override
+    public void doConfigure(INode config) {
+        interval = config.getLong("interval", interval);
+        maxFileSize = config.getLong("maxFileSize", maxFileSize);
+        maxFileAge = config.getLong("maxFileAge", maxFileAge);
+        compress = config.getBoolean("compress", compress);
+        super.doConfigure(config);
     }
 }
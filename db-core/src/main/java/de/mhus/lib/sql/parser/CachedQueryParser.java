@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.sql.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.mhus.lib.core.MSystem;
+import de.mhus.lib.core.cfg.CfgLong;
+import de.mhus.lib.core.parser.CompiledString;
+import de.mhus.lib.core.parser.ParseException;
+import de.mhus.lib.core.parser.Parser;
+
+/**
+ * Bounded LRU cache of compiled queries. The query text is the key, the values of the query are
+ * parameters and not part of the text, so the same query shape is compiled only once. Compiled
+ * strings are stateless while executing and can be shared between threads.
+ */
+public class CachedQueryParser implements Parser {
+
+    private static final CfgLong CFG_CACHE_SIZE =
+            new CfgLong(CachedQueryParser.class, "size", 1000);
+
+    private Parser parser;
+    private long hits;
+    private long misses;
+    private long compileTime;
+
+    private LinkedHashMap<String, CompiledString> cache =
+            new LinkedHashMap<String, CompiledString>(64, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledString> eldest) {
+                    return size() > CFG_CACHE_SIZE.value();
+                }
+            };
+
+    public CachedQueryParser(Parser parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    public CompiledString compileString(String in) throws ParseException {
+        if (CFG_CACHE_SIZE.value() <= 0) return parser.compileString(in);
+        synchronized (cache) {
+            CompiledString out = cache.get(in);
+            if (out != null) {
+                hits++;
+                return out;
+            }
+            misses++;
+        }
+        long start = System.nanoTime();
+        CompiledString out = parser.compileString(in);
+        long time = System.nanoTime() - start;
+        synchronized (cache) {
+            compileTime += time;
+            cache.put(in, out);
+        }
+        return out;
+    }
+
+    public Parser getParser() {
+        return parser;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the summarized compile time of all misses.
+     *
+     * @return time in nanoseconds
+     */
+    public long getCompileTime() {
+        return compileTime;
+    }
+
+    public double getHitRate() {
+        long all = hits + misses;
+        return all == 0 ? 0 : (double) hits / all;
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(
+                this,
+                parser.getClass().getSimpleName(),
+                "size",
+                getSize(),
+                "hits",
+                hits,
+                "misses",
+                misses,
+                "compileMs",
+                compileTime / 1000000);
+    }
+}
@@ -65,5 +65,16 @@ public interface ICompiler {
 
     String escape(String text);
 
+    /**
+     * Return true if the parameter values should be bound as statement parameters ('?') instead of
+     * inlining them as literals into the sql text. Raw values (table and column names) are always
+     * inlined.
+     *
+     * @return true to bind parameters
+     */
+    default boolean isBindParameters() {
+        return false;
+    }
+
     String toBoolValue(boolean value);
 }
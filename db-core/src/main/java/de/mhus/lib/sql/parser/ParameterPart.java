@@ -17,22 +17,22 @@ package de.mhus.lib.sql.parser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import de.mhus.lib.core.MCast;
 import de.mhus.lib.core.M;
+import de.mhus.lib.core.MDate;
 import de.mhus.lib.core.MString;
 import de.mhus.lib.core.MSystem;
 import de.mhus.lib.core.parser.ParseException;
 import de.mhus.lib.core.parser.ParseReader;
 import de.mhus.lib.core.parser.StringParsingPart;
-import de.mhus.lib.core.util.FallbackMap;
 import de.mhus.lib.core.util.Raw;
 import de.mhus.lib.sql.DbStatement;
 
@@ -49,32 +49,27 @@ public class ParameterPart extends StringParsingPart {
 
     @Override
     public void execute(StringBuilder out, Map<String, Object> attributes) {
+        append(out, attributes, attributes.get(attribute[0]));
+    }
+
+    private void append(StringBuilder out, Map<String, Object> attributes, Object value) {
 
-        Object value = attributes.get(attribute[0]);
         if (value == null) {
             out.append("null");
             return;
         }
         if (value.getClass().isArray()) {
-            HashMap<String, Object> valueMap = new HashMap<String, Object>();
-            FallbackMap<String, Object> proxyMap =
-                    new FallbackMap<String, Object>(valueMap, attributes, false);
             for (int i = 0; i < ((Object[]) value).length; i++) {
                 if (i != 0) out.append(attribute.length > 2 ? attribute[2] : ",");
-                valueMap.put(attribute[0], ((Object[]) value)[i]);
-                execute(out, proxyMap);
+                append(out, attributes, ((Object[]) value)[i]);
             }
             return;
         }
         if (value instanceof List) {
-            HashMap<String, Object> valueMap = new HashMap<String, Object>();
-            FallbackMap<String, Object> proxyMap =
-                    new FallbackMap<String, Object>(valueMap, attributes, false);
             boolean first = true;
             for (Object obj : (List<?>) value) {
                 if (!first) out.append(attribute.length > 2 ? attribute[2] : ",");
-                valueMap.put(attribute[0], obj);
-                execute(out, proxyMap);
+                append(out, attributes, obj);
                 first = false;
             }
             return;
@@ -106,6 +101,10 @@ public class ParameterPart extends StringParsingPart {
 
         log().t(type, value);
 
+        if ((compiler.isBindParameters()
+                        || attributes.containsKey(DbStatement.BIND_PARAMETERS_KEY))
+                && bind(out, attributes, type, value)) return;
+
         if (M.TYPE_TEXT.equals(type) || M.TYPE_STRING.equals(type))
             out.append("'").append(compiler.escape(String.valueOf(value))).append("'");
         else if (M.TYPE_INT.equals(type)) {
@@ -122,6 +121,59 @@ public class ParameterPart extends StringParsingPart {
         else log().w("Unknown attribute type:", type);
     }
 
+    /**
+     * Append a '?' placeholder and register the typed value as statement parameter. Raw values
+     * (identifiers, constants) and booleans are not bound and will be inlined.
+     *
+     * @return true if the value was bound
+     */
+    private boolean bind(
+            StringBuilder out, Map<String, Object> attributes, String type, Object value) {
+        Object bindValue = null;
+        if (M.TYPE_TEXT.equals(type) || M.TYPE_STRING.equals(type))
+            bindValue = String.valueOf(value);
+        else if (M.TYPE_INT.equals(type)) {
+            if (value instanceof Enum) bindValue = ((Enum<?>) value).ordinal();
+            else if (value instanceof Integer) bindValue = value;
+            else bindValue = toLong(value);
+        } else if (M.TYPE_LONG.equals(type)) bindValue = toLong(value);
+        else if (M.TYPE_FLOAT.equals(type) || M.TYPE_DOUBLE.equals(type))
+            bindValue = toDouble(value);
+        else if (M.TYPE_DATE.equals(type)) bindValue = toTimestamp(value);
+
+        if (bindValue == null) return false;
+        out.append("?");
+        DbStatement.addBinary(attributes, bindValue);
+        return true;
+    }
+
+    private Long toLong(Object value) {
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Calendar) return ((Calendar) value).getTimeInMillis();
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof Character) return (long) ((Character) value).charValue();
+        return MCast.tolong(value, 0);
+    }
+
+    private Double toDouble(Object value) {
+        if (value instanceof Date) return (double) ((Date) value).getTime();
+        if (value instanceof Calendar) return (double) ((Calendar) value).getTimeInMillis();
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        return MCast.todouble(value, 0);
+    }
+
+    private Timestamp toTimestamp(Object value) {
+        Date date = null;
+        if (value instanceof Calendar) date = ((Calendar) value).getTime();
+        else if (value instanceof Date) date = (Date) value;
+        else if (value instanceof LocalDateTime) date = MDate.toDate((LocalDateTime) value, null);
+        else if (value instanceof LocalDate) date = MDate.toDate((LocalDate) value, null);
+        else if (value instanceof Number) date = new Date(((Number) value).longValue());
+        else date = MCast.toDate(value, null);
+        if (date == null) return null;
+        return new Timestamp(date.getTime());
+    }
+
     @Override
     public void doPreParse() {
         buffer = new StringBuilder();
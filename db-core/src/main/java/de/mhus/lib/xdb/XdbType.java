@@ -15,6 +15,7 @@
  */
 package de.mhus.lib.xdb;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -223,6 +224,20 @@ public interface XdbType<T> {
      */
     T getObject(String... keys) throws MException;
 
+    /**
+     * Return the requested objects by a list of single primary keys. The default implementation
+     * loads the objects one by one.
+     *
+     * @param ids Primary keys
+     * @return The objects in the order of the ids, null if an object was not found
+     * @throws MException
+     */
+    default List<T> getObjects(String... ids) throws MException {
+        ArrayList<T> out = new ArrayList<>(ids.length);
+        for (String id : ids) out.add(getObject(id));
+        return out;
+    }
+
     /**
      * Load all entries.
      *
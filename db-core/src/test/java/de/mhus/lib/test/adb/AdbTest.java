@@ -16,16 +16,22 @@
 package de.mhus.lib.test.adb;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
@@ -36,6 +42,8 @@ import org.junit.jupiter.api.Test;
 import de.mhus.lib.adb.DbCollection;
 import de.mhus.lib.adb.DbManager;
 import de.mhus.lib.adb.DbManagerJdbc;
+import de.mhus.lib.adb.model.Table;
+import de.mhus.lib.adb.model.TableCache;
 import de.mhus.lib.adb.query.AQuery;
 import de.mhus.lib.adb.query.Db;
 import de.mhus.lib.core.MApi;
@@ -48,6 +56,11 @@ import de.mhus.lib.errors.MException;
 import de.mhus.lib.sql.DbConnection;
 import de.mhus.lib.sql.DbPool;
 import de.mhus.lib.sql.DbPoolBundle;
+import de.mhus.lib.sql.DbPrepared;
+import de.mhus.lib.sql.DbResult;
+import de.mhus.lib.sql.JdbcConnection;
+import de.mhus.lib.sql.analytics.SqlAnalytics;
+import de.mhus.lib.sql.analytics.SqlAnalyzer;
 import de.mhus.lib.tests.TestCase;
 import de.mhus.lib.test.adb.model.Book;
 import de.mhus.lib.test.adb.model.BookStoreSchema;
@@ -867,4 +880,628 @@ public class AdbTest extends TestCase {
         assertEquals("b", store3.getBlobValue().get("a"));
         assertEquals(1000, store3.getSqlDate().getTime());
     }
+
+    private enum Level {
+        ZERO,
+        ONE,
+        TWO,
+        THREE
+    }
+
+    @Test
+    public void testBindParameters() throws Exception {
+        long day = 1000 * 60 * 60 * 24;
+
+        // binding is the default for hsqldb
+        DbPool defaultPool = createPool("testBindParametersDefault").getPool("test");
+        assertTrue(defaultPool.getDialect().isBindParameters());
+        defaultPool.close();
+
+        for (boolean bind : new boolean[] {false, true}) {
+            System.out.println(">>> bind parameters " + bind);
+            DbPool pool = createPool("testBindParameters" + bind).getPool("test");
+            pool.getDialect().setBindParameters(bind);
+
+            BookStoreSchema schema = new BookStoreSchema();
+            DbManager manager = new DbManagerJdbc("", pool, null, schema);
+
+            for (int i = 1; i < 4; i++) {
+                Store store = manager.inject(new Store());
+                store.setName(i == 3 ? null : "Store " + i);
+                store.setIntValue(i);
+                store.setSqlDate(new Date(i * day));
+                store.save();
+            }
+
+            // date parameter
+            List<Store> res =
+                    manager.getByQualification(
+                                    Db.query(Store.class)
+                                            .ge("sqldate", new Date(day * 3 / 2))
+                                            .asc("intvalue"))
+                            .toCacheAndClose();
+            assertEquals(2, res.size());
+            assertEquals(2, res.get(0).getIntValue());
+            assertEquals(new Date(2 * day).toString(), res.get(0).getSqlDate().toString());
+
+            // enum parameter is the ordinal
+            res =
+                    manager.getByQualification(Db.query(Store.class).eq("intvalue", Level.TWO))
+                            .toCacheAndClose();
+            assertEquals(1, res.size());
+            assertEquals("Store 2", res.get(0).getName());
+
+            // null parameter
+            res =
+                    manager.getByQualification(Db.query(Store.class).isNull("name"))
+                            .toCacheAndClose();
+            assertEquals(1, res.size());
+            assertEquals(3, res.get(0).getIntValue());
+
+            Store store = res.get(0);
+            store.setSqlDate(null);
+            store.save();
+            store = manager.getObject(Store.class, store.getId());
+            assertNull(store.getName());
+            assertNull(store.getSqlDate());
+
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testBatchRollback() throws Throwable {
+        DbManager manager = createBookstoreManager();
+
+        Book book = new Book();
+        book.setName("Batch Book");
+        UUID id = UUID.randomUUID();
+        Person p1 = new Person();
+        p1.setId(id);
+        p1.setName("Batch 1");
+        Person p2 = new Person();
+        p2.setId(id);
+        p2.setName("Batch 2");
+
+        // the book is written first, the second person fails with a duplicate key
+        try {
+            manager.createObjects(Arrays.asList(book, p1, p2));
+            fail("duplicate key not detected");
+        } catch (MException e) {
+            System.out.println(e);
+        }
+
+        assertEquals(0, manager.getCountByQualification(Db.query(Book.class)));
+        assertNull(manager.getObject(Person.class, id));
+
+        manager.getPool().close();
+    }
+
+    @Test
+    public void testKeysetPagination() throws Exception {
+        DbPool pool = createPool("testKeysetPagination").getPool("test");
+
+        BookStoreSchema schema = new BookStoreSchema();
+        DbManager manager = new DbManagerJdbc("", pool, null, schema);
+
+        for (int i = 0; i < 7; i++) {
+            Store store = manager.inject(new Store());
+            store.setName("Store " + i);
+            store.save();
+        }
+
+        HashSet<UUID> found = new HashSet<>();
+        Object[] last = new Object[0];
+        int pages = 0;
+        while (true) {
+            List<Store> page =
+                    manager.getByQualification(Db.query(Store.class).after(last).limit(3))
+                            .toCacheAndClose();
+            if (page.isEmpty()) break;
+            pages++;
+            assertTrue(page.size() <= 3);
+            for (Store store : page) assertTrue(found.add(store.getId()));
+            last = new Object[] {page.get(page.size() - 1).getId()};
+        }
+        assertEquals(7, found.size());
+        assertEquals(3, pages);
+
+        // the pages are ordered by the primary key, another order is rejected
+        try {
+            manager.getByQualification(Db.query(Store.class).after(last).asc("name").limit(3))
+                    .toCacheAndClose();
+            fail("order with keyset pagination");
+        } catch (Exception e) {
+            // expected
+        }
+
+        // stream with a small fetch size
+        int count = 0;
+        DbCollection<Store> res = manager.getByQualification(Db.query(Store.class).stream(2));
+        try {
+            for (Store store : res) {
+                assertTrue(found.contains(store.getId()));
+                count++;
+            }
+        } finally {
+            res.close();
+        }
+        assertEquals(7, count);
+
+        pool.close();
+    }
+
+    @Test
+    public void testCacheIsolation() throws Exception {
+        DbPool pool = createPool("testCacheIsolation").getPool("test");
+
+        BookStoreSchema schema =
+                new BookStoreSchema() {
+                    @Override
+                    public TableCache createTableCache(Table table) {
+                        if (table.getClazz() == Store.class) return new TableCache(100, 60000, 0);
+                        return null;
+                    }
+                };
+        DbManager manager = new DbManagerJdbc("", pool, null, schema);
+        TableCache cache = manager.getTable(manager.getRegistryName(Store.class)).getCache();
+        assertNotNull(cache);
+
+        Store store = manager.inject(new Store());
+        store.setName("Cached");
+        store.getBlobValue().put("a", "b");
+        store.setSqlDate(new Date(1000));
+        store.save();
+        UUID id = store.getId();
+
+        // first load fills the cache, change the mutable values without saving
+        Store s1 = manager.getObject(Store.class, id);
+        s1.getBlobValue().put("x", "y");
+        s1.getSqlDate().setTime(2000);
+
+        long hits = cache.getHits();
+        Store s2 = manager.getObject(Store.class, id);
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals("b", s2.getBlobValue().get("a"));
+        assertNull(s2.getBlobValue().get("x"));
+        assertEquals(1000, s2.getSqlDate().getTime());
+        assertTrue(s1.getBlobValue() != s2.getBlobValue());
+
+        // a save invalidates the entry
+        s2.setName("Changed");
+        s2.save();
+        Store s3 = manager.getObject(Store.class, id);
+        assertEquals("Changed", s3.getName());
+
+        // the cache is keyed by the loaded primary key
+        cache.clear();
+        manager.getObject(Store.class, id.toString().toUpperCase());
+        assertTrue(cache.contains(new Object[] {id}));
+
+        // values loaded before an invalidation are not stored
+        cache.clear();
+        long epoch = cache.getEpoch();
+        cache.invalidate(new Object[] {id});
+        assertFalse(cache.put(new Object[] {id}, new Object[0], epoch));
+        assertFalse(cache.contains(new Object[] {id}));
+
+        pool.close();
+    }
+
+    @Test
+    public void testTrackedBlobChanges() throws Exception {
+        DbPool pool = createPool("testTrackedBlobChanges").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+
+        Store store = manager.inject(new Store());
+        store.setName("Tracked");
+        store.getBlobValue().put("a", "b");
+        store.save();
+
+        // a loaded blob is not changed until the value is modified
+        Store loaded = manager.getObject(Store.class, store.getId());
+        assertTrue(table.isTracked(loaded));
+        assertEquals("b", loaded.getBlobValue().get("a"));
+        assertEquals(0, table.getChangedFields(loaded).size());
+        assertFalse(loaded.isAdbChanged());
+
+        loaded.getBlobValue().put("x", "y");
+        assertEquals(1, table.getChangedFields(loaded).size());
+        loaded.save();
+        assertEquals(0, table.getChangedFields(loaded).size());
+
+        Store reloaded = manager.getObject(Store.class, store.getId());
+        assertEquals("y", reloaded.getBlobValue().get("x"));
+
+        pool.close();
+    }
+
+    @Test
+    public void testCollectionSkip() throws Exception {
+        DbPool pool = createPool("testCollectionSkip").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        for (int i = 0; i < 7; i++) {
+            Store store = manager.inject(new Store());
+            store.setName("Store " + i);
+            store.save();
+        }
+
+        AQuery<Store> query = Db.query(Store.class).asc("name");
+        assertFalse(query.isPaged());
+
+        DbCollection<Store> res = manager.getByQualification(query);
+        try {
+            assertTrue(res.skip(5));
+            assertEquals("Store 5", res.next().getName());
+            assertTrue(res.hasNext());
+            assertFalse(res.skip(5));
+            assertFalse(res.hasNext());
+        } finally {
+            res.close();
+        }
+
+        // the query is not changed and can be executed again
+        assertFalse(query.isPaged());
+        assertEquals(7, manager.getByQualification(query).toCacheAndClose().size());
+
+        pool.close();
+    }
+
+    @Test
+    public void testBulkGetObjects() throws Exception {
+        DbPool pool = createPool("testBulkGetObjects").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        LinkedList<Store> stores = new LinkedList<>();
+        for (int i = 0; i < 3; i++) {
+            Store store = manager.inject(new Store());
+            store.setName("Store " + i);
+            store.save();
+            stores.add(store);
+        }
+
+        LinkedList<Object[]> keys = new LinkedList<>();
+        keys.add(new Object[] {stores.get(2).getId()});
+        keys.add(new Object[] {UUID.randomUUID()});
+        keys.add(new Object[] {stores.get(0).getId()});
+        keys.add(new Object[] {stores.get(2).getId()});
+
+        List<Store> res = manager.getObjects(Store.class, keys);
+        assertEquals(4, res.size());
+        assertEquals("Store 2", res.get(0).getName());
+        assertNull(res.get(1));
+        assertEquals("Store 0", res.get(2).getName());
+        assertEquals(stores.get(2).getId(), res.get(3).getId());
+
+        assertEquals(0, manager.getObjects(Store.class, new LinkedList<Object[]>()).size());
+
+        // keys are converted to the type of the primary key
+        keys.clear();
+        keys.add(new Object[] {stores.get(1).getId().toString().toUpperCase()});
+        res = manager.getObjects(Store.class, keys);
+        assertEquals("Store 1", res.get(0).getName());
+
+        pool.close();
+    }
+
+    @Test
+    public void testUpdateAndDeleteByQualification() throws Exception {
+        DbPool pool = createPool("testUpdateAndDeleteByQualification").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        for (int i = 0; i < 6; i++) {
+            Store store = manager.inject(new Store());
+            store.setName("Store " + i);
+            store.setIntValue(i % 2);
+            store.save();
+        }
+
+        HashMap<String, Object> values = new HashMap<>();
+        values.put("name", "Odd");
+        assertEquals(
+                3,
+                manager.updateByQualification(Db.query(Store.class).eq("intvalue", 1), values));
+        assertEquals(
+                3, manager.getCountByQualification(Db.query(Store.class).eq("name", "Odd")));
+
+        values.clear();
+        values.put("unknown", "x");
+        try {
+            manager.updateByQualification(Db.query(Store.class), values);
+            fail("unknown attribute updated");
+        } catch (MException e) {
+        }
+
+        try {
+            manager.deleteByQualification(Db.query(Store.class).asc("name"));
+            fail("ordered delete executed");
+        } catch (MException e) {
+        }
+
+        assertEquals(3, manager.deleteByQualification(Db.query(Store.class).eq("intvalue", 0)));
+        assertEquals(3, manager.getCountByQualification(Db.query(Store.class)));
+        for (Store store : manager.getByQualification(Db.query(Store.class)).toCacheAndClose())
+            assertEquals("Odd", store.getName());
+
+        pool.close();
+    }
+
+    @Test
+    public void testSaveProjection() throws Exception {
+        DbPool pool = createPool("testSaveProjection").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+
+        Store store = manager.inject(new Store());
+        store.setName("Projection");
+        store.setIntValue(5);
+        store.getBlobValue().put("a", "b");
+        store.setSqlDate(new Date(1000));
+        store.save();
+        UUID id = store.getId();
+
+        Store partial =
+                manager.getByQualification(Db.query(Store.class).eq("id", id).select("name"))
+                        .getNextAndClose();
+        assertNotNull(partial);
+        assertEquals("Projection", partial.getName());
+        assertTrue(table.isPartiallyLoaded(partial));
+
+        // the full row can't be written in a batch
+        try {
+            manager.saveObjects(Arrays.asList(partial));
+            fail("partially loaded object saved in batch");
+        } catch (MException e) {
+        }
+
+        // only the changed column is written, the not loaded columns are kept
+        partial.setName("Changed");
+        partial.save();
+
+        Store loaded = manager.getObject(Store.class, id);
+        assertEquals("Changed", loaded.getName());
+        assertEquals(5, loaded.getIntValue());
+        assertEquals("b", loaded.getBlobValue().get("a"));
+        assertNotNull(loaded.getSqlDate());
+        assertFalse(table.isPartiallyLoaded(loaded));
+
+        pool.close();
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        DbPool pool = createPool("testAggregates").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        String[] addresses = {"A", "A", "A", "B", "B", "C"};
+        for (int i = 0; i < addresses.length; i++) {
+            Store store = manager.inject(new Store());
+            store.setName("Store " + i);
+            store.setAddress(addresses[i]);
+            store.setIntValue(i + 1);
+            store.save();
+        }
+
+        List<Object[]> rows =
+                manager.getAggregatesByQualification(Db.query(Store.class).count().sum("intvalue"))
+                        .toCacheAndClose();
+        assertEquals(1, rows.size());
+        assertEquals(6L, rows.get(0)[0]);
+        assertEquals(21, ((Number) rows.get(0)[1]).intValue());
+
+        rows =
+                manager.getAggregatesByQualification(
+                                Db.query(Store.class)
+                                        .groupBy("address")
+                                        .count()
+                                        .sum("intvalue")
+                                        .asc("address"))
+                        .toCacheAndClose();
+        assertEquals(3, rows.size());
+        assertEquals("A", rows.get(0)[0]);
+        assertEquals(3L, rows.get(0)[1]);
+        assertEquals(6, ((Number) rows.get(0)[2]).intValue());
+        assertEquals("C", rows.get(2)[0]);
+        assertEquals(1L, rows.get(2)[1]);
+
+        rows =
+                manager.getAggregatesByQualification(
+                                Db.query(Store.class)
+                                        .groupBy("address")
+                                        .count()
+                                        .having(Db.gt(Db.count(), Db.fix("1")))
+                                        .asc("address"))
+                        .toCacheAndClose();
+        assertEquals(2, rows.size());
+        assertEquals("B", rows.get(1)[0]);
+
+        // group by and having are rejected outside of aggregates
+        try {
+            manager.getByQualification(Db.query(Store.class).groupBy("address"));
+            fail("group by executed without aggregates");
+        } catch (MException e) {
+        }
+        try {
+            manager.getCountByQualification(
+                    Db.query(Store.class).having(Db.gt(Db.count(), Db.fix("1"))));
+            fail("having executed without aggregates");
+        } catch (MException e) {
+        }
+
+        pool.close();
+    }
+
+    @Test
+    public void testBatchExecutedOnce() throws Exception {
+        DbPool pool = createPool("testBatchExecutedOnce").getPool("test");
+        // batches bind the values even if the dialect inlines them
+        pool.getDialect().setBindParameters(false);
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        LinkedList<Store> stores = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            Store store = new Store();
+            store.setName("Batch " + i);
+            store.setIntValue(i);
+            stores.add(store);
+        }
+
+        LinkedList<Long> inserts = new LinkedList<>();
+        SqlAnalytics.setAnalyzer(
+                new SqlAnalyzer() {
+                    @Override
+                    public void doAnalyze(
+                            long connectionId,
+                            String original,
+                            String query,
+                            long delta,
+                            Throwable t) {}
+
+                    @Override
+                    public void doAnalyzeNanos(
+                            long connectionId,
+                            String original,
+                            String query,
+                            long nanos,
+                            long rows,
+                            Throwable t) {
+                        if (query.trim().toUpperCase().startsWith("INSERT")) inserts.add(rows);
+                    }
+
+                    @Override
+                    public void start() {}
+
+                    @Override
+                    public void stop() {}
+
+                    @Override
+                    public void doConfigure(INode config) {}
+                });
+        try {
+            manager.createObjects(stores);
+        } finally {
+            SqlAnalytics.setAnalyzer(null);
+        }
+
+        assertEquals(1, inserts.size());
+        assertEquals(10, inserts.getFirst().longValue());
+        assertEquals(10, manager.getCountByQualification(Db.query(Store.class)));
+
+        pool.close();
+    }
+
+    @Test
+    public void testStatementCacheReuse() throws Exception {
+        DbPool pool = createPool("testStatementCacheReuse").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        Store store = manager.inject(new Store());
+        store.setName("Store");
+        store.save();
+
+        DbConnection con = pool.getConnection();
+        JdbcConnection jdbc = (JdbcConnection) con.instance();
+
+        store.setName("Store 0");
+        manager.updateAttributes(con, store, false, "name");
+        int size = jdbc.getStatementCacheSize();
+        for (int i = 1; i < 10; i++) {
+            store.setName("Store " + i);
+            manager.updateAttributes(con, store, false, "name", "address");
+            manager.updateAttributes(con, store, false, "name");
+        }
+        assertEquals(size + 1, jdbc.getStatementCacheSize());
+        con.commit();
+
+        // second statement while the cached one is busy, released after its result is closed
+        DbPrepared prepared =
+                pool.createStatement("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+        DbResult res1 = prepared.getStatement(con).executeQuery(new HashMap<>());
+        DbResult res2 = prepared.getStatement(con).executeQuery(new HashMap<>());
+        assertEquals(1, jdbc.getBusyStatementCount());
+        res2.close();
+        assertEquals(0, jdbc.getBusyStatementCount());
+        res1.close();
+
+        con.close();
+        pool.close();
+    }
+
+    @Test
+    public void testFetchSingleRelation() throws Exception {
+        DbPool pool = createPool("testFetchSingleRelation").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        Person p = new Person();
+        p.setName("Fetch Person");
+        manager.createObject(p);
+
+        // one book lends to the person, one to a removed person and one to nobody
+        Book b = new Book();
+        b.setName("Fetch 1");
+        b.setLendToId(p.getId());
+        manager.createObject(b);
+        b.setId(null);
+        b.setName("Fetch 2");
+        b.setLendToId(UUID.randomUUID());
+        manager.createObject(b);
+        b.setId(null);
+        b.setName("Fetch 3");
+        b.setLendToId(null);
+        manager.createObject(b);
+
+        LinkedList<String> queries = new LinkedList<>();
+        SqlAnalytics.setAnalyzer(
+                new SqlAnalyzer() {
+                    @Override
+                    public void doAnalyze(
+                            long connectionId,
+                            String original,
+                            String query,
+                            long delta,
+                            Throwable t) {}
+
+                    @Override
+                    public void doAnalyzeNanos(
+                            long connectionId,
+                            String original,
+                            String query,
+                            long nanos,
+                            long rows,
+                            Throwable t) {
+                        if (query.toUpperCase().contains("PERSON")) queries.add(query);
+                    }
+
+                    @Override
+                    public void start() {}
+
+                    @Override
+                    public void stop() {}
+
+                    @Override
+                    public void doConfigure(INode config) {}
+                });
+        try {
+            List<Book> books =
+                    manager.getByQualification(Db.query(Book.class).fetch("lendTo"))
+                            .toCacheAndClose();
+            assertEquals(3, books.size());
+            int found = 0;
+            for (Book book : books) {
+                Person rel = book.getLendTo().getRelation();
+                if (rel != null) {
+                    assertEquals(p.getId(), rel.getId());
+                    found++;
+                }
+            }
+            assertEquals(1, found);
+        } finally {
+            SqlAnalytics.setAnalyzer(null);
+        }
+        assertEquals(1, queries.size(), queries.toString());
+
+        pool.close();
+    }
 }
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.test.adb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import de.mhus.lib.sql.analytics.LatencyHistogram;
+import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer;
+
+public class AnalyticsTest {
+
+    @Test
+    public void testNormalize() {
+        assertEquals(
+                "SELECT * FROM t WHERE a = ? AND b = ?",
+                SqlRuntimeAnalyzer.normalize("SELECT * FROM t WHERE a = 'x' AND b = 12"));
+        assertEquals(
+                "SELECT * FROM t WHERE a = ?",
+                SqlRuntimeAnalyzer.normalize("SELECT  *\n  FROM t WHERE a = 'it''s'  "));
+        assertEquals(
+                "SELECT * FROM t WHERE id IN (?)",
+                SqlRuntimeAnalyzer.normalize("SELECT * FROM t WHERE id IN (1, 2.5, 3)"));
+        assertEquals(
+                "SELECT * FROM t WHERE id IN (?)",
+                SqlRuntimeAnalyzer.normalize("SELECT * FROM t WHERE id IN (?,?)"));
+        assertEquals(
+                "DELETE FROM t WHERE id=?",
+                SqlRuntimeAnalyzer.normalize(
+                        "DELETE FROM t WHERE id=0a1b2c3d-0000-4000-8000-00000000abcd"));
+        // identifiers and parameters keep their digits
+        assertEquals(
+                "SELECT c1 FROM t2 WHERE $db.t2.c1$ = ?",
+                SqlRuntimeAnalyzer.normalize("SELECT c1 FROM t2 WHERE $db.t2.c1$ = 7"));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long v = 0; v < 100000; v++) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.upperBound(index) >= v, "upper bound of " + v);
+            if (index > 0)
+                assertTrue(LatencyHistogram.upperBound(index - 1) < v, "lower bound of " + v);
+        }
+        assertEquals(0, LatencyHistogram.index(-1));
+        int last = LatencyHistogram.index(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(last));
+        assertEquals(7L << 60, LatencyHistogram.upperBound(last - 1) + 1);
+    }
+}
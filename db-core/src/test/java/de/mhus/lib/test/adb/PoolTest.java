@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.lib.test.adb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.mhus.lib.core.node.INode;
+import de.mhus.lib.core.node.MNode;
+import de.mhus.lib.sql.BoundedDbPool;
+import de.mhus.lib.sql.DbConnection;
+import de.mhus.lib.sql.DbPoolBundle;
+import de.mhus.lib.tests.TestCase;
+
+public class PoolTest extends TestCase {
+
+    private static int poolCnt = 0;
+
+    private BoundedDbPool createBoundedPool(int minSize, int maxSize) throws Exception {
+        INode cconfig = new MNode();
+        INode cdb = cconfig.createObject("test");
+        cdb.setProperty("driver", "org.hsqldb.jdbcDriver");
+        cdb.setProperty("url", "jdbc:hsqldb:mem:testpool" + (poolCnt++));
+        cdb.setProperty("user", "sa");
+        cdb.setProperty("password", "");
+        cdb.setProperty("pool", "bounded");
+        cdb.setProperty("minSize", String.valueOf(minSize));
+        cdb.setProperty("maxSize", String.valueOf(maxSize));
+        cdb.setProperty("acquireTimeout", "2000");
+        return (BoundedDbPool) new DbPoolBundle(cconfig, null).getPool("test");
+    }
+
+    @Test
+    public void testCleanupWithMinSize() throws Exception {
+        BoundedDbPool pool = createBoundedPool(2, 3);
+
+        // fill up to the minimum size
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> pool.cleanup(false));
+        assertEquals(2, pool.getSize());
+        assertEquals(2, pool.getIdleSize());
+
+        // valid idle connections are kept and the cleanup must come to an end
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> pool.cleanup(false));
+        assertEquals(2, pool.getSize());
+        assertEquals(2, pool.getIdleSize());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> pool.cleanup(true));
+        assertEquals(2, pool.getSize());
+
+        pool.close();
+    }
+
+    @Test
+    public void testDirectClosedConnection() throws Exception {
+        BoundedDbPool pool = createBoundedPool(0, 2);
+
+        DbConnection con = pool.getConnection();
+        assertEquals(1, pool.getUsedSize());
+
+        // close the connection itself and not the lease
+        con.instance().close();
+        assertEquals(0, pool.getUsedSize());
+
+        // all permits are available again
+        DbConnection con1 = pool.getConnection();
+        DbConnection con2 = pool.getConnection();
+        assertEquals(2, pool.getUsedSize());
+        assertTrue(pool.getSize() <= 2);
+        con1.close();
+        con2.close();
+        con.close();
+        assertEquals(0, pool.getUsedSize());
+
+        pool.close();
+    }
+
+    @Test
+    public void testCleanupKeepsMaxSize() throws Exception {
+        BoundedDbPool pool = createBoundedPool(2, 2);
+        pool.cleanup(false);
+        assertEquals(2, pool.getSize());
+
+        // run the cleanup concurrently while the connections are used
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger maxSeen = new AtomicInteger();
+        Thread cleaner =
+                new Thread(
+                        () -> {
+                            while (running.get()) {
+                                pool.cleanup(false);
+                                maxSeen.accumulateAndGet(pool.getSize(), Math::max);
+                            }
+                        });
+        cleaner.start();
+        try {
+            for (int i = 0; i < 200; i++) {
+                DbConnection con1 = pool.getConnection();
+                DbConnection con2 = pool.getConnection();
+                maxSeen.accumulateAndGet(pool.getSize(), Math::max);
+                con1.close();
+                con2.close();
+            }
+        } finally {
+            running.set(false);
+            cleaner.join(10000);
+        }
+        assertTrue(maxSeen.get() <= 2, "pool size " + maxSeen.get());
+
+        pool.close();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package de.mhus.lib.test.adb;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import org.junit.jupiter.api.BeforeAll;
@@ -24,6 +25,7 @@ import de.mhus.lib.adb.DbManager;
 import de.mhus.lib.adb.DbManagerJdbc;
 import de.mhus.lib.adb.DbSchema;
 import de.mhus.lib.adb.DbTransaction;
+import de.mhus.lib.adb.transaction.DbAdvisoryLockStrategy;
 import de.mhus.lib.adb.transaction.MemoryLockStrategy;
 import de.mhus.lib.adb.transaction.NestedTransactionException;
 import de.mhus.lib.core.MPeriod;
@@ -217,4 +219,111 @@ public class TransactionTest {
                     .setMaxLockAge(MPeriod.HOUR_IN_MILLISECONDS); // set back to 'long'
         }
     }
+
+    @Test
+    public void testLockHandover() throws Exception {
+
+        // a waiting thread gets the lock as soon as it is released, polling with the sleep time
+        // would take much longer
+        MemoryLockStrategy strategy = (MemoryLockStrategy) manager.getSchema().getLockStrategy();
+        long sleepTime = strategy.getSleepTime();
+        strategy.setSleepTime(10000);
+        try {
+            DbTransaction.lockDefault(obj1);
+
+            final Value<Long> acquired = new Value<>(0L);
+            final Value<String> fail = new Value<>();
+
+            new MThread(
+                            new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    try {
+                                        // other keys are not blocked by the lock of obj1
+                                        DbTransaction.lock(1000, obj2);
+                                        DbTransaction.releaseLock();
+                                        DbTransaction.lock(10000, obj1);
+                                        acquired.setValue(System.currentTimeMillis());
+                                    } catch (Throwable t) {
+                                        fail.setValue(t.toString());
+                                    } finally {
+                                        DbTransaction.releaseLock();
+                                    }
+                                }
+                            })
+                    .start();
+
+            MThread.sleep(500);
+            long released = System.currentTimeMillis();
+            DbTransaction.releaseLock();
+
+            for (int i = 0; i < 200 && acquired.getValue() == 0 && fail.getValue() == null; i++)
+                MThread.sleep(50);
+
+            if (fail.getValue() != null) fail(fail.getValue());
+            if (acquired.getValue() == 0) fail("Lock was not acquired");
+            long waited = acquired.getValue() - released;
+            if (waited > 100) fail("Lock was not handed over " + waited);
+        } finally {
+            strategy.setSleepTime(sleepTime);
+        }
+    }
+
+    @Test
+    public void testAdvisoryLockStrategy() throws Exception {
+        DbPool pool = createPool("transactionAdvisory").getPool("test");
+        DbSchema schema =
+                new TransactionSchema() {
+                    {
+                        lockStrategy = new DbAdvisoryLockStrategy();
+                    }
+                };
+        DbManager advisory = new DbManagerJdbc("", pool, null, schema);
+        TransactionDummy obj = advisory.inject(new TransactionDummy());
+        obj.save();
+
+        // HSQLDB has no advisory locks, the strategy falls back to memory locks
+        DbTransaction.lock(Long.MAX_VALUE, obj);
+        final Value<String> fail = new Value<>();
+        final Value<Boolean> done = new Value<>(false);
+        new MThread(
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                try {
+                                    DbTransaction.lock(200, obj);
+                                    fail.setValue("Concurrent Lock Possible");
+                                } catch (Throwable t) {
+                                    System.out.println(t);
+                                } finally {
+                                    DbTransaction.releaseLock();
+                                    done.setValue(true);
+                                }
+                            }
+                        })
+                .start();
+        for (int i = 0; i < 100 && !done.getValue(); i++) MThread.sleep(50);
+        DbTransaction.releaseLock();
+        if (!done.getValue()) fail("Concurrent lock did not time out");
+        if (fail.getValue() != null) fail(fail.getValue());
+
+        // the wait time is clamped for long and negative timeouts
+        AdvisoryLockStrategy strategy = new AdvisoryLockStrategy();
+        assertEquals(Integer.MAX_VALUE, strategy.toTimeoutSeconds(Long.MAX_VALUE, 10));
+        assertEquals(Integer.MAX_VALUE, strategy.toTimeoutSeconds(-1, 10));
+        assertEquals(2, strategy.toTimeoutSeconds(2000, 500));
+        assertEquals(0, strategy.toTimeoutSeconds(1000, 2000));
+
+        pool.close();
+    }
+
+    private static class AdvisoryLockStrategy extends DbAdvisoryLockStrategy {
+
+        @Override
+        protected long toTimeoutSeconds(long timeout, long waited) {
+            return super.toTimeoutSeconds(timeout, waited);
+        }
+    }
 }
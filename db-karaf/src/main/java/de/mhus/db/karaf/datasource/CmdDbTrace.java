@@ -16,6 +16,7 @@
 package de.mhus.db.karaf.datasource;
 
 import java.sql.Connection;
+import java.util.List;
 
 import javax.sql.DataSource;
 
@@ -25,6 +26,9 @@ import org.apache.karaf.shell.api.action.lifecycle.Reference;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.osgi.framework.BundleContext;
 
+import de.mhus.db.karaf.datasource.TraceRecorder.Aggregate;
+import de.mhus.lib.core.M;
+import de.mhus.lib.core.console.ConsoleTable;
 import de.mhus.osgi.api.karaf.AbstractCmd;
 import de.mhus.osgi.api.util.DataSourceUtil;
 
@@ -44,7 +48,9 @@ public class CmdDbTrace extends AbstractCmd {
             index = 1,
             name = "option",
             required = true,
-            description = "enable / disable",
+            description =
+                    "enable / disable / log / file:<file> / sample:<rate> / slow:<millis>"
+                            + " / stats / reset",
             multiValued = false)
     String option;
 
@@ -70,6 +76,31 @@ public class CmdDbTrace extends AbstractCmd {
             tds.setTraceFile("");
         } else if (option.startsWith("file:")) {
             tds.setTraceFile(option.substring(5));
+        } else if (option.startsWith("sample:")) {
+            tds.setSampleRate(M.to(option.substring(7), 1d));
+        } else if (option.startsWith("slow:")) {
+            tds.setSlowThreshold(M.to(option.substring(5), 0L));
+        } else if (option.equals("reset")) {
+            tds.getRecorder().reset();
+        } else if (option.equals("stats")) {
+            List<Aggregate> data = tds.getRecorder().getAggregates();
+            data.sort((a, b) -> -Long.compare(a.getNanos(), b.getNanos()));
+            ConsoleTable table = new ConsoleTable(tblOpt);
+            table.setHeaderValues(
+                    "Count", "Slow", "Rows", "Runtime", "P50", "P99", "Max", "Sql");
+            for (Aggregate d : data)
+                table.addRowValues(
+                        d.getCnt(),
+                        d.getSlow(),
+                        d.getRows(),
+                        toMillis(d.getNanos()),
+                        toMillis(d.getPercentile(50)),
+                        toMillis(d.getPercentile(99)),
+                        toMillis(d.getMax()),
+                        d.getSql());
+            table.print(System.out);
+            System.out.println("Dropped: " + tds.getRecorder().getDropped());
+            return null;
         }
         System.out.println(
                 "Datasource "
@@ -77,8 +108,16 @@ public class CmdDbTrace extends AbstractCmd {
                         + " Trace: "
                         + tds.isTrace()
                         + " File: "
-                        + tds.getTraceFile());
+                        + tds.getTraceFile()
+                        + " Sample: "
+                        + tds.getSampleRate()
+                        + " Slow: "
+                        + tds.getSlowThreshold());
 
         return null;
     }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000d);
+    }
 }
@@ -17,6 +17,7 @@ package de.mhus.db.karaf.datasource;
 
 import java.io.File;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 
@@ -34,6 +35,7 @@ public class TraceDataSource extends AbstractDataSource {
     private Log log = Log.getLog(TraceDataSource.class); // TODO change !
     private boolean trace;
     private String traceFile = "";
+    private TraceRecorder recorder = new TraceRecorder("", log, 8192);
 
     @Override
     public DataSource getDataSource() throws SQLFeatureNotSupportedException {
@@ -64,6 +66,7 @@ public class TraceDataSource extends AbstractDataSource {
     public void setSource(String source) {
         this.source = source;
         instanceName = "trace(" + isTrace() + "):" + source;
+        recorder.setSource(source);
     }
 
     @Override
@@ -74,12 +77,15 @@ public class TraceDataSource extends AbstractDataSource {
     public void setTrace(boolean trace) {
         this.trace = trace;
         setSource(source);
+        if (trace) recorder.start();
+        else recorder.stop();
     }
 
     public void setTraceFile(String file) {
         if (MString.isEmptyTrim(file)) log = Log.getLog(TraceDataSource.class);
         else log = new FileLogger("", new File(file));
         traceFile = file;
+        recorder.setLog(log);
     }
 
     public boolean isTrace() {
@@ -87,16 +93,54 @@ public class TraceDataSource extends AbstractDataSource {
     }
 
     public long startTrace(String... attr) {
-        if (isTrace()) {
-            return System.currentTimeMillis();
+        if (trace) {
+            return System.nanoTime();
         }
         return 0;
     }
 
     public void stopTrace(long time, String... attr) {
         if (time == 0) return;
-        long delta = System.currentTimeMillis() - time;
-        log.i(source, delta, attr);
+        recorder.record(attr.length > 0 ? attr[0] : "", System.nanoTime() - time, -1);
+    }
+
+    public void stopTrace(long time, long rows, String sql) {
+        if (time == 0) return;
+        recorder.record(sql, System.nanoTime() - time, rows);
+    }
+
+    /**
+     * Wrap the result set to include the fetch time into the trace. The trace will be stopped if
+     * the result set or its statement is closed.
+     *
+     * @param result
+     * @param time
+     * @param sql
+     * @return The result set to return
+     */
+    public ResultSet traceResult(ResultSet result, long time, String sql) {
+        if (time == 0 || result == null) return result;
+        return new TracedResultSet(result, this, time, sql);
+    }
+
+    public TraceRecorder getRecorder() {
+        return recorder;
+    }
+
+    public double getSampleRate() {
+        return recorder.getSampleRate();
+    }
+
+    public void setSampleRate(double sampleRate) {
+        recorder.setSampleRate(sampleRate);
+    }
+
+    public long getSlowThreshold() {
+        return recorder.getSlowThreshold();
+    }
+
+    public void setSlowThreshold(long millis) {
+        recorder.setSlowThreshold(millis);
     }
 
     public String getTraceFile() {
@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.karaf.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.mhus.lib.core.MSystem;
+import de.mhus.lib.core.MThread;
+import de.mhus.lib.core.logging.Log;
+import de.mhus.lib.sql.analytics.LatencyHistogram;
+import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer;
+
+/**
+ * Records traced statements without locking the calling thread. Every statement is added to the
+ * aggregates of its normalized sql (see SqlRuntimeAnalyzer.normalize()), sampled or slow statements are put into a ring buffer which is written
+ * to the log by a background thread. If the writer can not follow the oldest entries are dropped
+ * and counted.
+ */
+public class TraceRecorder {
+
+    private static final int MAX_AGGREGATES = 10000;
+    private static final String OTHER = "[other]";
+
+    private final int mask;
+    private final String[] sqls;
+    private final long[] nanos;
+    private final long[] rows;
+    private final long[] times;
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final ConcurrentHashMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private long tail;
+    private volatile double sampleRate = 1;
+    private volatile long slowNanos = 0;
+    private volatile Log log;
+    private volatile Thread writer;
+    private String source;
+
+    public TraceRecorder(String source, Log log, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.source = source;
+        this.log = log;
+        mask = size - 1;
+        sqls = new String[size];
+        nanos = new long[size];
+        rows = new long[size];
+        times = new long[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) published.set(i, -1);
+    }
+
+    /**
+     * Record an executed statement.
+     *
+     * @param sql
+     * @param deltaNanos Runtime including the fetch of the result
+     * @param rowCnt Fetched rows or -1
+     */
+    public void record(String sql, long deltaNanos, long rowCnt) {
+        if (sql == null) sql = "";
+        String shape = SqlRuntimeAnalyzer.normalize(sql);
+        Aggregate aggregate = aggregates.get(shape);
+        if (aggregate == null) {
+            if (aggregates.size() >= MAX_AGGREGATES) shape = OTHER;
+            aggregate = aggregates.computeIfAbsent(shape, Aggregate::new);
+        }
+        boolean slow = slowNanos > 0 && deltaNanos >= slowNanos;
+        aggregate.add(deltaNanos, rowCnt, slow);
+        double rate = sampleRate;
+        if (!slow && (rate <= 0 || rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate))
+            return;
+        long seq = head.getAndIncrement();
+        int i = (int) (seq & mask);
+        published.set(i, -1);
+        sqls[i] = sql;
+        nanos[i] = deltaNanos;
+        rows[i] = rowCnt;
+        times[i] = System.currentTimeMillis();
+        published.lazySet(i, seq);
+    }
+
+    public synchronized void start() {
+        if (writer != null) return;
+        writer = new Thread(this::run, "TraceRecorder-" + source);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public synchronized void stop() {
+        Thread t = writer;
+        writer = null;
+        if (t != null) t.interrupt();
+    }
+
+    private void run() {
+        while (writer == Thread.currentThread()) {
+            try {
+                drain();
+            } catch (Throwable t) {
+                log.w("drain failed", source, t);
+            }
+            MThread.sleep(100);
+        }
+        drain();
+    }
+
+    /** Write all published entries to the log. Called by the writer thread only. */
+    protected synchronized void drain() {
+        long h = head.get();
+        if (h - tail > sqls.length) {
+            dropped.add(h - sqls.length - tail);
+            tail = h - sqls.length;
+        }
+        while (tail < h) {
+            int i = (int) (tail & mask);
+            long p = published.get(i);
+            if (p != tail) {
+                if (p > tail) {
+                    // overwritten by a newer entry
+                    dropped.increment();
+                    tail++;
+                    continue;
+                }
+                break; // not finished, try next time
+            }
+            String sql = sqls[i];
+            long delta = nanos[i];
+            long rowCnt = rows[i];
+            long time = times[i];
+            if (published.get(i) != tail) {
+                dropped.increment();
+                tail++;
+                continue;
+            }
+            tail++;
+            log.i(source, time, TimeUnit.NANOSECONDS.toMicros(delta), rowCnt, sql);
+        }
+    }
+
+    public List<Aggregate> getAggregates() {
+        return new ArrayList<>(aggregates.values());
+    }
+
+    public void reset() {
+        aggregates.clear();
+        dropped.reset();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Set the part of statements written to the log, between 0 (none) and 1 (all).
+     *
+     * @param sampleRate
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getSlowThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(slowNanos);
+    }
+
+    /**
+     * Statements running longer are always written to the log. 0 disables.
+     *
+     * @param millis
+     */
+    public void setSlowThreshold(long millis) {
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public void setLog(Log log) {
+        this.log = log;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(
+                this,
+                source,
+                "rate",
+                sampleRate,
+                "slow",
+                getSlowThreshold(),
+                "dropped",
+                dropped.sum(),
+                "aggregates",
+                aggregates.size());
+    }
+
+    public static class Aggregate {
+
+        private final String sql;
+        private final LongAdder cnt = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        public Aggregate(String sql) {
+            this.sql = sql;
+        }
+
+        void add(long deltaNanos, long rowCnt, boolean isSlow) {
+            cnt.increment();
+            nanos.add(deltaNanos);
+            max.accumulate(deltaNanos);
+            histogram.record(deltaNanos);
+            if (rowCnt > 0) rows.add(rowCnt);
+            if (isSlow) slow.increment();
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCnt() {
+            return cnt.sum();
+        }
+
+        public long getSlow() {
+            return slow.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getPercentile(double percentile) {
+            return LatencyHistogram.getPercentile(histogram.getCounts(), percentile);
+        }
+    }
+}
@@ -44,6 +44,7 @@ public class TracedPreparedStatement implements PreparedStatement {
     private TracedConnection con;
     private TraceDataSource ds;
     private String sql;
+    private ResultSet lastResult;
 
     public TracedPreparedStatement(
             PreparedStatement prepareStatement, String sql, TracedConnection tracedConnection) {
@@ -60,21 +61,27 @@ public class TracedPreparedStatement implements PreparedStatement {
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
+        stopResultTrace();
         long time = ds.startTrace(sql);
         try {
-            return instance.executeQuery(sql);
-        } finally {
+            lastResult = ds.traceResult(instance.executeQuery(sql), time, sql);
+            return lastResult;
+        } catch (SQLException | RuntimeException e) {
             ds.stopTrace(time, sql);
+            throw e;
         }
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
+        stopResultTrace();
         long time = ds.startTrace(sql);
         try {
-            return instance.executeQuery();
-        } finally {
+            lastResult = ds.traceResult(instance.executeQuery(), time, sql);
+            return lastResult;
+        } catch (SQLException | RuntimeException e) {
             ds.stopTrace(time, sql);
+            throw e;
         }
     }
 
@@ -110,9 +117,16 @@ public class TracedPreparedStatement implements PreparedStatement {
 
     @Override
     public void close() throws SQLException {
+        stopResultTrace();
         instance.close();
     }
 
+    /** Stop the trace of the last result if it was not closed. */
+    private void stopResultTrace() {
+        if (lastResult instanceof TracedResultSet) ((TracedResultSet) lastResult).stopTrace();
+        lastResult = null;
+    }
+
     @Override
     public int getMaxFieldSize() throws SQLException {
         return instance.getMaxFieldSize();
@@ -26,6 +26,7 @@ public class TracedStatement implements Statement {
     private Statement instance;
     private TracedConnection con;
     private TraceDataSource ds;
+    private ResultSet lastResult;
 
     public TracedStatement(Statement createStatement, TracedConnection delegateConnection) {
         instance = createStatement;
@@ -40,11 +41,14 @@ public class TracedStatement implements Statement {
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
+        stopResultTrace();
         long time = ds.startTrace(sql);
         try {
-            return instance.executeQuery(sql);
-        } finally {
+            lastResult = ds.traceResult(instance.executeQuery(sql), time, sql);
+            return lastResult;
+        } catch (SQLException | RuntimeException e) {
             ds.stopTrace(time, sql);
+            throw e;
         }
     }
 
@@ -65,9 +69,16 @@ public class TracedStatement implements Statement {
 
     @Override
     public void close() throws SQLException {
+        stopResultTrace();
         instance.close();
     }
 
+    /** Stop the trace of the last result if it was not closed. */
+    private void stopResultTrace() {
+        if (lastResult instanceof TracedResultSet) ((TracedResultSet) lastResult).stopTrace();
+        lastResult = null;
+    }
+
     @Override
     public int getMaxFieldSize() throws SQLException {
         return instance.getMaxFieldSize();
@@ -15,8 +15,7 @@
  */
 package de.mhus.db.karaf.xdb.adb.sql;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.List;
 
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
@@ -25,14 +24,13 @@ import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.apache.karaf.shell.api.console.Session;
 
 import de.mhus.lib.core.IProperties;
-import de.mhus.lib.core.M;
 import de.mhus.lib.core.console.ConsoleTable;
 import de.mhus.lib.core.node.INode;
 import de.mhus.lib.sql.analytics.SqlAnalytics;
 import de.mhus.lib.sql.analytics.SqlAnalyzer;
 import de.mhus.lib.sql.analytics.SqlReporter;
 import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer;
-import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer.Container;
+import de.mhus.lib.sql.analytics.SqlRuntimeAnalyzer.Snapshot;
 import de.mhus.lib.sql.analytics.SqlRuntimeWarning;
 import de.mhus.lib.sql.analytics.SqlRuntimeWriter;
 import de.mhus.osgi.api.karaf.AbstractCmd;
@@ -105,25 +103,25 @@ public class CmdSql extends AbstractCmd {
                 {
                     SqlAnalyzer analyzer = SqlAnalytics.getAnalyzer();
                     if (analyzer instanceof SqlRuntimeAnalyzer) {
-                        Collection<Container> data = ((SqlRuntimeAnalyzer) analyzer).getData();
+                        List<Snapshot> data = ((SqlRuntimeAnalyzer) analyzer).getSnapshot();
+                        data.sort((a, b) -> -Long.compare(a.getNanos(), b.getNanos()));
                         ConsoleTable table = new ConsoleTable(tblOpt);
-                        table.setHeaderValues("Count", "Runtime", "R/C", "Sql");
-                        for (Container d : data) {
+                        table.setHeaderValues(
+                                "Count", "Errors", "Rows", "Runtime", "R/C", "P50", "P95", "P99",
+                                "Max", "Sql");
+                        for (Snapshot d : data) {
                             table.addRowValues(
                                     d.getCnt(),
-                                    d.getRuntime(),
-                                    d.getRuntime() / (long) d.getCnt(),
+                                    d.getErrors(),
+                                    d.getRows(),
+                                    toMillis(d.getNanos()),
+                                    toMillis(d.getNanos() / Math.max(1, d.getCnt())),
+                                    toMillis(d.getP50()),
+                                    toMillis(d.getP95()),
+                                    toMillis(d.getP99()),
+                                    toMillis(d.getMax()),
                                     d.getSql());
                         }
-                        table.sort(
-                                2,
-                                new Comparator<String>() {
-
-                                    @Override
-                                    public int compare(String o1, String o2) {
-                                        return -Integer.compare(M.to(o1, 0), M.to(o2, 0));
-                                    }
-                                });
                         table.print(System.out);
                     } else {
                         System.out.println(analyzer);
@@ -136,4 +134,8 @@ public class CmdSql extends AbstractCmd {
 
         return null;
     }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000d);
+    }
 }
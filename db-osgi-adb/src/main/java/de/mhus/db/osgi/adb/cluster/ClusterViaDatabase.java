@@ -15,32 +15,25 @@
  */
 package de.mhus.db.osgi.adb.cluster;
 
-import java.net.URL;
-import java.sql.SQLException;
-import java.sql.SQLIntegrityConstraintViolationException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sql.DataSource;
 
-import de.mhus.lib.core.M;
+import de.mhus.lib.basics.RC;
 import de.mhus.lib.core.MCast;
 import de.mhus.lib.core.MLog;
-import de.mhus.lib.core.MPeriod;
 import de.mhus.lib.core.MSystem;
 import de.mhus.lib.core.MThread;
 import de.mhus.lib.core.cfg.CfgInt;
 import de.mhus.lib.core.concurrent.Lock;
 import de.mhus.lib.core.logging.ITracer;
-import de.mhus.lib.core.node.INode;
-import de.mhus.lib.core.node.INodeFactory;
 import de.mhus.lib.core.service.ClusterApi;
 import de.mhus.lib.core.util.SoftHashMap;
+import de.mhus.lib.errors.MRuntimeException;
 import de.mhus.lib.sql.DataSourceProvider;
-import de.mhus.lib.sql.DbConnection;
 import de.mhus.lib.sql.DbPool;
-import de.mhus.lib.sql.DbResult;
-import de.mhus.lib.sql.DbStatement;
 import de.mhus.lib.sql.DefaultDbPool;
 import de.mhus.lib.sql.Dialect;
 import de.mhus.osgi.api.util.DataSourceUtil;
@@ -56,20 +49,21 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
     private DbPool pool;
     private String prefix;
     private String table;
-    private String key;
+    private DbLeaseManager leases;
     private SoftHashMap<String, Lock> cache = new SoftHashMap<>();
 
     private boolean startInit;
+    private volatile boolean closed;
 
     public ClusterViaDatabase(String dsName, String prefix) {
         this.dsName = dsName;
         this.prefix = prefix;
-        this.table = prefix + "_lock_";
-        this.key = "id_";
+        this.table = prefix + "_lease_";
     }
 
     @Override
     public Lock getLock(String name) {
+        if (closed) throw new MRuntimeException(RC.ERROR, "cluster api is closed", dsName);
         init();
         synchronized (cache) {
             return cache.getOrCreate(name, (k) -> new DbLock(k));
@@ -78,17 +72,34 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
 
     @Override
     public boolean isReady() {
+        if (closed) return false;
         if (!startInit) init();
         if (ds == null) return false;
         return true; // TODO check data source status !!!!
     }
 
+    /**
+     * Stop the lease poller and close the database connections. Leases still held are not
+     * released and expire after the lease time.
+     */
+    public void close() {
+        // set the flag first to stop a running init loop
+        closed = true;
+        synchronized (this) {
+            if (leases != null) leases.close();
+            if (pool != null) pool.close();
+            leases = null;
+            pool = null;
+            ds = null;
+        }
+    }
+
     private synchronized void init() {
         startInit = true;
         if (ds != null) return; // TODO timeout
-        while (true) {
+        while (!closed) {
             try {
-                ds = DataSourceUtil.getDataSource(dsName);
+                DataSource ds = DataSourceUtil.getDataSource(dsName);
                 if (ds == null) {
                     log().d("Datasource not found", dsName);
                 } else {
@@ -99,13 +110,11 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
                     dsProvider.setDataSource(ds);
                     dsProvider.setDialect(dialect);
                     pool = new DefaultDbPool(dsProvider);
-                    // init tables
-                    URL url = MSystem.locateResource(this, "SqlDbStorage.xml");
-                    DbConnection con = pool.getConnection();
-                    INode data = M.l(INodeFactory.class).read(url);
-                    data.setString("prefix", prefix);
-                    pool.getDialect().createStructure(data, con, null, false);
-                    con.close();
+                    // init lease table
+                    DbLeaseManager manager = new DbLeaseManager(pool, table);
+                    manager.createTable();
+                    leases = manager;
+                    this.ds = ds;
                     return;
                 }
             } catch (Exception e) {
@@ -116,115 +125,13 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
         }
     }
 
-    private Con tryLock(String value) {
-        log().t("Try Lock", value);
-        DbConnection con = null;
-        try {
-            con = pool.getConnection();
-            DbStatement sth =
-                    con.createStatement(
-                            "SELECT "
-                                    + key
-                                    + " FROM "
-                                    + table
-                                    + " WHERE "
-                                    + key
-                                    + "=$key$ FOR UPDATE NOWAIT");
-            Map<String, Object> attributes = new HashMap<>();
-            attributes.put("key", value);
-            try {
-                DbResult res = sth.executeQuery(attributes);
-                if (res.next()) {
-                    res.close();
-                    log().t("=== Lock1", value);
-                    return new Con(con, sth);
-                }
-                res.close();
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("timeout")) throw e;
-                sth.close();
-                con.close();
-                log().t("--- No0", value, e);
-                return null;
-            }
-            DbStatement sthSet =
-                    con.createStatement("INSERT INTO " + table + "(" + key + ") VALUES ($key$)");
-            boolean done = false;
-            try {
-                sthSet.execute(attributes);
-                done = true;
-            } catch (SQLIntegrityConstraintViolationException e) {
-            }
-            if (!done) {
-                con.close();
-                log().t("--- No1", value);
-                return null;
-            }
-            sthSet.close();
-            con.commit();
-
-            try {
-                DbResult res = sth.executeQuery(attributes);
-                if (res.next()) {
-                    res.close();
-                    log().t("=== Lock2", value);
-                    return new Con(con, sth);
-                }
-                res.close();
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("timeout")) throw e;
-                sth.close();
-                con.commit();
-                con.close();
-                log().t("--- No2", value, e);
-                return null;
-            }
-            sth.close();
-            con.commit();
-            con.close();
-            log().t("--- No3", value);
-            return null;
-        } catch (Exception e) {
-            log().d(e);
-            if (con != null) {
-                try {
-                    con.rollback();
-                } catch (Exception e1) {
-                    log().e(e1);
-                }
-                con.close();
-            }
-            log().t("--- No3", value);
-            return null;
-        }
-    }
-
-    private class Con {
-        DbConnection con;
-        DbStatement sth;
-
-        public Con(DbConnection con, DbStatement sth) {
-            this.con = con;
-            this.sth = sth;
-        }
-
-        public void close() {
-            if (sth == null) return;
-            sth.close();
-            try {
-                con.commit();
-            } catch (Exception e) {
-                log().e(e);
-            }
-            con.close();
-            sth = null;
-            con = null;
-        }
-    }
-
     private class DbLock implements Lock {
 
-        private Con con;
+        private final ReentrantLock mutex = new ReentrantLock();
+        private final Condition changed = mutex.newCondition();
+        private volatile Thread holder;
+        private long token;
+        private int waiting;
         private String name;
         private long lockStart;
         private int lockCnt;
@@ -235,64 +142,79 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
             this.name = name;
         }
 
-        @SuppressWarnings("resource")
         @Override
         public Lock lock() {
+            lock(Long.MAX_VALUE);
+            return this;
+        }
+
+        @Override
+        public boolean lock(long timeout) {
+            long start = System.currentTimeMillis();
             Scope scope = null;
+            mutex.lock();
             try {
                 while (true) {
-                    Con con = tryLock(name);
-                    if (con != null) {
-                        this.con = con;
-                        lockStart = System.currentTimeMillis();
-                        lockCnt++;
-                        lockOwner = MSystem.findCalling(3) + " " + Thread.currentThread().getId();
-                        lockStacktrace = MCast.toString("", Thread.currentThread().getStackTrace());
-                        return this;
+                    if (holder == null) {
+                        Long token = leases.acquire(name);
+                        if (token != null) {
+                            this.token = token;
+                            holder = Thread.currentThread();
+                            lockStart = System.currentTimeMillis();
+                            lockCnt++;
+                            lockOwner = MSystem.findCalling(3) + " " + holder.getId();
+                            lockStacktrace = MCast.toString("", holder.getStackTrace());
+                            return true;
+                        }
                     }
-                    if (scope != null)
+                    long waited = System.currentTimeMillis() - start;
+                    if (waited >= timeout) return false;
+                    if (scope == null)
                         scope = ITracer.get().enter("DbLock.lock", "name", getName());
-                    MThread.sleep(200);
+                    // a local unlock or the lease poller will signal, never wait longer than a
+                    // lease time to survive a failing poller
+                    if (waiting++ == 0) leases.addWaiter(name, this::wakeup);
+                    try {
+                        changed.await(
+                                Math.min(timeout - waited, leases.getLeaseTime()),
+                                TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    } finally {
+                        if (--waiting == 0) leases.removeWaiter(name);
+                    }
                 }
             } finally {
+                mutex.unlock();
                 if (scope != null) scope.close();
             }
         }
 
-        @SuppressWarnings("resource")
-        @Override
-        public boolean lock(long timeout) {
-            long start = System.currentTimeMillis();
-            Scope scope = null;
+        private void wakeup() {
+            mutex.lock();
             try {
-                while (true) {
-                    Con con = tryLock(name);
-                    if (con != null) {
-                        this.con = con;
-                        lockStart = System.currentTimeMillis();
-                        lockCnt++;
-                        lockOwner = MSystem.findCalling(3) + " " + Thread.currentThread().getId();
-                        lockStacktrace = MCast.toString("", Thread.currentThread().getStackTrace());
-                        return true;
-                    }
-                    if (scope != null)
-                        scope = ITracer.get().enter("waitUntilUnlock", "name", getName());
-                    if (MPeriod.isTimeOut(start, timeout)) return false;
-                    MThread.sleep(200);
-                }
+                changed.signal();
             } finally {
-                if (scope != null) scope.close();
+                mutex.unlock();
             }
         }
 
         @Override
-        public synchronized boolean unlock() {
-            if (con == null) return true;
-            lockOwner = null;
-            lockStacktrace = null;
-            lockStart = 0;
-            con.close();
-            return true;
+        public boolean unlock() {
+            mutex.lock();
+            try {
+                if (holder == null) return true;
+                leases.release(name, token);
+                holder = null;
+                lockOwner = null;
+                lockStacktrace = null;
+                lockStart = 0;
+                changed.signal();
+                return true;
+            } finally {
+                mutex.unlock();
+            }
         }
 
         @Override
@@ -302,7 +224,7 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
 
         @Override
         public boolean isLocked() {
-            return con != null;
+            return holder != null;
         }
 
         @Override
@@ -320,9 +242,13 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
             return lockStart;
         }
 
+        /**
+         * Return false if the lease was lost, e.g. the database was not reachable for the heartbeat
+         * and another node took over the lock.
+         */
         @Override
         public boolean refresh() {
-            return true;
+            return holder != null && leases.isHeld(name, token);
         }
 
         @Override
@@ -334,5 +260,15 @@ public class ClusterViaDatabase extends MLog implements ClusterApi {
         public String getStartStackTrace() {
             return lockStacktrace;
         }
+
+        /**
+         * The fencing token of the current lease. The token is incremented with every grant and can
+         * be used to reject writes of an outdated lock holder.
+         *
+         * @return The token or 0 if not locked
+         */
+        public long getFencingToken() {
+            return holder == null ? 0 : token;
+        }
     }
 }
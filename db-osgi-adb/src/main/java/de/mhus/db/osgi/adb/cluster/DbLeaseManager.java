@@ -0,0 +1,395 @@
+/**
+ * Copyright (C) 2020 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mhus.db.osgi.adb.cluster;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.mhus.lib.core.MLog;
+import de.mhus.lib.core.MSystem;
+import de.mhus.lib.core.MThread;
+import de.mhus.lib.core.cfg.CfgLong;
+import de.mhus.lib.core.node.INode;
+import de.mhus.lib.core.node.MNode;
+import de.mhus.lib.core.node.NodeList;
+import de.mhus.lib.sql.DbConnection;
+import de.mhus.lib.sql.DbPool;
+import de.mhus.lib.sql.DbResult;
+import de.mhus.lib.sql.DbStatement;
+import de.mhus.lib.sql.Dialect;
+
+/**
+ * Lease based lock table shared by all locks of one cluster node. A lease is a row with the lock
+ * name, the owning node, an expire time and a fencing token which is incremented with every grant.
+ * All statements of the node are executed over one shared connection, held leases are renewed by
+ * a single heartbeat and one background poller checks the leases local waiters are waiting for
+ * and wakes them up if the lease is free or expired. If a node dies its leases expire after
+ * leaseTime milliseconds, the clocks of the nodes should be synchronized.
+ */
+public class DbLeaseManager extends MLog {
+
+    private static final CfgLong CFG_LEASE_TIME =
+            new CfgLong(ClusterViaDatabase.class, "leaseTime", 30000);
+    private static final CfgLong CFG_POLL_INTERVAL =
+            new CfgLong(ClusterViaDatabase.class, "leasePollInterval", 500);
+
+    private final DbPool pool;
+    private final String table;
+    private final String owner;
+    private final ReentrantLock conLock = new ReentrantLock();
+    private DbConnection con;
+    private final Map<String, Long> leases = new ConcurrentHashMap<>();
+    private final Map<String, Runnable> waiters = new ConcurrentHashMap<>();
+    private volatile Thread poller;
+    private volatile boolean closed;
+    private long lastHeartbeat;
+
+    public DbLeaseManager(DbPool pool, String table) {
+        this.pool = pool;
+        this.table = table;
+        this.owner = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Create the lease table if not exists.
+     *
+     * @throws Exception
+     */
+    public void createTable() throws Exception {
+        INode cstr = new MNode();
+        INode ctable = cstr.createObject("table");
+        ctable.setProperty(Dialect.K_NAME, table);
+        NodeList cfList = ctable.createArray("field");
+        addField(cfList, "name_", "string", 200, true);
+        addField(cfList, "owner_", "string", 100, false);
+        addField(cfList, "expires_", "long", 0, false);
+        addField(cfList, "token_", "long", 0, false);
+        ctable.setProperty(Dialect.K_PRIMARY_KEY, "name_");
+        cstr.createArray("index");
+        DbConnection con = pool.getConnection();
+        try {
+            pool.getDialect().createStructure(cstr, con, null, false);
+            con.commit();
+        } finally {
+            con.close();
+        }
+    }
+
+    private void addField(NodeList cfList, String name, String type, int size, boolean primary) {
+        INode cfield = cfList.createObject();
+        cfield.setProperty(Dialect.K_NAME, name);
+        cfield.setProperty(Dialect.K_TYPE, type);
+        if (size > 0) cfield.setProperty(Dialect.K_SIZE, String.valueOf(size));
+        cfield.setProperty(Dialect.K_NOT_NULL, primary ? "yes" : "no");
+        if (primary) cfield.setProperty(Dialect.K_CATEGORIES, Dialect.C_PRIMARY_KEY);
+    }
+
+    /**
+     * Try to acquire the lease for the given name.
+     *
+     * @param name
+     * @return The fencing token or null if the lease is held by another owner
+     */
+    public Long acquire(String name) {
+        Long token =
+                execute(
+                        con -> {
+                            Map<String, Object> attr = attributes(name);
+                            attr.put("now", System.currentTimeMillis());
+                            int cnt =
+                                    update(
+                                            con,
+                                            "UPDATE "
+                                                    + table
+                                                    + " SET owner_=$owner$,expires_=$expires$,"
+                                                    + "token_=token_+1 WHERE name_=$name$ AND "
+                                                    + "(owner_ IS NULL OR expires_ < $now$)",
+                                            attr);
+                            if (cnt == 1) {
+                                Long ret = null;
+                                DbStatement sth =
+                                        con.createStatement(
+                                                "SELECT token_ FROM "
+                                                        + table
+                                                        + " WHERE name_=$name$");
+                                try {
+                                    DbResult res = sth.executeQuery(attr);
+                                    if (res.next()) ret = res.getLong("token_");
+                                    res.close();
+                                } finally {
+                                    sth.close();
+                                }
+                                con.commit();
+                                return ret;
+                            }
+                            con.commit();
+                            try {
+                                update(
+                                        con,
+                                        "INSERT INTO "
+                                                + table
+                                                + " (name_,owner_,expires_,token_) VALUES "
+                                                + "($name$,$owner$,$expires$,1)",
+                                        attr);
+                                con.commit();
+                                return 1L;
+                            } catch (Exception e) {
+                                // the row exists and the lease is held by another owner
+                                log().t("lease in use", name, e);
+                                con.rollback();
+                                return null;
+                            }
+                        });
+        if (token != null) {
+            leases.put(name, token);
+            startPoller();
+        }
+        log().t("acquire", name, token);
+        return token;
+    }
+
+    /**
+     * Release the lease if it is still held with the given fencing token.
+     *
+     * @param name
+     * @param token
+     */
+    public void release(String name, long token) {
+        leases.remove(name, token);
+        execute(
+                con -> {
+                    Map<String, Object> attr = attributes(name);
+                    attr.put("token", token);
+                    update(
+                            con,
+                            "UPDATE "
+                                    + table
+                                    + " SET owner_=NULL,expires_=0 WHERE name_=$name$ AND "
+                                    + "owner_=$owner$ AND token_=$token$",
+                            attr);
+                    con.commit();
+                    return null;
+                });
+        log().t("release", name, token);
+    }
+
+    /**
+     * Return true if the lease is still held by this node with the given fencing token. A lease
+     * is lost if the heartbeat was not able to renew it in time.
+     *
+     * @param name
+     * @param token
+     * @return true if held
+     */
+    public boolean isHeld(String name, long token) {
+        Long current = leases.get(name);
+        return current != null && current == token;
+    }
+
+    /**
+     * Register a waiter for the lease. The poller will call the waiter if the lease is free.
+     *
+     * @param name
+     * @param wakeup
+     */
+    public void addWaiter(String name, Runnable wakeup) {
+        waiters.put(name, wakeup);
+        startPoller();
+    }
+
+    public void removeWaiter(String name) {
+        waiters.remove(name);
+    }
+
+    public long getLeaseTime() {
+        return CFG_LEASE_TIME.value();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void close() {
+        closed = true;
+        Thread t = poller;
+        if (t != null) t.interrupt();
+        conLock.lock();
+        try {
+            if (con != null) con.close();
+            con = null;
+        } finally {
+            conLock.unlock();
+        }
+    }
+
+    private synchronized void startPoller() {
+        if (poller != null || closed) return;
+        poller = new Thread(this::poll, "ClusterViaDatabase-lease-" + table);
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    private void poll() {
+        while (!closed) {
+            try {
+                long leaseTime = getLeaseTime();
+                if (!leases.isEmpty()
+                        && System.currentTimeMillis() - lastHeartbeat >= leaseTime / 3)
+                    heartbeat();
+                if (!waiters.isEmpty()) wakeupWaiters();
+            } catch (Throwable t) {
+                log().w("lease poller failed", table, t);
+            }
+            MThread.sleep(CFG_POLL_INTERVAL.value());
+        }
+    }
+
+    private void heartbeat() {
+        lastHeartbeat = System.currentTimeMillis();
+        Map<String, Long> held =
+                execute(
+                        con -> {
+                            Map<String, Object> attr = attributes(null);
+                            int cnt =
+                                    update(
+                                            con,
+                                            "UPDATE "
+                                                    + table
+                                                    + " SET expires_=$expires$ WHERE "
+                                                    + "owner_=$owner$",
+                                            attr);
+                            con.commit();
+                            if (cnt >= leases.size()) return null;
+                            // some leases are lost, find out which
+                            Map<String, Long> ret = new HashMap<>();
+                            DbStatement sth =
+                                    con.createStatement(
+                                            "SELECT name_,token_ FROM "
+                                                    + table
+                                                    + " WHERE owner_=$owner$");
+                            try {
+                                DbResult res = sth.executeQuery(attr);
+                                while (res.next())
+                                    ret.put(res.getString("name_"), res.getLong("token_"));
+                                res.close();
+                            } finally {
+                                sth.close();
+                            }
+                            con.commit();
+                            return ret;
+                        });
+        if (held == null) return;
+        for (Map.Entry<String, Long> entry : leases.entrySet()) {
+            if (!entry.getValue().equals(held.get(entry.getKey()))) {
+                log().w("lease lost", entry.getKey(), entry.getValue());
+                leases.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void wakeupWaiters() {
+        ArrayList<String> names = new ArrayList<>(waiters.keySet());
+        if (names.isEmpty()) return;
+        Set<String> blocked =
+                execute(
+                        con -> {
+                            Map<String, Object> attr = attributes(null);
+                            attr.put("names", names);
+                            attr.put("now", System.currentTimeMillis());
+                            Set<String> ret = new HashSet<>();
+                            DbStatement sth =
+                                    con.createStatement(
+                                            "SELECT name_ FROM "
+                                                    + table
+                                                    + " WHERE name_ IN ($names$) AND "
+                                                    + "owner_ IS NOT NULL AND expires_ >= $now$");
+                            try {
+                                DbResult res = sth.executeQuery(attr);
+                                while (res.next()) ret.add(res.getString("name_"));
+                                res.close();
+                            } finally {
+                                sth.close();
+                            }
+                            con.commit();
+                            return ret;
+                        });
+        if (blocked == null) return;
+        for (String name : names) {
+            if (blocked.contains(name)) continue;
+            Runnable wakeup = waiters.get(name);
+            if (wakeup != null) wakeup.run();
+        }
+    }
+
+    private Map<String, Object> attributes(String name) {
+        Map<String, Object> attr = new HashMap<>();
+        if (name != null) attr.put("name", name);
+        attr.put("owner", owner);
+        attr.put("expires", System.currentTimeMillis() + getLeaseTime());
+        return attr;
+    }
+
+    private int update(DbConnection con, String sql, Map<String, Object> attr) throws Exception {
+        DbStatement sth = con.createStatement(sql);
+        try {
+            return sth.executeUpdate(attr);
+        } finally {
+            sth.close();
+        }
+    }
+
+    /**
+     * Execute the task with the shared connection. If the task fails the connection will be
+     * dropped and replaced by a new one with the next call.
+     */
+    private <T> T execute(Task<T> task) {
+        conLock.lock();
+        try {
+            if (con == null || con.isClosed()) con = pool.getConnection();
+            return task.run(con);
+        } catch (Exception e) {
+            log().d("lease statement failed", table, e);
+            if (con != null) {
+                try {
+                    con.rollback();
+                } catch (Exception e1) {
+                    log().t(e1);
+                }
+                con.close();
+                con = null;
+            }
+            return null;
+        } finally {
+            conLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(
+                this, table, owner, "leases", leases.size(), "waiters", waiters.size());
+    }
+
+    private interface Task<T> {
+        T run(DbConnection con) throws Exception;
+    }
+}
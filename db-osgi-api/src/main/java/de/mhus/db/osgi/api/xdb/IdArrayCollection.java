@@ -15,7 +15,9 @@
  */
 package de.mhus.db.osgi.api.xdb;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import de.mhus.lib.adb.DbCollection;
 import de.mhus.lib.core.logging.MLogUtil;
@@ -25,10 +27,14 @@ import de.mhus.lib.xdb.XdbType;
 
 public class IdArrayCollection<T> implements DbCollection<T> {
 
+    private static final int PAGE_SIZE = 100;
+
     private XdbType<T> type;
     private String[] array;
     private int index;
     private T current;
+    private List<T> page;
+    private int pageStart;
 
     public IdArrayCollection(XdbType<T> type, String[] array) {
         this.type = type;
@@ -49,7 +55,15 @@ public class IdArrayCollection<T> implements DbCollection<T> {
     @Override
     public T next() {
         try {
-            current = type.getObject(array[index]);
+            if (page == null || index >= pageStart + page.size()) {
+                // load the next page of objects at once
+                pageStart = index;
+                page =
+                        type.getObjects(
+                                Arrays.copyOfRange(
+                                        array, index, Math.min(array.length, index + PAGE_SIZE)));
+            }
+            current = page.get(index - pageStart);
         } catch (Exception e) {
             MLogUtil.log().d("loading object of type {1} failed", type, array[index], e);
             index = array.length;
@@ -62,6 +76,7 @@ public class IdArrayCollection<T> implements DbCollection<T> {
     @Override
     public void close() {
         index = array.length;
+        page = null;
     }
 
     @Override
@@ -25,7 +25,9 @@ import java.util.List;
 import java.util.Map;
 
 import de.mhus.lib.adb.DbCollection;
+import de.mhus.lib.adb.query.AOperation;
 import de.mhus.lib.adb.query.AQuery;
+import de.mhus.lib.adb.query.Db;
 import de.mhus.lib.core.MCast;
 import de.mhus.lib.core.MCollection;
 import de.mhus.lib.errors.MException;
@@ -139,8 +141,18 @@ public class XdbUtil {
     public static <T> LinkedList<T> collectResults(XdbService manager, AQuery<T> query, int page)
             throws MException {
         LinkedList<T> list = new LinkedList<T>();
-        DbCollection<T> res = manager.getByQualification(query);
-        if (!res.skip(page * PAGE_SIZE)) return list;
+        // push the page down into the sql, skip rows of an already limited query
+        boolean paged = query.isPaged();
+        AOperation limit = paged ? null : Db.limit(page * PAGE_SIZE, PAGE_SIZE);
+        DbCollection<T> res = null;
+        if (limit != null) query.getOperations().add(limit);
+        try {
+            res = manager.getByQualification(query);
+        } finally {
+            // the query belongs to the caller, don't keep the page limit
+            if (limit != null) query.getOperations().remove(limit);
+        }
+        if (paged && !res.skip(page * PAGE_SIZE)) return list;
         while (res.hasNext()) {
             list.add(res.next());
             if (list.size() >= PAGE_SIZE) break;
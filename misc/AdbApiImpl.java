@@ -36,7 +36,9 @@ import de.mhus.db.osgi.api.adb.ReferenceCollector;
 import de.mhus.lib.adb.DbCollection;
 import de.mhus.lib.adb.DbMetadata;
 import de.mhus.lib.adb.Persistable;
+import de.mhus.lib.adb.query.AOperation;
 import de.mhus.lib.adb.query.AQuery;
+import de.mhus.lib.adb.query.Db;
 import de.mhus.lib.basics.UuidIdentificable;
 import de.mhus.lib.core.MLog;
 import de.mhus.lib.errors.MException;
@@ -90,8 +92,18 @@ public class AdbApiImpl extends MLog implements AdbApi {
     @Override
     public <T> LinkedList<T> collectResults(AQuery<T> query, int page) throws MException {
         LinkedList<T> list = new LinkedList<T>();
-        DbCollection<T> res = getManager().getByQualification(query);
-        if (!res.skip(page * PAGE_SIZE)) return list;
+        // push the page down into the sql, skip rows of an already limited query
+        boolean paged = query.isPaged();
+        AOperation limit = paged ? null : Db.limit(page * PAGE_SIZE, PAGE_SIZE);
+        DbCollection<T> res = null;
+        if (limit != null) query.getOperations().add(limit);
+        try {
+            res = getManager().getByQualification(query);
+        } finally {
+            // the query belongs to the caller, don't keep the page limit
+            if (limit != null) query.getOperations().remove(limit);
+        }
+        if (paged && !res.skip(page * PAGE_SIZE)) return list;
         while (res.hasNext()) {
             list.add(res.next());
             if (list.size() >= PAGE_SIZE) break;